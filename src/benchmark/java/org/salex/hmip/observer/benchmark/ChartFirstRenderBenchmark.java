@@ -0,0 +1,60 @@
+package org.salex.hmip.observer.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.ChartGenerator;
+import org.salex.hmip.observer.service.JFreeChartGenerator;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the first chart rendered in a fresh JVM with and without warming up the chart generator
+ * before. Each fork renders a single chart, so the result is the first-render latency. The steady-state latency is
+ * measured by the {@link ChartGeneratorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class ChartFirstRenderBenchmark {
+    @Param({"false", "true"})
+    private boolean warmUp;
+
+    private ChartGenerator generator;
+
+    private Date start;
+
+    private Date end;
+
+    private Map<Sensor, List<ClimateMeasurement>> data;
+
+    @Setup
+    public void setup() {
+        this.generator = new JFreeChartGenerator();
+        this.end = new Date();
+        this.start = new Date(this.end.getTime() - TimeUnit.HOURS.toMillis(24));
+        final var sensor = new Sensor(1L, "Sensor", Sensor.Type.HmIP_STHO, "sgtin-1", "#FF0000");
+        final var measurements = new ArrayList<ClimateMeasurement>();
+        for(int i = 0; i < 144; i++) {
+            final var time = new Date(this.start.getTime() + TimeUnit.MINUTES.toMillis(10 * i));
+            measurements.add(new ClimateMeasurement(new Reading(time), sensor, time, 10.0 + 5 * Math.sin(i / 20.0), 60.0, 5.0));
+        }
+        this.data = Map.of(sensor, measurements);
+        if(this.warmUp) {
+            this.generator.warmUp().block();
+        }
+    }
+
+    @Benchmark
+    public byte[] createFirst24HourChart() {
+        return this.generator.create24HourChart(this.start, this.end, this.data).block();
+    }
+}
@@ -0,0 +1,129 @@
+package org.salex.hmip.observer.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.ChartGenerator;
+import org.salex.hmip.observer.service.IndexedPngEncoder;
+import org.salex.hmip.observer.service.JFreeChartGenerator;
+import org.salex.hmip.observer.service.SvgChartGenerator;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the PNG charts of JFreeChart, encoded as ARGB or with an indexed palette, with the SVG charts written
+ * directly. Run with <code>-prof gc</code> to compare the allocation, the size of the charts is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChartGeneratorBenchmark {
+    @Param({"jfree", "jfree-indexed", "svg"})
+    private String generatorName;
+
+    @Param("3")
+    private int sensors;
+
+    private ChartGenerator generator;
+
+    private Date start;
+
+    private Date end;
+
+    private Map<Sensor, List<ClimateMeasurement>> details;
+
+    private Date historyStart;
+
+    private Sensor historySensor;
+
+    private List<ClimateMeasurementBoundaries> history;
+
+    @Setup
+    public void setup() {
+        this.generator = switch(this.generatorName) {
+            case "svg" -> new SvgChartGenerator();
+            case "jfree-indexed" -> new JFreeChartGenerator(new IndexedPngEncoder(9, IndexedPngEncoder.Filter.NONE), new SimpleMeterRegistry());
+            default -> new JFreeChartGenerator();
+        };
+        this.end = new Date();
+        this.start = new Date(this.end.getTime() - TimeUnit.HOURS.toMillis(24));
+        this.details = new HashMap<>();
+        for(int s = 0; s < this.sensors; s++) {
+            final var sensor = new Sensor((long) s, "Sensor " + s, Sensor.Type.HmIP_STHO, "sgtin-" + s, String.format("#%02X%02X00", 80 * s, 255 - 80 * s));
+            final var measurements = new ArrayList<ClimateMeasurement>();
+            for(int i = 0; i < 144; i++) {
+                final var time = new Date(this.start.getTime() + TimeUnit.MINUTES.toMillis(10 * i));
+                measurements.add(new ClimateMeasurement(new Reading(time), sensor, time, 10.0 + 5 * Math.sin(i / 20.0) + s, 60.0 + 10 * Math.cos(i / 30.0), 5.0));
+            }
+            this.details.put(sensor, measurements);
+        }
+        this.historyStart = new Date(this.end.getTime() - TimeUnit.DAYS.toMillis(365));
+        this.historySensor = this.details.keySet().iterator().next();
+        this.history = new ArrayList<>();
+        for(int i = 0; i < 365; i++) {
+            final var day = new Date(this.end.getTime() - TimeUnit.DAYS.toMillis(365 - i));
+            final var temperature = 10.0 + 12 * Math.sin(i / 58.0);
+            this.history.add(createBoundaries(day, temperature));
+        }
+        System.out.printf("%n%s: 24 hour chart %d bytes, 365 day chart %d bytes%n", this.generatorName,
+                create24HourChart().length, create365DayTemperatureChart().length);
+    }
+
+    @Benchmark
+    public byte[] create24HourChart() {
+        return this.generator.create24HourChart(this.start, this.end, this.details).block();
+    }
+
+    @Benchmark
+    public byte[] create365DayTemperatureChart() {
+        return this.generator.create365DayTemperatureChart(this.historyStart, this.end, this.history, this.historySensor).block();
+    }
+
+    private ClimateMeasurementBoundaries createBoundaries(Date day, double temperature) {
+        return new ClimateMeasurementBoundaries() {
+            @Override
+            public Double getMinimumTemperature() {
+                return temperature - 4;
+            }
+            @Override
+            public Double getMaximumTemperature() {
+                return temperature + 4;
+            }
+            @Override
+            public Double getMinimumHumidity() {
+                return 45.0;
+            }
+            @Override
+            public Double getMaximumHumidity() {
+                return 75.0;
+            }
+            @Override
+            public Double getMinimumVaporAmount() {
+                return 4.0;
+            }
+            @Override
+            public Double getMaximumVaporAmount() {
+                return 8.0;
+            }
+            @Override
+            public Long getSensorId() {
+                return historySensor.getId();
+            }
+            @Override
+            public Date getDay() {
+                return day;
+            }
+        };
+    }
+}
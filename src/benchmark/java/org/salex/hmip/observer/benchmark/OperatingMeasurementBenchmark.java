@@ -0,0 +1,54 @@
+package org.salex.hmip.observer.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.NativeOperatingMeasurementService;
+import org.salex.hmip.observer.service.OperatingMeasurementService;
+import org.salex.hmip.observer.service.RaspberryOperatingMeasurementService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the process based measurement of operating values with the native one reading <code>/sys</code>
+ * and <code>/proc</code>. Has to be run on the Raspberry Pi, because it requires <code>vcgencmd</code> and a
+ * german locale for the process based measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OperatingMeasurementBenchmark {
+    @Param("/usr/bin/vcgencmd")
+    private String cpuMeasureScript;
+
+    private OperatingMeasurementService raspberryService;
+
+    private OperatingMeasurementService nativeService;
+
+    private OperatingMeasurementService nativeServiceWithoutVoltage;
+
+    @Setup
+    public void setup() {
+        this.raspberryService = new RaspberryOperatingMeasurementService(this.cpuMeasureScript, BlockingExecutor.immediate());
+        this.nativeService = new NativeOperatingMeasurementService(this.cpuMeasureScript, BlockingExecutor.immediate());
+        this.nativeServiceWithoutVoltage = new NativeOperatingMeasurementService(null, BlockingExecutor.immediate());
+    }
+
+    @Benchmark
+    public Reading measureByProcesses() {
+        return this.raspberryService.measureOperatingValues(new Reading()).block();
+    }
+
+    @Benchmark
+    public Reading measureNative() {
+        return this.nativeService.measureOperatingValues(new Reading()).block();
+    }
+
+    @Benchmark
+    public Reading measureNativeWithoutVoltage() {
+        return this.nativeServiceWithoutVoltage.measureOperatingValues(new Reading()).block();
+    }
+}
@@ -21,6 +21,7 @@ public class ObserverApplication {
 
     public static void main(String[] args) {
         System.setProperty("derby.stream.error.file", "logs/derby.log");
+        System.setProperty("derby.system.jmx", "true");
         var app = new SpringApplication(ObserverApplication.class);
         app.addListeners(new ApplicationPidFileWriter());
         app.run(args);
@@ -1,5 +1,6 @@
 package org.salex.hmip.observer;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.salex.hmip.client.HmIPClient;
 import org.salex.hmip.client.HmIPConfiguration;
 import org.salex.hmip.client.HmIPProperties;
@@ -14,14 +15,21 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.result.view.freemarker.FreeMarkerConfigurer;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class ObserverConfiguration {
@@ -36,9 +44,19 @@ public class ObserverConfiguration {
                 .block();
     }
 
+    @Bean(destroyMethod = "dispose")
+    BlockingExecutor createBlockingExecutor(@Value("${org.salex.execution.mode:IMMEDIATE}") BlockingExecutor.Mode mode) {
+        return BlockingExecutor.create(mode);
+    }
+
+    @Bean(destroyMethod = "complete")
+    ReadingFeed createReadingFeed(@Value("${org.salex.feed.replay:16}") int replay, @Value("${org.salex.feed.buffer:64}") int bufferSize, MeterRegistry registry) {
+        return new ReadingFeed(replay, bufferSize, registry);
+    }
+
     @Bean
-    ObserverDatabase createDatabase(SensorRepository sensorRepository, ReadingRepository readingRepository, ClimateMeasurementRepository climateMeasurementRepository) {
-        return new JpaObserverDatabase(sensorRepository, readingRepository, climateMeasurementRepository);
+    ObserverDatabase createDatabase(SensorRepository sensorRepository, ReadingRepository readingRepository, ClimateMeasurementRepository climateMeasurementRepository, ReadingFeed readingFeed) {
+        return new JpaObserverDatabase(sensorRepository, readingRepository, climateMeasurementRepository, readingFeed);
     }
 
     @Bean
@@ -47,9 +65,26 @@ public class ObserverConfiguration {
     }
 
     @Bean
+    @ConditionalOnProperty("org.salex.raspberry.sampling.interval")
+    SampledOperatingMeasurementService createSampledOperatingMeasurementService(
+            @Value("${org.salex.raspberry.script.cpu:}") String cpuMeasureScript,
+            @Value("${org.salex.raspberry.sampling.capacity:256}") int capacity,
+            BlockingExecutor blockingExecutor) {
+        return new SampledOperatingMeasurementService(new NativeOperatingMeasurementService(cpuMeasureScript, blockingExecutor), capacity, blockingExecutor);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "org.salex.raspberry.collector", havingValue = "native")
+    OperatingMeasurementService createNativeOperatingMeasurementService(@Value("${org.salex.raspberry.script.cpu:}") String cpuMeasureScript, BlockingExecutor blockingExecutor) {
+        return new NativeOperatingMeasurementService(cpuMeasureScript, blockingExecutor);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
     @ConditionalOnProperty("org.salex.raspberry.script.cpu")
-    OperatingMeasurementService createRaspberryOperatingMeasurementService(@Value("${org.salex.raspberry.script.cpu}") String cpuMeasureScript) {
-        return new RaspberryOperatingMeasurementService(cpuMeasureScript);
+    OperatingMeasurementService createRaspberryOperatingMeasurementService(@Value("${org.salex.raspberry.script.cpu}") String cpuMeasureScript, BlockingExecutor blockingExecutor) {
+        return new RaspberryOperatingMeasurementService(cpuMeasureScript, blockingExecutor);
     }
 
     @Bean
@@ -59,20 +94,39 @@ public class ObserverConfiguration {
         return Mono::just;
     }
 
+    @Bean
+    RuntimeMeasurementService createJvmRuntimeMeasurementService() {
+        return new JvmRuntimeMeasurementService();
+    }
+
     @Bean
     @ConditionalOnProperty("org.salex.blog.url")
     BlogPublishService createWordPressPublishService(
             @Value("${org.salex.blog.url}") String url,
             @Value("${org.salex.blog.username}") String username,
             @Value("${org.salex.blog.password}") String password,
+            @Value("${org.salex.blog.mediaCache:16}") int mediaCacheCapacity,
+            @Value("${org.salex.blog.connections:4}") int connections,
+            @Value("${org.salex.blog.connectionIdleTime:PT1M}") Duration connectionIdleTime,
             ChartGenerator chartGenerator,
-            ContentGenerator contentGenerator) {
+            ContentGenerator contentGenerator,
+            PublishedPostRepository publishedPostRepository,
+            PublishedMediaRepository publishedMediaRepository,
+            BlockingExecutor blockingExecutor,
+            Scheduler chartRenderScheduler,
+            MeterRegistry registry) {
         final var basicAuth = HttpHeaders.encodeBasicAuth(username, password, null);
-        final var client = WebClient.builder().baseUrl(url).defaultHeaders(headers -> {
+        // The charts are uploaded concurrently, each on a connection of the pool kept alive between the uploads
+        final var connectionProvider = ConnectionProvider.builder("blog")
+                .maxConnections(connections)
+                .maxIdleTime(connectionIdleTime)
+                .build();
+        final var httpClient = HttpClient.create(connectionProvider).keepAlive(true);
+        final var client = WebClient.builder().baseUrl(url).clientConnector(new ReactorClientHttpConnector(httpClient)).defaultHeaders(headers -> {
             headers.setBasicAuth(basicAuth);
             headers.setContentType(MediaType.APPLICATION_JSON);
         }).build();
-        return new WordPressPublishService(client, contentGenerator, chartGenerator);
+        return new WordPressPublishService(client, contentGenerator, chartGenerator, mediaCacheCapacity, publishedPostRepository, new MediaIndex(publishedMediaRepository, blockingExecutor), blockingExecutor, chartRenderScheduler, registry);
     }
 
     @Bean
@@ -99,8 +153,21 @@ public class ObserverConfiguration {
 
     @Bean
     @ConditionalOnProperty("org.salex.mail.climateAlertAddresses")
-    MailPublishService createMailPublishService(ContentGenerator contentGenerator, JavaMailSender mailSender, @Value("${org.salex.mail.climateAlertAddresses}") List<String> alarmMailTargets) {
-        return new DefaultMailPublishService(contentGenerator, mailSender, alarmMailTargets);
+    MailOutbox createMailOutbox(
+            JavaMailSender mailSender,
+            @Value("${org.salex.mail.climateAlertAddresses}") List<String> alarmMailTargets,
+            @Value("${org.salex.mail.outbox.delay:PT1M}") Duration delay,
+            @Value("${org.salex.mail.outbox.backoff:PT1M}") Duration backoff,
+            @Value("${org.salex.mail.outbox.attempts:10}") int maximumAttempts,
+            OutboxMailRepository outboxMailRepository,
+            MeterRegistry registry) {
+        return new MailOutbox(mailSender, alarmMailTargets, outboxMailRepository, delay, backoff, maximumAttempts, registry);
+    }
+
+    @Bean
+    @ConditionalOnProperty("org.salex.mail.climateAlertAddresses")
+    MailPublishService createMailPublishService(ContentGenerator contentGenerator, MailOutbox mailOutbox, ChartGenerator chartGenerator, ObserverDatabase database, BlockingExecutor blockingExecutor) {
+        return new DefaultMailPublishService(contentGenerator, mailOutbox, chartGenerator, database, blockingExecutor);
     }
 
     @Bean
@@ -119,9 +186,65 @@ public class ObserverConfiguration {
         };
     }
 
+    @Bean(destroyMethod = "flush")
+    AlertJournal createAlertJournal(AlertJournalRepository alertJournalRepository, OperatingMeasurementRepository operatingMeasurementRepository, RuntimeMeasurementRepository runtimeMeasurementRepository, ClimateMeasurementRepository climateMeasurementRepository) {
+        return new JpaAlertJournal(alertJournalRepository, operatingMeasurementRepository, runtimeMeasurementRepository, climateMeasurementRepository);
+    }
+
+    @Bean
+    ClimateRuleEngine createClimateRuleEngine(
+            @Value("${org.salex.climate.rules:temperature < 3.0,humidity < 10.0,humidity > 90.0}") List<String> rules,
+            @Value("${org.salex.alert.duration:PT0S}") Duration minimumDuration,
+            @Value("${org.salex.alert.notifications.capacity:5}") int notificationCapacity,
+            @Value("${org.salex.alert.notifications.refill:PT1H}") Duration notificationRefill,
+            MailPublishService mailPublishService,
+            AlertJournal alertJournal,
+            ObserverDatabase database) {
+        final var climateRuleEngine = new ClimateRuleEngine(
+                rules.stream().map(ClimateRule::parse).toList(),
+                minimumDuration,
+                new TokenBucket(notificationCapacity, notificationRefill),
+                mailPublishService,
+                alertJournal);
+        database.getCommittedReadings("climate-rules", ReadingFeed.Overflow.DROP_OLDEST)
+                .concatMap(reading -> climateRuleEngine.evaluate(reading)
+                        .onErrorResume(e -> {
+                            LOG.error("Evaluating climate rules failed: " + e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        return climateRuleEngine;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    Scheduler createChartRenderScheduler(@Value("${org.salex.chart.parallelism:0}") int parallelism) {
+        final var threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return Schedulers.newParallel("chart-render", threads, true);
+    }
+
     @Bean
-    ChartGenerator createJFreeChartGenerator() {
-        return new JFreeChartGenerator();
+    ChartGenerator createChartGenerator(
+            @Value("${org.salex.chart.generator:jfree}") String generator,
+            @Value("${org.salex.chart.cache:8}") int cacheCapacity,
+            @Value("${org.salex.chart.png.indexed:true}") boolean indexed,
+            @Value("${org.salex.chart.png.compression:9}") int compressionLevel,
+            @Value("${org.salex.chart.png.filter:NONE}") IndexedPngEncoder.Filter filter,
+            Scheduler chartRenderScheduler,
+            MeterRegistry registry) {
+        final ChartGenerator delegate = switch(generator) {
+            case "jfree" -> new JFreeChartGenerator(indexed ? new IndexedPngEncoder(compressionLevel, filter) : null, registry);
+            case "svg" -> new SvgChartGenerator();
+            default -> throw new IllegalArgumentException("Unknown chart generator '" + generator + "', use 'jfree' or 'svg'");
+        };
+        LOG.info("Charts are generated by " + delegate.getClass().getSimpleName());
+        final var warmUpStart = System.nanoTime();
+        delegate.warmUp()
+                .subscribeOn(chartRenderScheduler)
+                .subscribe(
+                        null,
+                        e -> LOG.warn("Warming up the chart generator failed: " + e.getMessage()),
+                        () -> LOG.info(String.format("Chart generator warmed up in %d ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - warmUpStart))));
+        return new CachingChartGenerator(delegate, cacheCapacity, registry);
     }
 
     @Bean
@@ -138,7 +261,65 @@ public class ObserverConfiguration {
     }
 
     @Bean
-    public OperatingAlertService createOperatingAlertService() {
-        return new DefaultOperatingAlertService();
+    public OperatingAlertService createOperatingAlertService(
+            @Value("${org.salex.alert.duration:PT0S}") Duration minimumDuration,
+            @Value("${org.salex.alert.events.capacity:256}") int capacity,
+            @Value("${org.salex.alert.events.overflow:DROP_OLDEST}") EventBuffer.Overflow overflow,
+            AlertJournal alertJournal,
+            ObserverDatabase database) {
+        final var operatingAlertService = new DefaultOperatingAlertService(minimumDuration, capacity, overflow, alertJournal);
+        database.getCommittedReadings("operating-alert", ReadingFeed.Overflow.DROP_OLDEST)
+                .concatMap(reading -> Mono.fromRunnable(() -> operatingAlertService.checkReading(reading))
+                        .onErrorResume(e -> {
+                            operatingAlertService.signal(e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        return operatingAlertService;
+    }
+
+    @Bean
+    ClimateAnomalyDetector createClimateAnomalyDetector(
+            @Value("${org.salex.anomaly.alpha:0.1}") double alpha,
+            @Value("${org.salex.anomaly.threshold:4.0}") double threshold,
+            @Value("${org.salex.anomaly.slack:0.5}") double slack,
+            @Value("${org.salex.anomaly.drift:8.0}") double driftThreshold,
+            @Value("${org.salex.anomaly.warmup:36}") int warmup,
+            @Value("${org.salex.anomaly.deviation:0.2}") double minimumDeviation,
+            AnomalyDetectorStateRepository anomalyDetectorStateRepository,
+            OperatingAlertService operatingAlertService,
+            BlockingExecutor blockingExecutor,
+            ObserverDatabase database) {
+        final var climateAnomalyDetector = new ClimateAnomalyDetector(
+                new ClimateAnomalyDetector.Parameters(alpha, threshold, slack, driftThreshold, warmup, minimumDeviation),
+                anomalyDetectorStateRepository,
+                operatingAlertService,
+                blockingExecutor);
+        database.getCommittedReadings("climate-anomalies", ReadingFeed.Overflow.DROP_OLDEST)
+                .concatMap(reading -> climateAnomalyDetector.check(reading)
+                        .onErrorResume(e -> {
+                            LOG.error("Detecting climate anomalies failed: " + e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        return climateAnomalyDetector;
+    }
+
+    @Bean
+    ClimateForecast createClimateForecast(
+            @Value("${org.salex.forecast.window:12}") int window,
+            @Value("${org.salex.forecast.horizon:PT3H}") Duration horizon,
+            ClimateRuleEngine climateRuleEngine,
+            OperatingAlertService operatingAlertService,
+            ObserverDatabase database) {
+        final var climateForecast = new ClimateForecast(climateRuleEngine.getRules(), window, horizon, operatingAlertService);
+        database.getCommittedReadings("climate-forecast", ReadingFeed.Overflow.DROP_OLDEST)
+                .concatMap(reading -> Mono.fromRunnable(() -> climateForecast.check(reading))
+                        .onErrorResume(e -> {
+                            LOG.error("Forecasting climate rules failed: " + e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        return climateForecast;
     }
 }
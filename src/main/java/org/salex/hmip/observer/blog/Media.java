@@ -52,6 +52,7 @@ public class Media {
 	
 	private final long id;
 	private Details details;
+	private String sourceUrl;
 	
 	@JsonCreator
 	public Media(@JsonProperty("id") long id) {
@@ -73,4 +74,14 @@ public class Media {
 		this.details = details;
 	}
 
+	@JsonGetter("source_url")
+	public String getSourceUrl() {
+		return sourceUrl;
+	}
+
+	@JsonSetter("source_url")
+	public void setSourceUrl(String sourceUrl) {
+		this.sourceUrl = sourceUrl;
+	}
+
 }
@@ -2,6 +2,10 @@ package org.salex.hmip.observer.blog;
 
 import com.fasterxml.jackson.annotation.*;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Post {
 	@JsonIgnoreProperties(ignoreUnknown = true)
@@ -33,6 +37,7 @@ public class Post {
 	private final long id;
 	private String content;
 	private Meta meta;
+	private Date modified;
 
 	@JsonCreator
 	public Post(@JsonProperty("id") long id) {
@@ -68,5 +73,22 @@ public class Post {
 		this.meta = meta;
 	}
 
+	/**
+	 * Time of the last modification, which is only read, as WordPress doesn't accept it.
+	 */
+	@JsonIgnore
+	public Date getModified() {
+		return modified;
+	}
+
+	public void setModified(Date modified) {
+		this.modified = modified;
+	}
+
+	@JsonSetter("modified_gmt")
+	public void setModified(String modified) {
+		this.modified = modified != null ? Date.from(LocalDateTime.parse(modified).toInstant(ZoneOffset.UTC)) : null;
+	}
+
 	
 }
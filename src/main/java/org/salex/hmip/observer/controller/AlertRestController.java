@@ -0,0 +1,45 @@
+package org.salex.hmip.observer.controller;
+
+import org.salex.hmip.observer.data.AlertJournalEntry;
+import org.salex.hmip.observer.data.ObserverDatabase;
+import org.salex.hmip.observer.service.AlertJournal;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+public class AlertRestController {
+    private final AlertJournal alertJournal;
+
+    private final ObserverDatabase database;
+
+    private final BlockingExecutor blockingExecutor;
+
+    public AlertRestController(AlertJournal alertJournal, ObserverDatabase database, BlockingExecutor blockingExecutor) {
+        this.alertJournal = alertJournal;
+        this.database = database;
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    @GetMapping("/alerts/recent")
+    public Mono<List<AlertJournalEntry>> getRecentAlerts(@RequestParam(name = "hours", defaultValue = "24") int hours, @RequestParam(name = "sensor", required = false) Long sensorId) {
+        return this.blockingExecutor.call(() -> {
+            final var end = new Date();
+            final var start = new Date(end.getTime() - TimeUnit.HOURS.toMillis(hours));
+            if(sensorId == null) {
+                return this.alertJournal.getEntries(start, end);
+            }
+            return this.database.getSensors().stream()
+                    .filter(sensor -> sensor.getId().equals(sensorId))
+                    .findFirst()
+                    .map(sensor -> this.alertJournal.getEntries(start, end, sensor))
+                    .orElse(List.of());
+        });
+    }
+}
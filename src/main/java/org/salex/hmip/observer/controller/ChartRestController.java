@@ -0,0 +1,162 @@
+package org.salex.hmip.observer.controller;
+
+import org.salex.hmip.observer.data.ObserverDatabase;
+import org.salex.hmip.observer.data.ReadingFeed;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.ChartGenerator;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the charts of the blog on demand. The window of each chart ends with the latest reading, so a chart only
+ * changes with a new reading. Its time is the <code>Last-Modified</code> date and part of the strong ETag of the
+ * chart. The time is kept up to date by the committed readings, so conditional requests are answered with 304
+ * without accessing the database or rendering the chart. The latest chart of each name is kept with the time of its
+ * reading, so unconditional requests don't access the database either until there is a new reading. Unknown
+ * sensors are answered with 404 before checking the conditions.
+ */
+@RestController
+public class ChartRestController {
+    private record CachedChart(Date latest, Mono<byte[]> chart) {
+    }
+
+    private final ObserverDatabase database;
+
+    private final ChartGenerator chartGenerator;
+
+    private final BlockingExecutor blockingExecutor;
+
+    private final AtomicReference<Date> latestReadingTime = new AtomicReference<>();
+
+    private final AtomicReference<Map<Long, Sensor>> sensors = new AtomicReference<>();
+
+    private final Map<String, CachedChart> charts = new ConcurrentHashMap<>();
+
+    public ChartRestController(ObserverDatabase database, ChartGenerator chartGenerator, BlockingExecutor blockingExecutor) {
+        this.database = database;
+        this.chartGenerator = chartGenerator;
+        this.blockingExecutor = blockingExecutor;
+        database.getCommittedReadings("chart-rest", ReadingFeed.Overflow.LATEST)
+                .subscribe(reading -> updateLatestReadingTime(reading.getReadingTime()));
+    }
+
+    /**
+     * Returns the chart of the climate measurements of all sensors during the 24 hours before the latest reading.
+     */
+    @GetMapping("/climate/chart/24h")
+    public Mono<ResponseEntity<byte[]>> get24HourChart(ServerWebExchange exchange) {
+        return getChart(exchange, "24h", end -> {
+            final var start = new Date(end.getTime() - TimeUnit.HOURS.toMillis(24));
+            return this.blockingExecutor.call(() -> this.database.getClimateMeasurements(start, end))
+                    .flatMap(data -> this.chartGenerator.create24HourChart(start, end, data));
+        });
+    }
+
+    /**
+     * Returns the chart of the daily temperature or humidity range of the sensor during the 365 days before the
+     * latest reading.
+     */
+    @GetMapping("/climate/chart/365d/{sensor}/{kind:temperature|humidity}")
+    public Mono<ResponseEntity<byte[]>> get365DayChart(@PathVariable("sensor") long sensorId, @PathVariable("kind") String kind, ServerWebExchange exchange) {
+        return getSensor(sensorId)
+                .flatMap(sensor -> getChart(exchange, "365d-" + kind + "-" + sensorId, end -> {
+                    final var start = new Date(end.getTime() - TimeUnit.DAYS.toMillis(365));
+                    return this.blockingExecutor.call(() -> this.database.getClimateMeasurementBoundaries(start, end, sensor))
+                            .flatMap(boundaries -> kind.equals("temperature")
+                                    ? this.chartGenerator.create365DayTemperatureChart(start, end, boundaries, sensor)
+                                    : this.chartGenerator.create365DayHumidityChart(start, end, boundaries, sensor));
+                }))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    private Mono<ResponseEntity<byte[]>> getChart(ServerWebExchange exchange, String name, Function<Date, Mono<byte[]>> render) {
+        return getLatestReadingTime()
+                .flatMap(latest -> {
+                    // The chart is defined by its name and the latest reading, so this is a strong validator
+                    final var etag = name + "-" + latest.getTime() + "." + this.chartGenerator.getFileExtension();
+                    if(exchange.checkNotModified(etag, latest.toInstant())) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(etag)
+                                .lastModified(latest.getTime())
+                                .cacheControl(CacheControl.noCache())
+                                .<byte[]>build());
+                    }
+                    return cached(name, latest, render)
+                            .map(chart -> ResponseEntity.ok()
+                                    .contentType(MediaType.parseMediaType(this.chartGenerator.getContentType()))
+                                    .eTag(etag)
+                                    .lastModified(latest.getTime())
+                                    .cacheControl(CacheControl.noCache())
+                                    .body(chart));
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Returns the chart of the name rendered for the latest reading or renders it. Concurrent requests share a
+     * single rendering. A failed rendering isn't kept.
+     */
+    private Mono<byte[]> cached(String name, Date latest, Function<Date, Mono<byte[]>> render) {
+        final var cached = this.charts.compute(name, (key, current) -> {
+            if(current != null && current.latest().equals(latest)) {
+                return current;
+            }
+            final var rendered = new AtomicReference<CachedChart>();
+            rendered.set(new CachedChart(latest, Mono.defer(() -> render.apply(latest))
+                    .doOnError(e -> this.charts.remove(name, rendered.get()))
+                    .cache()));
+            return rendered.get();
+        });
+        return cached.chart();
+    }
+
+    /**
+     * Returns the sensor with the id. The sensors are created with the database, so they are only read once.
+     */
+    private Mono<Sensor> getSensor(long sensorId) {
+        final var known = this.sensors.get();
+        if(known != null) {
+            return Mono.justOrEmpty(known.get(sensorId));
+        }
+        return this.blockingExecutor.call(() -> this.database.getSensors().stream()
+                        .collect(Collectors.toUnmodifiableMap(Sensor::getId, Function.identity())))
+                .doOnNext(this.sensors::set)
+                .flatMap(loaded -> Mono.justOrEmpty(loaded.get(sensorId)));
+    }
+
+    /**
+     * Returns the time of the latest reading. It is only read from the database until the first reading has been
+     * committed or read.
+     */
+    private Mono<Date> getLatestReadingTime() {
+        final var latest = this.latestReadingTime.get();
+        if(latest != null) {
+            return Mono.just(latest);
+        }
+        return this.blockingExecutor.call(this.database::getLatestReadingTime)
+                .flatMap(Mono::justOrEmpty)
+                .map(this::updateLatestReadingTime);
+    }
+
+    private Date updateLatestReadingTime(Date readingTime) {
+        // The time is normalized, as the database may return a subclass with a different string representation
+        final var time = new Date(readingTime.getTime());
+        return this.latestReadingTime.accumulateAndGet(time, (current, update) -> current == null || update.after(current) ? update : current);
+    }
+}
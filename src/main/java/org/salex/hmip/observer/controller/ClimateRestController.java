@@ -2,24 +2,73 @@ package org.salex.hmip.observer.controller;
 
 import org.salex.hmip.observer.data.ClimateMeasurement;
 import org.salex.hmip.observer.data.ObserverDatabase;
+import org.salex.hmip.observer.data.ReadingFeed;
 import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.LargestTriangleThreeBuckets;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 public class ClimateRestController {
+    /**
+     * The points are shared by the temperature and the humidity, each of which needs the minimum budget.
+     */
+    private static final int MINIMUM_POINTS = 2 * LargestTriangleThreeBuckets.MINIMUM_BUDGET;
+
     private final ObserverDatabase database;
 
-    public ClimateRestController(ObserverDatabase database) {
+    private final BlockingExecutor blockingExecutor;
+
+    public ClimateRestController(ObserverDatabase database, BlockingExecutor blockingExecutor) {
         this.database = database;
+        this.blockingExecutor = blockingExecutor;
     }
 
+    /**
+     * Returns the climate measurements of the past hours, downsampled to the given number of points per sensor, if
+     * any, e.g. the width of the chart of the client. Fewer than 6 points are rejected, as they can't be downsampled.
+     */
     @GetMapping("/climate/past")
-    public Map<Sensor, List<ClimateMeasurement>> getPastClimateMeasurements(@RequestParam(name = "hours", defaultValue = "1") int hours) {
-        return this.database.getClimateMeasurements(hours);
+    public Mono<Map<Sensor, List<ClimateMeasurement>>> getPastClimateMeasurements(@RequestParam(name = "hours", defaultValue = "1") int hours, @RequestParam(name = "points", required = false) Integer points) {
+        if(points != null && points < MINIMUM_POINTS) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least " + MINIMUM_POINTS + " points required: " + points));
+        }
+        return this.blockingExecutor.call(() -> this.database.getClimateMeasurements(hours))
+                .map(data -> points == null ? data : downsample(data, points));
+    }
+
+    private Map<Sensor, List<ClimateMeasurement>> downsample(Map<Sensor, List<ClimateMeasurement>> data, int points) {
+        final var result = new HashMap<Sensor, List<ClimateMeasurement>>();
+        data.forEach((sensor, measurements) -> {
+            final var sorted = measurements.stream()
+                    .sorted(Comparator.comparing(ClimateMeasurement::getMeasuringTime))
+                    .toList();
+            result.put(sensor, LargestTriangleThreeBuckets.downsample(sorted, points,
+                    measurement -> measurement.getMeasuringTime().getTime(),
+                    measurement -> measurement.getTemperature() != null ? measurement.getTemperature() : Double.NaN,
+                    measurement -> measurement.getHumidity() != null ? measurement.getHumidity() : Double.NaN));
+        });
+        return result;
+    }
+
+    @GetMapping(path = "/climate/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ClimateMeasurement> getLiveClimateMeasurements() {
+        return this.database.getCommittedReadings("climate-live", ReadingFeed.Overflow.LATEST)
+                .flatMapIterable(reading -> reading.getMeasurements().stream()
+                        .filter(m -> m instanceof ClimateMeasurement)
+                        .map(ClimateMeasurement.class::cast)
+                        .toList());
     }
 }
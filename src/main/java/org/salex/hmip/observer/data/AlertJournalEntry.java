@@ -0,0 +1,181 @@
+package org.salex.hmip.observer.data;
+
+import javax.persistence.*;
+import java.util.Date;
+
+@Entity
+@Table(name = "alert_journal", indexes = {
+        @Index(name = "alert_journal_time", columnList = "event_time"),
+        @Index(name = "alert_journal_sensor_time", columnList = "sensor, event_time"),
+        @Index(name = "alert_journal_delivered", columnList = "delivered, event_time")
+})
+public class AlertJournalEntry {
+    public enum Kind {
+        ERROR, OPERATING_EXCEEDANCE, RUNTIME_EXCEEDANCE, CLIMATE_FIRING, CLIMATE_RESOLVED, ANOMALY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 32)
+    private Kind kind;
+
+    @Column(name = "event_time", nullable = false)
+    private Date eventTime;
+
+    @Column(name = "last_time", nullable = false)
+    private Date lastTime;
+
+    @Column(name = "occurrences", nullable = false)
+    private long count;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "sensor")
+    private Sensor sensor;
+
+    @Column(name = "measurement")
+    private Long measurementId;
+
+    @Column(name = "message", length = 1024)
+    private String message;
+
+    @Column(name = "delivered", nullable = false)
+    private boolean delivered;
+
+    @Column(name = "failed")
+    private Boolean failed;
+
+    @Column(name = "anomaly_value", length = 32)
+    private String anomalyValue;
+
+    @Column(name = "anomaly_kind", length = 32)
+    private String anomalyKind;
+
+    @Column(name = "expected")
+    private Double expected;
+
+    @Column(name = "deviation")
+    private Double deviation;
+
+    @Column(name = "score")
+    private Double score;
+
+    protected AlertJournalEntry() {}
+
+    public AlertJournalEntry(Kind kind, Date eventTime, Sensor sensor, Long measurementId, String message, boolean delivered) {
+        this.kind = kind;
+        this.eventTime = eventTime;
+        this.lastTime = eventTime;
+        this.count = 1;
+        this.sensor = sensor;
+        this.measurementId = measurementId;
+        this.message = message != null && message.length() > 1024 ? message.substring(0, 1024) : message;
+        this.delivered = delivered;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Date getEventTime() {
+        return eventTime;
+    }
+
+    public Date getLastTime() {
+        return lastTime;
+    }
+
+    public void setLastTime(Date lastTime) {
+        this.lastTime = lastTime;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    public Long getMeasurementId() {
+        return measurementId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isDelivered() {
+        return delivered;
+    }
+
+    public void setDelivered(boolean delivered) {
+        this.delivered = delivered;
+    }
+
+    /**
+     * Returns <code>true</code>, if the event has been given up without being delivered, e.g. because it was
+     * dropped from the full event buffer.
+     */
+    public boolean isFailed() {
+        return Boolean.TRUE.equals(failed);
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * Returns the climate value of an anomaly, the name of <code>ClimateRule.Value</code>.
+     */
+    public String getAnomalyValue() {
+        return anomalyValue;
+    }
+
+    /**
+     * Returns the kind of an anomaly, the name of <code>OperatingAlertService.Anomaly.Kind</code>.
+     */
+    public String getAnomalyKind() {
+        return anomalyKind;
+    }
+
+    public Double getExpected() {
+        return expected;
+    }
+
+    public Double getDeviation() {
+        return deviation;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setAnomaly(String value, String kind, double expected, double deviation, double score) {
+        this.anomalyValue = value;
+        this.anomalyKind = kind;
+        this.expected = expected;
+        this.deviation = deviation;
+        this.score = score;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertJournalEntry{" +
+                "kind=" + kind +
+                ", eventTime=" + eventTime +
+                ", count=" + count +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
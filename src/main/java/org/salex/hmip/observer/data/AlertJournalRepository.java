@@ -0,0 +1,23 @@
+package org.salex.hmip.observer.data;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface AlertJournalRepository extends JpaRepository<AlertJournalEntry, Long> {
+    List<AlertJournalEntry> findByEventTimeBetweenOrderByEventTimeDesc(Date startTime, Date endTime);
+    List<AlertJournalEntry> findByEventTimeBetweenAndSensorOrderByEventTimeDesc(Date startTime, Date endTime, Sensor sensor);
+
+    @Query("select e from AlertJournalEntry e where e.delivered = false and (e.failed is null or e.failed = false) and e.kind in :kinds order by e.eventTime desc")
+    List<AlertJournalEntry> findUndelivered(@Param("kinds") Collection<AlertJournalEntry.Kind> kinds, Pageable pageable);
+
+    @Modifying
+    @Query("update AlertJournalEntry e set e.failed = true where e.delivered = false and (e.failed is null or e.failed = false) and e.kind in :kinds and e.eventTime < :time")
+    int markFailedBefore(@Param("kinds") Collection<AlertJournalEntry.Kind> kinds, @Param("time") Date time);
+}
@@ -0,0 +1,109 @@
+package org.salex.hmip.observer.data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * Checkpoint of the state of an anomaly detector for a single value of a sensor.
+ */
+@Entity
+@Table(name = "anomaly_detector_states")
+public class AnomalyDetectorState {
+    @Id
+    @Column(name = "detector", length = 64)
+    private String key;
+
+    @Column(name = "samples", nullable = false)
+    private long count;
+
+    @Column(name = "mean", nullable = false)
+    private double mean;
+
+    @Column(name = "variance", nullable = false)
+    private double variance;
+
+    @Column(name = "cusum_high", nullable = false)
+    private double cusumHigh;
+
+    @Column(name = "cusum_low", nullable = false)
+    private double cusumLow;
+
+    @Column(name = "last_update")
+    private Date lastUpdate;
+
+    protected AnomalyDetectorState() {}
+
+    public AnomalyDetectorState(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Number of values the detector has seen.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    /**
+     * Exponentially weighted moving average of the values.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    /**
+     * Exponentially weighted moving variance of the values.
+     */
+    public double getVariance() {
+        return variance;
+    }
+
+    public void setVariance(double variance) {
+        this.variance = variance;
+    }
+
+    /**
+     * Cumulative sum of upward deviations in standard deviations.
+     */
+    public double getCusumHigh() {
+        return cusumHigh;
+    }
+
+    public void setCusumHigh(double cusumHigh) {
+        this.cusumHigh = cusumHigh;
+    }
+
+    /**
+     * Cumulative sum of downward deviations in standard deviations.
+     */
+    public double getCusumLow() {
+        return cusumLow;
+    }
+
+    public void setCusumLow(double cusumLow) {
+        this.cusumLow = cusumLow;
+    }
+
+    public Date getLastUpdate() {
+        return lastUpdate;
+    }
+
+    public void setLastUpdate(Date lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+}
@@ -21,4 +21,15 @@ public interface ClimateMeasurementRepository extends JpaRepository<ClimateMeasu
             nativeQuery = true
     )
     List<ClimateMeasurementBoundaries> findBoundariesByMeasuringTimeBetween(@Param("start_time") Date startTime, @Param("end_time") Date endTime);
+
+    @Query(
+            value = "select date(measuring_time) as day, sensor as sensorId, " +
+                    "max(temperature) as maximumTemperature, min(temperature) as minimumTemperature, " +
+                    "max(humidity) as maximumHumidity, min(humidity) as minimumHumidity, " +
+                    "max(vapor_amount) as maximumVaporAmount, min(vapor_amount) as minimumVaporAmount " +
+                    "from climate_measuerements where date(measuring_time) between :start_time and :end_time and sensor = :sensor " +
+                    "group by date(measuring_time), sensor",
+            nativeQuery = true
+    )
+    List<ClimateMeasurementBoundaries> findBoundariesByMeasuringTimeBetweenAndSensor(@Param("start_time") Date startTime, @Param("end_time") Date endTime, @Param("sensor") Long sensorId);
 }
@@ -4,6 +4,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
 
 import java.sql.*;
 import java.util.*;
@@ -19,10 +22,13 @@ public class JpaObserverDatabase implements ObserverDatabase {
 
     private final ClimateMeasurementRepository climateMeasurementRepository;
 
-    public JpaObserverDatabase(SensorRepository sensorRepository, ReadingRepository readingRepository, ClimateMeasurementRepository climateMeasurementRepository) {
+    private final ReadingFeed readingFeed;
+
+    public JpaObserverDatabase(SensorRepository sensorRepository, ReadingRepository readingRepository, ClimateMeasurementRepository climateMeasurementRepository, ReadingFeed readingFeed) {
         this.sensorRepository = sensorRepository;
         this.readingRepository = readingRepository;
         this.climateMeasurementRepository = climateMeasurementRepository;
+        this.readingFeed = readingFeed;
 
         if(this.getSensors().isEmpty()) {
             LOG.info("Initializing sensor data");
@@ -49,7 +55,34 @@ public class JpaObserverDatabase implements ObserverDatabase {
      */
     @Transactional
     public Reading addReading(Reading reading) {
-        return this.readingRepository.save(reading);
+        final var saved = this.readingRepository.save(reading);
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    readingFeed.publish(saved);
+                }
+            });
+        } else {
+            this.readingFeed.publish(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Subscribe to the readings added to the database. A reading is emitted after its transaction has been
+     * committed. The last readings are replayed on subscription.
+     */
+    public Flux<Reading> getCommittedReadings(String subscriber, ReadingFeed.Overflow overflow) {
+        return this.readingFeed.subscribe(subscriber, overflow);
+    }
+
+    /**
+     * Returns the time of the latest reading, if there is any.
+     */
+    @Transactional
+    public Optional<Date> getLatestReadingTime() {
+        return Optional.ofNullable(this.readingRepository.findLatestReadingTime());
     }
 
     /**
@@ -142,4 +175,13 @@ public class JpaObserverDatabase implements ObserverDatabase {
         }
         return result;
     }
+
+    /**
+     * Evaluates the climate data of the specified period and returns the maximum and minimum values per day
+     * for the given sensor.
+     */
+    @Transactional
+    public List<ClimateMeasurementBoundaries> getClimateMeasurementBoundaries(Date startTime, Date endTime, Sensor sensor) {
+        return this.climateMeasurementRepository.findBoundariesByMeasuringTimeBetweenAndSensor(startTime, endTime, sensor.getId());
+    }
 }
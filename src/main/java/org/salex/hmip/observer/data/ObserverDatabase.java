@@ -1,8 +1,11 @@
 package org.salex.hmip.observer.data;
 
+import reactor.core.publisher.Flux;
+
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface ObserverDatabase {
     /**
@@ -15,6 +18,17 @@ public interface ObserverDatabase {
      */
     Reading addReading(Reading reading);
 
+    /**
+     * Subscribe to the readings added to the database. A reading is emitted after its transaction has been
+     * committed. The last readings are replayed on subscription.
+     */
+    Flux<Reading> getCommittedReadings(String subscriber, ReadingFeed.Overflow overflow);
+
+    /**
+     * Returns the time of the latest reading, if there is any.
+     */
+    Optional<Date> getLatestReadingTime();
+
     /**
      * Retrieve all climate measurement data for the last specified hours.
      */
@@ -63,4 +77,10 @@ public interface ObserverDatabase {
      * for each sensor.
      */
     Map<Sensor, List<ClimateMeasurementBoundaries>> getClimateMeasurementBoundaries(Date startTime, Date endTime);
+
+    /**
+     * Evaluates the climate data of the specified period and returns the maximum and minimum values per day
+     * for the given sensor.
+     */
+    List<ClimateMeasurementBoundaries> getClimateMeasurementBoundaries(Date startTime, Date endTime, Sensor sensor);
 }
@@ -19,6 +19,27 @@ public class OperatingMeasurement extends Measurement {
     @Column(name="memory_usage")
     private Double memoryUsage;
 
+    @Column(name="sample_count")
+    private Integer sampleCount;
+
+    @Column(name="cpu_temperature_min")
+    private Double cpuTemperatureMinimum;
+
+    @Column(name="cpu_temperature_max")
+    private Double cpuTemperatureMaximum;
+
+    @Column(name="cpu_temperature_p95")
+    private Double cpuTemperaturePercentile95;
+
+    @Column(name="memory_usage_min")
+    private Double memoryUsageMinimum;
+
+    @Column(name="memory_usage_max")
+    private Double memoryUsageMaximum;
+
+    @Column(name="memory_usage_p95")
+    private Double memoryUsagePercentile95;
+
     protected OperatingMeasurement() {}
 
     public OperatingMeasurement(Reading reading, Double cpuTemperature, Double coreVoltage, Double diskUsage, Double memoryUsage) {
@@ -61,6 +82,62 @@ public class OperatingMeasurement extends Measurement {
         this.memoryUsage = memoryUsage;
     }
 
+    public Integer getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(Integer sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public Double getCpuTemperatureMinimum() {
+        return cpuTemperatureMinimum;
+    }
+
+    public void setCpuTemperatureMinimum(Double cpuTemperatureMinimum) {
+        this.cpuTemperatureMinimum = cpuTemperatureMinimum;
+    }
+
+    public Double getCpuTemperatureMaximum() {
+        return cpuTemperatureMaximum;
+    }
+
+    public void setCpuTemperatureMaximum(Double cpuTemperatureMaximum) {
+        this.cpuTemperatureMaximum = cpuTemperatureMaximum;
+    }
+
+    public Double getCpuTemperaturePercentile95() {
+        return cpuTemperaturePercentile95;
+    }
+
+    public void setCpuTemperaturePercentile95(Double cpuTemperaturePercentile95) {
+        this.cpuTemperaturePercentile95 = cpuTemperaturePercentile95;
+    }
+
+    public Double getMemoryUsageMinimum() {
+        return memoryUsageMinimum;
+    }
+
+    public void setMemoryUsageMinimum(Double memoryUsageMinimum) {
+        this.memoryUsageMinimum = memoryUsageMinimum;
+    }
+
+    public Double getMemoryUsageMaximum() {
+        return memoryUsageMaximum;
+    }
+
+    public void setMemoryUsageMaximum(Double memoryUsageMaximum) {
+        this.memoryUsageMaximum = memoryUsageMaximum;
+    }
+
+    public Double getMemoryUsagePercentile95() {
+        return memoryUsagePercentile95;
+    }
+
+    public void setMemoryUsagePercentile95(Double memoryUsagePercentile95) {
+        this.memoryUsagePercentile95 = memoryUsagePercentile95;
+    }
+
     @Override
     public String toString() {
         return "OperatingMeasurement{" +
@@ -68,6 +145,7 @@ public class OperatingMeasurement extends Measurement {
                 ", coreVoltage=" + coreVoltage +
                 ", diskUsage=" + diskUsage +
                 ", memoryUsage=" + memoryUsage +
+                ", sampleCount=" + sampleCount +
                 '}';
     }
 }
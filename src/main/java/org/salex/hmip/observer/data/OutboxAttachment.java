@@ -0,0 +1,57 @@
+package org.salex.hmip.observer.data;
+
+import javax.persistence.*;
+
+/**
+ * Inline part of a mail in the outbox, e.g. a chart referenced by its content id.
+ */
+@Entity
+@Table(name = "mail_outbox_attachments")
+public class OutboxAttachment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "mail", nullable = false)
+    private OutboxMail mail;
+
+    @Column(name = "content_id", nullable = false, length = 128)
+    private String contentId;
+
+    @Column(name = "content_type", nullable = false, length = 64)
+    private String contentType;
+
+    @Lob
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    protected OutboxAttachment() {}
+
+    public OutboxAttachment(OutboxMail mail, String contentId, String contentType, byte[] data) {
+        this.mail = mail;
+        this.contentId = contentId;
+        this.contentType = contentType;
+        this.data = data;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public OutboxMail getMail() {
+        return mail;
+    }
+
+    public String getContentId() {
+        return contentId;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,126 @@
+package org.salex.hmip.observer.data;
+
+import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Mail waiting in the outbox until it has been sent or has finally failed.
+ */
+@Entity
+@Table(name = "mail_outbox", indexes = {
+        @Index(name = "mail_outbox_due", columnList = "status, next_attempt")
+})
+public class OutboxMail {
+    public enum Status {
+        PENDING, SENT, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @Lob
+    @Column(name = "content", nullable = false)
+    private String content;
+
+    @Column(name = "created", nullable = false)
+    private Date created;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt", nullable = false)
+    private Date nextAttempt;
+
+    @Column(name = "sent")
+    private Date sent;
+
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    @OneToMany(mappedBy = "mail", fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<OutboxAttachment> attachments = new ArrayList<>();
+
+    protected OutboxMail() {}
+
+    public OutboxMail(String subject, String content, Date created, Date nextAttempt) {
+        this.subject = subject;
+        this.content = content;
+        this.created = created;
+        this.status = Status.PENDING;
+        this.nextAttempt = nextAttempt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextAttempt() {
+        return nextAttempt;
+    }
+
+    public void setNextAttempt(Date nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    public Date getSent() {
+        return sent;
+    }
+
+    public void setSent(Date sent) {
+        this.sent = sent;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError != null && lastError.length() > 1024 ? lastError.substring(0, 1024) : lastError;
+    }
+
+    public List<OutboxAttachment> getAttachments() {
+        return attachments;
+    }
+
+    public void addAttachment(String contentId, String contentType, byte[] data) {
+        this.attachments.add(new OutboxAttachment(this, contentId, contentType, data));
+    }
+}
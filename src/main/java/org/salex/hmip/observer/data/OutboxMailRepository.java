@@ -0,0 +1,13 @@
+package org.salex.hmip.observer.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface OutboxMailRepository extends JpaRepository<OutboxMail, Long> {
+    List<OutboxMail> findByStatusAndNextAttemptLessThanEqualOrderByCreated(OutboxMail.Status status, Date time);
+    long countByStatus(OutboxMail.Status status);
+    List<OutboxMail> findByStatusInAndCreatedLessThan(Collection<OutboxMail.Status> statuses, Date time);
+}
@@ -0,0 +1,94 @@
+package org.salex.hmip.observer.data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Media uploaded to the blog, addressed by the SHA-256 of its content, so identical images are uploaded once and
+ * shared by the posts referencing them.
+ */
+@Entity
+@Table(name = "published_media")
+public class PublishedMedia {
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "media_id", length = 32, nullable = false)
+    private String mediaId;
+
+    @Column(name = "full_url", length = 1024)
+    private String full;
+
+    @Column(name = "thumbnail_url", length = 1024)
+    private String thumbnail;
+
+    @Column(name = "thumbnail_width", nullable = false)
+    private int thumbnailWidth;
+
+    @Column(name = "thumbnail_height", nullable = false)
+    private int thumbnailHeight;
+
+    @Column(name = "post_references", nullable = false)
+    private int references;
+
+    protected PublishedMedia() {}
+
+    public PublishedMedia(String contentHash, String mediaId) {
+        this.contentHash = contentHash;
+        this.mediaId = mediaId;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getMediaId() {
+        return mediaId;
+    }
+
+    public String getFull() {
+        return full;
+    }
+
+    public void setFull(String full) {
+        this.full = full;
+    }
+
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(String thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    public int getThumbnailWidth() {
+        return thumbnailWidth;
+    }
+
+    public void setThumbnailWidth(int thumbnailWidth) {
+        this.thumbnailWidth = thumbnailWidth;
+    }
+
+    public int getThumbnailHeight() {
+        return thumbnailHeight;
+    }
+
+    public void setThumbnailHeight(int thumbnailHeight) {
+        this.thumbnailHeight = thumbnailHeight;
+    }
+
+    /**
+     * Number of posts referencing the media.
+     */
+    public int getReferences() {
+        return references;
+    }
+
+    public void setReferences(int references) {
+        this.references = references;
+    }
+}
@@ -0,0 +1,6 @@
+package org.salex.hmip.observer.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PublishedMediaRepository extends JpaRepository<PublishedMedia, String> {
+}
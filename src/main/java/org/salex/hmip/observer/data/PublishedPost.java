@@ -0,0 +1,113 @@
+package org.salex.hmip.observer.data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * Last state of a blog post published by the observer, so unchanged content isn't written again and the post
+ * doesn't have to be read before it is written.
+ */
+@Entity
+@Table(name = "published_posts")
+public class PublishedPost {
+    @Id
+    @Column(name = "post", length = 64)
+    private String key;
+
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+
+    @Column(name = "last_update")
+    private Date lastUpdate;
+
+    @Column(name = "meta_known", nullable = false)
+    private boolean metaKnown;
+
+    @Column(name = "has_meta", nullable = false)
+    private boolean hasMeta;
+
+    @Column(name = "referenced_images", length = 1024)
+    private String referencedImages;
+
+    @Column(name = "modified")
+    private Date modified;
+
+    protected PublishedPost() {}
+
+    public PublishedPost(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Type and id of the post, e.g. <code>pages/148</code>.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * SHA-256 of the content and the referenced images of the post.
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Date getLastUpdate() {
+        return lastUpdate;
+    }
+
+    public void setLastUpdate(Date lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+
+    /**
+     * Whether the meta of the post is known from its last update.
+     */
+    public boolean isMetaKnown() {
+        return metaKnown;
+    }
+
+    public void setMetaKnown(boolean metaKnown) {
+        this.metaKnown = metaKnown;
+    }
+
+    /**
+     * Whether the post has meta data at all, as not all post types have.
+     */
+    public boolean hasMeta() {
+        return hasMeta;
+    }
+
+    public void setHasMeta(boolean hasMeta) {
+        this.hasMeta = hasMeta;
+    }
+
+    /**
+     * Ids of the images referenced by the post, separated by semicolons.
+     */
+    public String getReferencedImages() {
+        return referencedImages;
+    }
+
+    public void setReferencedImages(String referencedImages) {
+        this.referencedImages = referencedImages;
+    }
+
+    /**
+     * Time of the last modification of the post as reported by the blog.
+     */
+    public Date getModified() {
+        return modified;
+    }
+
+    public void setModified(Date modified) {
+        this.modified = modified;
+    }
+}
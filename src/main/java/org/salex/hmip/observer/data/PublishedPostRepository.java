@@ -0,0 +1,6 @@
+package org.salex.hmip.observer.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PublishedPostRepository extends JpaRepository<PublishedPost, String> {
+}
@@ -0,0 +1,135 @@
+package org.salex.hmip.observer.data;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hot feed of the readings committed to the database. The last readings are replayed to new subscribers. Each
+ * subscriber chooses how readings are handled when it can't keep up, so a slow subscriber never holds back the
+ * others. The lag and the dropped readings are published as metrics per subscriber.
+ */
+public class ReadingFeed {
+    /**
+     * Handling of readings arriving while the buffer of a subscriber is full.
+     */
+    public enum Overflow {
+        /**
+         * Terminate the subscription with an error.
+         */
+        ERROR,
+
+        /**
+         * Drop the oldest buffered reading.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Drop the arriving reading.
+         */
+        DROP_LATEST,
+
+        /**
+         * Keep only the latest reading, regardless of the buffer size.
+         */
+        LATEST
+    }
+
+    private static class Change {
+        private final long sequence;
+        private final Reading reading;
+
+        private Change(long sequence, Reading reading) {
+            this.sequence = sequence;
+            this.reading = reading;
+        }
+    }
+
+    private final Sinks.Many<Change> sink;
+
+    private final int replay;
+
+    private final int bufferSize;
+
+    private final MeterRegistry registry;
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final Map<String, Set<AtomicLong>> delivered = new ConcurrentHashMap<>();
+
+    public ReadingFeed(int replay, int bufferSize, MeterRegistry registry) {
+        this.sink = Sinks.many().replay().limit(replay);
+        this.replay = replay;
+        this.bufferSize = bufferSize;
+        this.registry = registry;
+    }
+
+    /**
+     * Publishes a committed reading to all subscribers.
+     */
+    public synchronized void publish(Reading reading) {
+        this.sink.emitNext(new Change(this.published.incrementAndGet(), reading), Sinks.EmitFailureHandler.FAIL_FAST);
+    }
+
+    /**
+     * Subscribes to the committed readings, starting with the last replayed ones.
+     */
+    public Flux<Reading> subscribe(String subscriber, Overflow overflow) {
+        return Flux.defer(() -> {
+            final var position = new AtomicLong(Math.max(0, this.published.get() - this.replay));
+            final var positions = this.delivered.computeIfAbsent(subscriber, this::registerLag);
+            final var dropped = Counter.builder("observer.feed.dropped")
+                    .description("Readings dropped because the subscriber could not keep up")
+                    .tag("subscriber", subscriber)
+                    .register(this.registry);
+            return withOverflow(this.sink.asFlux(), overflow)
+                    .doOnSubscribe(s -> positions.add(position))
+                    .doOnNext(change -> {
+                        final var gap = change.sequence - position.get() - 1;
+                        if(gap > 0) {
+                            dropped.increment(gap);
+                        }
+                        position.set(change.sequence);
+                    })
+                    .doFinally(signal -> positions.remove(position))
+                    .map(change -> change.reading);
+        });
+    }
+
+    /**
+     * Completes the feed for all subscribers.
+     */
+    public synchronized void complete() {
+        this.sink.emitComplete(Sinks.EmitFailureHandler.FAIL_FAST);
+    }
+
+    private Flux<Change> withOverflow(Flux<Change> changes, Overflow overflow) {
+        return switch(overflow) {
+            case ERROR -> changes.onBackpressureBuffer(this.bufferSize, BufferOverflowStrategy.ERROR);
+            case DROP_OLDEST -> changes.onBackpressureBuffer(this.bufferSize, BufferOverflowStrategy.DROP_OLDEST);
+            case DROP_LATEST -> changes.onBackpressureBuffer(this.bufferSize, BufferOverflowStrategy.DROP_LATEST);
+            case LATEST -> changes.onBackpressureLatest();
+        };
+    }
+
+    private Set<AtomicLong> registerLag(String subscriber) {
+        final Set<AtomicLong> positions = ConcurrentHashMap.newKeySet();
+        Gauge.builder("observer.feed.lag", positions, p -> p.stream()
+                        .mapToLong(AtomicLong::get)
+                        .map(position -> this.published.get() - position)
+                        .max()
+                        .orElse(0))
+                .description("Readings published but not yet delivered to the subscriber")
+                .tag("subscriber", subscriber)
+                .register(this.registry);
+        return positions;
+    }
+}
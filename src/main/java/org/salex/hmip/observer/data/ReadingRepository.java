@@ -1,6 +1,11 @@
 package org.salex.hmip.observer.data;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Date;
 
 public interface ReadingRepository extends JpaRepository<Reading, Long> {
+    @Query("select max(r.readingTime) from Reading r")
+    Date findLatestReadingTime();
 }
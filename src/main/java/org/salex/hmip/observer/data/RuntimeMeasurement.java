@@ -0,0 +1,146 @@
+package org.salex.hmip.observer.data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "runtime_measuerements")
+public class RuntimeMeasurement extends Measurement {
+    @Column(name="heap_used")
+    private Double heapUsed;
+
+    @Column(name="heap_usage")
+    private Double heapUsage;
+
+    @Column(name="gc_count")
+    private Long gcCount;
+
+    @Column(name="gc_time")
+    private Long gcTime;
+
+    @Column(name="gc_time_ratio")
+    private Double gcTimeRatio;
+
+    @Column(name="thread_count")
+    private Integer threadCount;
+
+    @Column(name="page_cache_usage")
+    private Double pageCacheUsage;
+
+    @Column(name="page_cache_hit_ratio")
+    private Double pageCacheHitRatio;
+
+    protected RuntimeMeasurement() {}
+
+    public RuntimeMeasurement(Reading reading, Double heapUsed, Double heapUsage, Long gcCount, Long gcTime, Double gcTimeRatio, Integer threadCount, Double pageCacheUsage, Double pageCacheHitRatio) {
+        super(reading);
+        this.heapUsed = heapUsed;
+        this.heapUsage = heapUsage;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.gcTimeRatio = gcTimeRatio;
+        this.threadCount = threadCount;
+        this.pageCacheUsage = pageCacheUsage;
+        this.pageCacheHitRatio = pageCacheHitRatio;
+    }
+
+    /**
+     * Used heap memory in MB.
+     */
+    public Double getHeapUsed() {
+        return heapUsed;
+    }
+
+    public void setHeapUsed(Double heapUsed) {
+        this.heapUsed = heapUsed;
+    }
+
+    /**
+     * Used heap memory in percent of the maximum heap size.
+     */
+    public Double getHeapUsage() {
+        return heapUsage;
+    }
+
+    public void setHeapUsage(Double heapUsage) {
+        this.heapUsage = heapUsage;
+    }
+
+    /**
+     * Number of garbage collections since the previous reading.
+     */
+    public Long getGcCount() {
+        return gcCount;
+    }
+
+    public void setGcCount(Long gcCount) {
+        this.gcCount = gcCount;
+    }
+
+    /**
+     * Time spent in garbage collections since the previous reading in milliseconds.
+     */
+    public Long getGcTime() {
+        return gcTime;
+    }
+
+    public void setGcTime(Long gcTime) {
+        this.gcTime = gcTime;
+    }
+
+    /**
+     * Time spent in garbage collections since the previous reading in percent of the elapsed time.
+     */
+    public Double getGcTimeRatio() {
+        return gcTimeRatio;
+    }
+
+    public void setGcTimeRatio(Double gcTimeRatio) {
+        this.gcTimeRatio = gcTimeRatio;
+    }
+
+    public Integer getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(Integer threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Used entries of the Derby page cache in percent of the maximum entries.
+     */
+    public Double getPageCacheUsage() {
+        return pageCacheUsage;
+    }
+
+    public void setPageCacheUsage(Double pageCacheUsage) {
+        this.pageCacheUsage = pageCacheUsage;
+    }
+
+    /**
+     * Hits of the Derby page cache since the previous reading in percent of all accesses.
+     */
+    public Double getPageCacheHitRatio() {
+        return pageCacheHitRatio;
+    }
+
+    public void setPageCacheHitRatio(Double pageCacheHitRatio) {
+        this.pageCacheHitRatio = pageCacheHitRatio;
+    }
+
+    @Override
+    public String toString() {
+        return "RuntimeMeasurement{" +
+                "heapUsed=" + heapUsed +
+                ", heapUsage=" + heapUsage +
+                ", gcCount=" + gcCount +
+                ", gcTime=" + gcTime +
+                ", gcTimeRatio=" + gcTimeRatio +
+                ", threadCount=" + threadCount +
+                ", pageCacheUsage=" + pageCacheUsage +
+                ", pageCacheHitRatio=" + pageCacheHitRatio +
+                '}';
+    }
+}
@@ -0,0 +1,108 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.AlertJournalEntry;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Sensor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Append-only journal of the operating alert events and the climate alert decisions. Entries are collected in
+ * memory and written in batches by {@link #flush()}.
+ */
+public interface AlertJournal {
+    /**
+     * Records a new operating alert event, which is pending until its delivery is confirmed.
+     */
+    void record(OperatingAlertService.Event event);
+
+    /**
+     * Records that the given climate rule has changed its state by the given measurement.
+     */
+    void recordClimateAlert(ClimateMeasurement measurement, ClimateRule rule, AlertStateMachine.State state);
+
+    /**
+     * Marks the given operating alert events as delivered.
+     */
+    void confirmDelivery(List<OperatingAlertService.Event> events);
+
+    /**
+     * Releases the given operating alert events, whose delivery has failed. They stay undelivered in the journal, so
+     * they are recovered and delivered again.
+     */
+    void failDelivery(List<OperatingAlertService.Event> events);
+
+    /**
+     * Marks the given operating alert event as failed, as it has been dropped before its delivery. It won't be
+     * recovered.
+     */
+    void discard(OperatingAlertService.Event event);
+
+    /**
+     * Restores the latest operating alert events, which haven't been delivered yet and aren't pending anymore. Older
+     * undelivered events beyond the limit are marked as failed.
+     */
+    List<OperatingAlertService.Event> recover(int limit);
+
+    /**
+     * Writes all recorded entries to the journal.
+     */
+    void flush();
+
+    /**
+     * Retrieve all entries between the given timestamps, the latest first.
+     */
+    List<AlertJournalEntry> getEntries(Date startTime, Date endTime);
+
+    /**
+     * Retrieve all entries between the given timestamps regarding the given sensor, the latest first.
+     */
+    List<AlertJournalEntry> getEntries(Date startTime, Date endTime, Sensor sensor);
+
+    /**
+     * Returns a journal, which doesn't record anything.
+     */
+    static AlertJournal none() {
+        return new AlertJournal() {
+            @Override
+            public void record(OperatingAlertService.Event event) {
+            }
+
+            @Override
+            public void recordClimateAlert(ClimateMeasurement measurement, ClimateRule rule, AlertStateMachine.State state) {
+            }
+
+            @Override
+            public void confirmDelivery(List<OperatingAlertService.Event> events) {
+            }
+
+            @Override
+            public void failDelivery(List<OperatingAlertService.Event> events) {
+            }
+
+            @Override
+            public void discard(OperatingAlertService.Event event) {
+            }
+
+            @Override
+            public List<OperatingAlertService.Event> recover(int limit) {
+                return List.of();
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public List<AlertJournalEntry> getEntries(Date startTime, Date endTime) {
+                return List.of();
+            }
+
+            @Override
+            public List<AlertJournalEntry> getEntries(Date startTime, Date endTime, Sensor sensor) {
+                return List.of();
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package org.salex.hmip.observer.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the alert state of each key, e.g. a rule of a sensor. An alert is pending as soon as its condition is
+ * violated and fires when the violation lasts for the minimum duration. A firing alert is resolved when the value
+ * has returned behind the clear threshold for the minimum duration. Values between the violation and the clear
+ * threshold don't change the state, so a value hovering around a threshold doesn't cause a flood of alerts.
+ */
+public class AlertStateMachine<K> {
+    public enum State {
+        OK, PENDING, FIRING, RESOLVED
+    }
+
+    private static class Entry {
+        private State state = State.OK;
+        private long since;
+        private long clearedSince = -1;
+    }
+
+    private final long minimumDuration;
+
+    private final Map<K, Entry> entries = new HashMap<>();
+
+    public AlertStateMachine(Duration minimumDuration) {
+        this.minimumDuration = minimumDuration.toMillis();
+    }
+
+    public synchronized State getState(K key) {
+        final var entry = this.entries.get(key);
+        return entry != null ? entry.state : State.OK;
+    }
+
+    /**
+     * Updates the state of the key by the current evaluation of its condition. Returns the new state, if it has
+     * changed to {@link State#FIRING} or {@link State#RESOLVED}, and <code>null</code> otherwise.
+     */
+    public synchronized State update(K key, boolean violated, boolean cleared, long now) {
+        final var entry = this.entries.computeIfAbsent(key, k -> new Entry());
+        switch(entry.state) {
+            case OK, RESOLVED -> {
+                if(!violated) {
+                    entry.state = State.OK;
+                    return null;
+                }
+                entry.state = State.PENDING;
+                entry.since = now;
+                return firePending(entry, now);
+            }
+            case PENDING -> {
+                if(cleared) {
+                    entry.state = State.OK;
+                    return null;
+                }
+                return violated ? firePending(entry, now) : null;
+            }
+            case FIRING -> {
+                if(!cleared) {
+                    entry.clearedSince = -1;
+                    return null;
+                }
+                if(entry.clearedSince < 0) {
+                    entry.clearedSince = now;
+                }
+                if(now - entry.clearedSince < this.minimumDuration) {
+                    return null;
+                }
+                entry.state = State.RESOLVED;
+                entry.since = now;
+                entry.clearedSince = -1;
+                return State.RESOLVED;
+            }
+        }
+        return null;
+    }
+
+    private State firePending(Entry entry, long now) {
+        if(now - entry.since < this.minimumDuration) {
+            return null;
+        }
+        entry.state = State.FIRING;
+        entry.since = now;
+        return State.FIRING;
+    }
+}
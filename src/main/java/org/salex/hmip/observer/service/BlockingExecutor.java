@@ -0,0 +1,87 @@
+package org.salex.hmip.observer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Offloads blocking operations (JPA, SMTP, process execution) from the reactive pipelines to a dedicated
+ * scheduler, so neither the task scheduler nor the Netty event loop threads get blocked.
+ */
+public class BlockingExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(BlockingExecutor.class);
+
+    public enum Mode {
+        /**
+         * Run blocking operations on the subscribing thread.
+         */
+        IMMEDIATE,
+
+        /**
+         * Run blocking operations on virtual threads, falling back to the bounded elastic scheduler on JDKs
+         * without virtual thread support.
+         */
+        VIRTUAL_THREADS,
+
+        /**
+         * Run blocking operations on Reactor's bounded elastic scheduler.
+         */
+        BOUNDED_ELASTIC
+    }
+
+    private final Scheduler scheduler;
+
+    public BlockingExecutor(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public static BlockingExecutor immediate() {
+        return new BlockingExecutor(Schedulers.immediate());
+    }
+
+    public static BlockingExecutor create(Mode mode) {
+        return switch (mode) {
+            case IMMEDIATE -> immediate();
+            case VIRTUAL_THREADS -> createVirtualThreadScheduler()
+                    .map(BlockingExecutor::new)
+                    .orElseGet(() -> {
+                        LOG.warn("Virtual threads are not available, falling back to bounded elastic scheduler");
+                        return new BlockingExecutor(Schedulers.boundedElastic());
+                    });
+            case BOUNDED_ELASTIC -> new BlockingExecutor(Schedulers.boundedElastic());
+        };
+    }
+
+    /**
+     * Executes the given blocking operation on the scheduler of this executor.
+     */
+    public <T> Mono<T> call(Callable<T> operation) {
+        return Mono.fromCallable(operation).subscribeOn(this.scheduler);
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public void dispose() {
+        this.scheduler.dispose();
+    }
+
+    private static Optional<Scheduler> createVirtualThreadScheduler() {
+        try {
+            final var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            final var executor = (ExecutorService) factory.invoke(null);
+            LOG.info("Blocking operations will be executed on virtual threads");
+            return Optional.of(Schedulers.fromExecutorService(executor, "virtual"));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
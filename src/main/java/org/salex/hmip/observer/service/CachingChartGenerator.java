@@ -0,0 +1,120 @@
+package org.salex.hmip.observer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
+import org.salex.hmip.observer.data.Sensor;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Chart generator sharing the rendered charts between its users, e.g. the blog and the climate alert mail. The
+ * charts are cached by their {@link ChartFingerprint}, so a chart requested again for the same data isn't rendered
+ * twice, while a chart of changed data within the same window is. Concurrent requests share a single rendering. The
+ * least recently used charts are evicted.
+ */
+public class CachingChartGenerator implements ChartGenerator {
+    private final ChartGenerator delegate;
+
+    private final Map<String, Mono<byte[]>> cache;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public CachingChartGenerator(ChartGenerator delegate, int capacity, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.cache = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Mono<byte[]>> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.hits = Counter.builder("observer.chart.cache")
+                .description("Charts requested from the render cache")
+                .tag("result", "hit")
+                .register(registry);
+        this.misses = Counter.builder("observer.chart.cache")
+                .description("Charts requested from the render cache")
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    @Override
+    public String getContentType() {
+        return this.delegate.getContentType();
+    }
+
+    @Override
+    public String getFileExtension() {
+        return this.delegate.getFileExtension();
+    }
+
+    @Override
+    public Mono<Void> warmUp() {
+        return this.delegate.warmUp();
+    }
+
+    @Override
+    public Mono<byte[]> create24HourChart(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
+        return create24HourChart(ChartFingerprint.of24HourChart(start, end, data), start, end, data);
+    }
+
+    @Override
+    public Mono<byte[]> create365DayTemperatureChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return create365DayTemperatureChart(ChartFingerprint.of365DayChart("365d-temperature", start, end, data, sensor), start, end, data, sensor);
+    }
+
+    @Override
+    public Mono<byte[]> create365DayHumidityChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return create365DayHumidityChart(ChartFingerprint.of365DayChart("365d-humidity", start, end, data, sensor), start, end, data, sensor);
+    }
+
+    @Override
+    public Mono<byte[]> create24HourChart(String fingerprint, Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
+        return cached(fingerprint, () -> this.delegate.create24HourChart(start, end, data));
+    }
+
+    @Override
+    public Mono<byte[]> create365DayTemperatureChart(String fingerprint, Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return cached(fingerprint, () -> this.delegate.create365DayTemperatureChart(start, end, data, sensor));
+    }
+
+    @Override
+    public Mono<byte[]> create365DayHumidityChart(String fingerprint, Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return cached(fingerprint, () -> this.delegate.create365DayHumidityChart(start, end, data, sensor));
+    }
+
+    private Mono<byte[]> cached(String key, Supplier<Mono<byte[]>> render) {
+        synchronized(this.cache) {
+            final var cached = this.cache.get(key);
+            if(cached != null) {
+                this.hits.increment();
+                return cached;
+            }
+            this.misses.increment();
+            final var rendered = new AtomicReference<Mono<byte[]>>();
+            rendered.set(Mono.defer(render)
+                    .doOnError(e -> evict(key, rendered.get()))
+                    .cache());
+            this.cache.put(key, rendered.get());
+            return rendered.get();
+        }
+    }
+
+    /**
+     * Removes a failed rendering, so the chart is rendered again on the next request.
+     */
+    private void evict(String key, Mono<byte[]> chart) {
+        synchronized(this.cache) {
+            this.cache.remove(key, chart);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
+import org.salex.hmip.observer.data.Sensor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SHA-256 fingerprint of everything a chart is rendered from: its kind, the time window, the sensors with their
+ * name and color and the values of the series. Two charts with the same fingerprint look the same, so a chart has
+ * neither to be rendered nor uploaded again as long as its fingerprint hasn't changed.
+ */
+public class ChartFingerprint {
+    private final MessageDigest digest;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+    private ChartFingerprint(String kind, Date start, Date end) {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        add(kind);
+        add(start.getTime());
+        add(end.getTime());
+    }
+
+    public static String of24HourChart(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
+        final var fingerprint = new ChartFingerprint("24h", start, end);
+        data.keySet().stream()
+                .sorted(Comparator.comparing(Sensor::getId))
+                .forEach(sensor -> {
+                    fingerprint.add(sensor);
+                    data.get(sensor).stream()
+                            .sorted(Comparator.comparing(ClimateMeasurement::getMeasuringTime))
+                            .forEach(measurement -> {
+                                fingerprint.add(measurement.getMeasuringTime().getTime());
+                                fingerprint.add(measurement.getTemperature());
+                                fingerprint.add(measurement.getHumidity());
+                            });
+                });
+        return fingerprint.toString();
+    }
+
+    public static String of365DayChart(String kind, Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        final var fingerprint = new ChartFingerprint(kind, start, end);
+        fingerprint.add(sensor);
+        data.stream()
+                .sorted(Comparator.comparing(ClimateMeasurementBoundaries::getDay))
+                .forEach(boundaries -> {
+                    fingerprint.add(boundaries.getDay().getTime());
+                    fingerprint.add(boundaries.getMinimumTemperature());
+                    fingerprint.add(boundaries.getMaximumTemperature());
+                    fingerprint.add(boundaries.getMinimumHumidity());
+                    fingerprint.add(boundaries.getMaximumHumidity());
+                    fingerprint.add(boundaries.getMinimumVaporAmount());
+                    fingerprint.add(boundaries.getMaximumVaporAmount());
+                });
+        return fingerprint.toString();
+    }
+
+    private void add(Sensor sensor) {
+        add(sensor.getId());
+        add(sensor.getName());
+        add(sensor.getColor());
+    }
+
+    private void add(String value) {
+        final var bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        add(bytes.length);
+        this.digest.update(bytes);
+    }
+
+    private void add(Double value) {
+        add(value != null ? Double.doubleToLongBits(value) : Long.MIN_VALUE);
+    }
+
+    private void add(long value) {
+        this.buffer.clear();
+        this.buffer.putLong(value);
+        this.digest.update(this.buffer.array());
+    }
+
+    @Override
+    public String toString() {
+        return HexFormat.of().formatHex(this.digest.digest());
+    }
+}
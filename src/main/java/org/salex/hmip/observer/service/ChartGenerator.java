@@ -10,9 +10,52 @@ import java.util.List;
 import java.util.Map;
 
 public interface ChartGenerator {
+    /**
+     * Returns the content type of the generated charts.
+     */
+    default String getContentType() {
+        return "image/png";
+    }
+
+    /**
+     * Returns the file extension of the generated charts.
+     */
+    default String getFileExtension() {
+        return "png";
+    }
+
+    /**
+     * Initializes everything needed to render the charts, so the first chart isn't slower than the following ones.
+     */
+    default Mono<Void> warmUp() {
+        return Mono.empty();
+    }
+
     Mono<byte[]> create24HourChart(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data);
 
     Mono<byte[]> create365DayTemperatureChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor);
 
     Mono<byte[]> create365DayHumidityChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor);
+
+    /**
+     * Creates the 24 hour chart, whose {@link ChartFingerprint} the caller has computed already, so a cache doesn't
+     * compute it again.
+     */
+    default Mono<byte[]> create24HourChart(String fingerprint, Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
+        return create24HourChart(start, end, data);
+    }
+
+    /**
+     * Creates the 365 day temperature chart with the {@link ChartFingerprint} computed by the caller.
+     */
+    default Mono<byte[]> create365DayTemperatureChart(String fingerprint, Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return create365DayTemperatureChart(start, end, data, sensor);
+    }
+
+    /**
+     * Creates the 365 day humidity chart with the {@link ChartFingerprint} computed by the caller.
+     */
+    default Mono<byte[]> create365DayHumidityChart(String fingerprint, Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return create365DayHumidityChart(start, end, data, sensor);
+    }
 }
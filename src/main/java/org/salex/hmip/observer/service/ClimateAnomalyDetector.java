@@ -0,0 +1,149 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.AnomalyDetectorState;
+import org.salex.hmip.observer.data.AnomalyDetectorStateRepository;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects anomalies of temperature and humidity of each sensor incrementally. Every value has an exponentially
+ * weighted moving average and variance, which are updated with each measurement in constant time. A value is a spike,
+ * if its z-score exceeds the threshold, and the values drift, if the cumulative sum (CUSUM) of their z-scores exceeds
+ * the drift threshold. The state of the detectors is checkpointed after each reading, so they don't have to warm up
+ * again after a restart. Anomalies are raised as events of the operating alert service.
+ */
+public class ClimateAnomalyDetector {
+    private static final Logger LOG = LoggerFactory.getLogger(ClimateAnomalyDetector.class);
+
+    private static final List<ClimateRule.Value> VALUES = List.of(ClimateRule.Value.TEMPERATURE, ClimateRule.Value.HUMIDITY);
+
+    public static class Parameters {
+        private final double alpha;
+
+        private final double threshold;
+
+        private final double slack;
+
+        private final double driftThreshold;
+
+        private final int warmup;
+
+        private final double minimumDeviation;
+
+        /**
+         * @param alpha weight of a new value in the moving average and variance
+         * @param threshold z-score above which a value is a spike
+         * @param slack z-score tolerated in each step of the cumulative sums
+         * @param driftThreshold cumulative sum above which the values drift
+         * @param warmup number of values seen before anomalies are detected
+         * @param minimumDeviation lower bound of the standard deviation, e.g. the resolution of the sensor
+         */
+        public Parameters(double alpha, double threshold, double slack, double driftThreshold, int warmup, double minimumDeviation) {
+            this.alpha = alpha;
+            this.threshold = threshold;
+            this.slack = slack;
+            this.driftThreshold = driftThreshold;
+            this.warmup = warmup;
+            this.minimumDeviation = minimumDeviation;
+        }
+    }
+
+    private final Parameters parameters;
+
+    private final AnomalyDetectorStateRepository repository;
+
+    private final OperatingAlertService operatingAlertService;
+
+    private final BlockingExecutor blockingExecutor;
+
+    private final Map<String, AnomalyDetectorState> states = new HashMap<>();
+
+    public ClimateAnomalyDetector(Parameters parameters, AnomalyDetectorStateRepository repository, OperatingAlertService operatingAlertService, BlockingExecutor blockingExecutor) {
+        this.parameters = parameters;
+        this.repository = repository;
+        this.operatingAlertService = operatingAlertService;
+        this.blockingExecutor = blockingExecutor;
+        repository.findAll().forEach(state -> this.states.put(state.getKey(), state));
+        LOG.info(String.format("%d anomaly detector states restored", this.states.size()));
+    }
+
+    /**
+     * Updates the detectors with the climate measurements of the reading, raises the detected anomalies and
+     * checkpoints the updated states.
+     */
+    public Mono<List<OperatingAlertService.Anomaly>> check(Reading reading) {
+        final var anomalies = new ArrayList<OperatingAlertService.Anomaly>();
+        final var updated = new ArrayList<AnomalyDetectorState>();
+        synchronized(this.states) {
+            for(var measurement : reading.getMeasurements()) {
+                if(measurement instanceof ClimateMeasurement climateMeasurement) {
+                    for(var value : VALUES) {
+                        final var actual = value.of(climateMeasurement);
+                        if(actual == null) {
+                            continue;
+                        }
+                        final var state = this.states.computeIfAbsent(climateMeasurement.getSensor().getId() + ":" + value, AnomalyDetectorState::new);
+                        final var anomaly = update(state, climateMeasurement, value, actual);
+                        if(anomaly != null) {
+                            anomalies.add(anomaly);
+                        }
+                        updated.add(state);
+                    }
+                }
+            }
+        }
+        for(var anomaly : anomalies) {
+            LOG.info(String.format("Climate anomaly %s of %s for %s: %.1f, expected %.1f",
+                    anomaly.getKind(), anomaly.getValue(), anomaly.getMeasurement().getSensor().getName(), anomaly.getActual(), anomaly.getExpected()));
+            this.operatingAlertService.raise(anomaly);
+        }
+        if(updated.isEmpty()) {
+            return Mono.just(anomalies);
+        }
+        return this.blockingExecutor.call(() -> this.repository.saveAll(updated)).thenReturn(anomalies);
+    }
+
+    private OperatingAlertService.Anomaly update(AnomalyDetectorState state, ClimateMeasurement measurement, ClimateRule.Value value, double actual) {
+        state.setLastUpdate(measurement.getMeasuringTime());
+        if(state.getCount() == 0) {
+            state.setMean(actual);
+            state.setVariance(0.0);
+            state.setCount(1);
+            return null;
+        }
+        final var mean = state.getMean();
+        final var deviation = Math.max(Math.sqrt(state.getVariance()), this.parameters.minimumDeviation);
+        final var z = (actual - mean) / deviation;
+        OperatingAlertService.Anomaly anomaly = null;
+        if(state.getCount() >= this.parameters.warmup) {
+            final var bounded = Math.max(-this.parameters.threshold, Math.min(this.parameters.threshold, z));
+            state.setCusumHigh(Math.max(0.0, state.getCusumHigh() + bounded - this.parameters.slack));
+            state.setCusumLow(Math.max(0.0, state.getCusumLow() - bounded - this.parameters.slack));
+            if(Math.abs(z) > this.parameters.threshold) {
+                anomaly = new OperatingAlertService.Anomaly(measurement, value, OperatingAlertService.Anomaly.Kind.SPIKE, mean, deviation, z);
+            } else if(state.getCusumHigh() > this.parameters.driftThreshold) {
+                anomaly = new OperatingAlertService.Anomaly(measurement, value, OperatingAlertService.Anomaly.Kind.DRIFT_UP, mean, deviation, state.getCusumHigh());
+            } else if(state.getCusumLow() > this.parameters.driftThreshold) {
+                anomaly = new OperatingAlertService.Anomaly(measurement, value, OperatingAlertService.Anomaly.Kind.DRIFT_DOWN, mean, deviation, state.getCusumLow());
+            }
+            if(anomaly != null && anomaly.getKind() != OperatingAlertService.Anomaly.Kind.SPIKE) {
+                state.setCusumHigh(0.0);
+                state.setCusumLow(0.0);
+            }
+        }
+        final var difference = actual - mean;
+        final var increment = this.parameters.alpha * difference;
+        state.setMean(mean + increment);
+        state.setVariance((1.0 - this.parameters.alpha) * (state.getVariance() + difference * increment));
+        state.setCount(state.getCount() + 1);
+        return anomaly;
+    }
+}
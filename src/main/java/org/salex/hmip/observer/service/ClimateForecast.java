@@ -0,0 +1,97 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Predicts violations of the climate rules. The values of each sensor are fitted by a {@link SlidingRegression}
+ * over the last readings and the line is extended to the threshold of each rule. A warning is raised as an event of
+ * the operating alert service, when the projected crossing is within the horizon. The warning is repeated only
+ * after the crossing has moved beyond twice the horizon, the trend has turned or the rule has been violated.
+ */
+public class ClimateForecast {
+    private static final Logger LOG = LoggerFactory.getLogger(ClimateForecast.class);
+
+    private static final double MILLIS_PER_HOUR = 3600000.0;
+
+    private final List<ClimateRule> rules;
+
+    private final int window;
+
+    private final double horizon;
+
+    private final OperatingAlertService operatingAlertService;
+
+    private final Map<String, SlidingRegression> regressions = new HashMap<>();
+
+    private final AlertStateMachine<String> states = new AlertStateMachine<>(Duration.ZERO);
+
+    public ClimateForecast(List<ClimateRule> rules, int window, Duration horizon, OperatingAlertService operatingAlertService) {
+        this.rules = List.copyOf(rules);
+        this.window = window;
+        this.horizon = horizon.toMillis() / MILLIS_PER_HOUR;
+        this.operatingAlertService = operatingAlertService;
+        LOG.info(String.format("Climate rules forecasted over %d readings with a horizon of %s", window, horizon));
+    }
+
+    /**
+     * Adds the climate measurements of the reading to the regressions and raises a warning for each rule, whose
+     * violation is projected within the horizon.
+     */
+    public synchronized List<OperatingAlertService.Forecast> check(Reading reading) {
+        final var forecasts = new ArrayList<OperatingAlertService.Forecast>();
+        for(var measurement : reading.getMeasurements()) {
+            if(measurement instanceof ClimateMeasurement climateMeasurement) {
+                final var sensor = climateMeasurement.getSensor();
+                final var now = climateMeasurement.getMeasuringTime().getTime();
+                final var updated = new ArrayList<ClimateRule.Value>();
+                for(int i = 0; i < this.rules.size(); i++) {
+                    final var rule = this.rules.get(i);
+                    final var actual = rule.getValue().of(climateMeasurement);
+                    if(!rule.appliesTo(sensor) || actual == null) {
+                        continue;
+                    }
+                    final var regression = this.regressions.computeIfAbsent(sensor.getId() + ":" + rule.getValue(), key -> new SlidingRegression(this.window));
+                    if(!updated.contains(rule.getValue())) {
+                        regression.add(now, actual);
+                        updated.add(rule.getValue());
+                    }
+                    if(regression.getCount() < Math.max(3, this.window / 2)) {
+                        continue;
+                    }
+                    final var hours = hoursToCrossing(rule, regression, now, rule.isViolatedBy(climateMeasurement));
+                    final var transition = this.states.update(sensor.getId() + ":" + i, hours <= this.horizon, hours > 2 * this.horizon, now);
+                    if(transition == AlertStateMachine.State.FIRING) {
+                        final var forecast = new OperatingAlertService.Forecast(climateMeasurement, rule, new Date(now + Math.round(hours * MILLIS_PER_HOUR)));
+                        LOG.info(String.format("Climate rule '%s' projected to be violated for %s at %s", rule, sensor.getName(), forecast.getCrossing()));
+                        this.operatingAlertService.raise(forecast);
+                        forecasts.add(forecast);
+                    }
+                }
+            }
+        }
+        return forecasts;
+    }
+
+    /**
+     * Returns the hours until the regression line crosses the threshold of the rule or infinity, if it doesn't
+     * approach the threshold or the rule is already violated.
+     */
+    private double hoursToCrossing(ClimateRule rule, SlidingRegression regression, long now, boolean violated) {
+        final var slope = regression.getSlope();
+        final var approaching = rule.getComparison() == ClimateRule.Comparison.BELOW ? slope < 0 : slope > 0;
+        if(violated || Double.isNaN(slope) || !approaching) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(0.0, (rule.getThreshold() - regression.getValueAt(now)) / slope);
+    }
+}
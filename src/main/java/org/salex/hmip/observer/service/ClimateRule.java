@@ -0,0 +1,115 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Sensor;
+
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Threshold rule for a climate value. A rule is written as <code>[sensor:] value &lt;|&gt; threshold [clear
+ * threshold]</code>, e.g. <code>humidity &gt; 90 clear 85</code> or <code>Carport: temperature &lt; 3.0</code>.
+ * Without a sensor name the rule applies to all sensors. A violation is cleared when the value has returned behind
+ * the clear threshold, which is the threshold itself if not given.
+ */
+public class ClimateRule {
+    public enum Value {
+        TEMPERATURE(ClimateMeasurement::getTemperature),
+        HUMIDITY(ClimateMeasurement::getHumidity),
+        VAPOR_AMOUNT(ClimateMeasurement::getVaporAmount);
+
+        private final Function<ClimateMeasurement, Double> getter;
+
+        Value(Function<ClimateMeasurement, Double> getter) {
+            this.getter = getter;
+        }
+
+        public Double of(ClimateMeasurement measurement) {
+            return this.getter.apply(measurement);
+        }
+    }
+
+    public enum Comparison {
+        BELOW, ABOVE
+    }
+
+    private static final Pattern SYNTAX = Pattern.compile("\\s*(?:(.+?)\\s*:)?\\s*([a-zA-Z_]+)\\s*([<>])\\s*(-?[0-9]+(?:\\.[0-9]+)?)(?:\\s+clear\\s+(-?[0-9]+(?:\\.[0-9]+)?))?\\s*");
+
+    private final String sensorName;
+
+    private final Value value;
+
+    private final Comparison comparison;
+
+    private final double threshold;
+
+    private final double clearThreshold;
+
+    public ClimateRule(String sensorName, Value value, Comparison comparison, double threshold, double clearThreshold) {
+        this.sensorName = sensorName;
+        this.value = value;
+        this.comparison = comparison;
+        this.threshold = threshold;
+        this.clearThreshold = clearThreshold;
+    }
+
+    public static ClimateRule parse(String rule) {
+        final var matcher = SYNTAX.matcher(rule);
+        if(!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid climate rule: " + rule);
+        }
+        return new ClimateRule(
+                matcher.group(1),
+                Value.valueOf(matcher.group(2).toUpperCase(Locale.ROOT)),
+                matcher.group(3).equals("<") ? Comparison.BELOW : Comparison.ABOVE,
+                Double.parseDouble(matcher.group(4)),
+                Double.parseDouble(matcher.group(5) != null ? matcher.group(5) : matcher.group(4)));
+    }
+
+    public String getSensorName() {
+        return sensorName;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public Comparison getComparison() {
+        return comparison;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public double getClearThreshold() {
+        return clearThreshold;
+    }
+
+    public boolean appliesTo(Sensor sensor) {
+        return this.sensorName == null || this.sensorName.equals(sensor.getName());
+    }
+
+    public boolean isViolatedBy(ClimateMeasurement measurement) {
+        final var actual = this.value.of(measurement);
+        if(actual == null || !appliesTo(measurement.getSensor())) {
+            return false;
+        }
+        return this.comparison == Comparison.BELOW ? actual < this.threshold : actual > this.threshold;
+    }
+
+    public boolean isClearedBy(ClimateMeasurement measurement) {
+        final var actual = this.value.of(measurement);
+        if(actual == null || !appliesTo(measurement.getSensor())) {
+            return true;
+        }
+        return this.comparison == Comparison.BELOW ? actual >= this.clearThreshold : actual <= this.clearThreshold;
+    }
+
+    @Override
+    public String toString() {
+        return (this.sensorName != null ? this.sensorName + ": " : "") + this.value.name().toLowerCase(Locale.ROOT) + (this.comparison == Comparison.BELOW ? " < " : " > ") + this.threshold
+                + (this.clearThreshold != this.threshold ? " clear " + this.clearThreshold : "");
+    }
+}
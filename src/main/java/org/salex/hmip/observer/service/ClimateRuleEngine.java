@@ -0,0 +1,99 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the climate rules against the measurements of each new reading. Each rule of each sensor has its own
+ * {@link AlertStateMachine}, so an alert is only sent when the rule starts firing and again after it has been
+ * resolved in between. The alerts are additionally limited by a {@link TokenBucket}.
+ */
+public class ClimateRuleEngine {
+    private static final Logger LOG = LoggerFactory.getLogger(ClimateRuleEngine.class);
+
+    private final List<ClimateRule> rules;
+
+    private final AlertStateMachine<String> states;
+
+    private final TokenBucket notifications;
+
+    private final MailPublishService mailPublishService;
+
+    private final AlertJournal journal;
+
+    public ClimateRuleEngine(List<ClimateRule> rules, Duration minimumDuration, TokenBucket notifications, MailPublishService mailPublishService, AlertJournal journal) {
+        this.rules = List.copyOf(rules);
+        this.states = new AlertStateMachine<>(minimumDuration);
+        this.notifications = notifications;
+        this.mailPublishService = mailPublishService;
+        this.journal = journal;
+        LOG.info(String.format("Climate rules %s evaluated on each reading", this.rules));
+    }
+
+    public List<ClimateRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Evaluates all rules against the climate measurements of the reading and sends an alert for the measurements
+     * that made a rule fire.
+     */
+    public Mono<Map<Sensor, List<ClimateMeasurement>>> evaluate(Reading reading) {
+        final var fired = collectFired(reading);
+        if(fired.isEmpty()) {
+            return Mono.empty();
+        }
+        if(!this.notifications.tryAcquire(reading.getReadingTime().getTime())) {
+            LOG.warn(String.format("Climate alert for %d sensors suppressed by rate limit", fired.size()));
+            return Mono.empty();
+        }
+        final var start = fired.values().stream()
+                .flatMap(List::stream)
+                .map(ClimateMeasurement::getMeasuringTime)
+                .min(Date::compareTo)
+                .orElse(reading.getReadingTime());
+        return this.mailPublishService.sendClimateAlert(start, reading.getReadingTime(), fired);
+    }
+
+    private Map<Sensor, List<ClimateMeasurement>> collectFired(Reading reading) {
+        final var fired = new LinkedHashMap<Sensor, List<ClimateMeasurement>>();
+        for(var measurement : reading.getMeasurements()) {
+            if(measurement instanceof ClimateMeasurement climateMeasurement) {
+                final var sensor = climateMeasurement.getSensor();
+                final var now = climateMeasurement.getMeasuringTime().getTime();
+                var firing = false;
+                for(int i = 0; i < this.rules.size(); i++) {
+                    final var rule = this.rules.get(i);
+                    if(!rule.appliesTo(sensor)) {
+                        continue;
+                    }
+                    final var transition = this.states.update(sensor.getId() + ":" + i, rule.isViolatedBy(climateMeasurement), rule.isClearedBy(climateMeasurement), now);
+                    if(transition != null) {
+                        this.journal.recordClimateAlert(climateMeasurement, rule, transition);
+                    }
+                    if(transition == AlertStateMachine.State.FIRING) {
+                        LOG.info(String.format("Climate rule '%s' fired for %s", rule, sensor.getName()));
+                        firing = true;
+                    } else if(transition == AlertStateMachine.State.RESOLVED) {
+                        LOG.info(String.format("Climate rule '%s' resolved for %s", rule, sensor.getName()));
+                    }
+                }
+                if(firing) {
+                    fired.computeIfAbsent(sensor, s -> new ArrayList<>()).add(climateMeasurement);
+                }
+            }
+        }
+        return fired;
+    }
+}
@@ -0,0 +1,148 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Summary statistics of the temperature and humidity of climate data, collected in a single pass on primitive values.
+ * The extremes keep the element that produced them, e.g. to show the time of the lowest temperature. Each element
+ * provides a low and a high value per quantity, which are the same for single measurements and the daily minimum and
+ * maximum for boundaries. Missing values (NaN) are skipped. On ties, the first element is kept.
+ */
+public class ClimateStatistics<T> {
+    private final ToDoubleFunction<T> lowTemperature;
+
+    private final ToDoubleFunction<T> highTemperature;
+
+    private final ToDoubleFunction<T> lowHumidity;
+
+    private final ToDoubleFunction<T> highHumidity;
+
+    private final Extremes<T> temperature = new Extremes<>();
+
+    private final Extremes<T> humidity = new Extremes<>();
+
+    private long count;
+
+    public ClimateStatistics(ToDoubleFunction<T> lowTemperature, ToDoubleFunction<T> highTemperature, ToDoubleFunction<T> lowHumidity, ToDoubleFunction<T> highHumidity) {
+        this.lowTemperature = lowTemperature;
+        this.highTemperature = highTemperature;
+        this.lowHumidity = lowHumidity;
+        this.highHumidity = highHumidity;
+    }
+
+    public static ClimateStatistics<ClimateMeasurement> ofMeasurements(Iterable<ClimateMeasurement> measurements) {
+        final ToDoubleFunction<ClimateMeasurement> temperature = measurement -> value(measurement.getTemperature());
+        final ToDoubleFunction<ClimateMeasurement> humidity = measurement -> value(measurement.getHumidity());
+        return new ClimateStatistics<>(temperature, temperature, humidity, humidity).acceptAll(measurements);
+    }
+
+    public static ClimateStatistics<ClimateMeasurementBoundaries> ofBoundaries(Iterable<ClimateMeasurementBoundaries> boundaries) {
+        return new ClimateStatistics<ClimateMeasurementBoundaries>(
+                day -> value(day.getMinimumTemperature()),
+                day -> value(day.getMaximumTemperature()),
+                day -> value(day.getMinimumHumidity()),
+                day -> value(day.getMaximumHumidity())).acceptAll(boundaries);
+    }
+
+    public ClimateStatistics<T> acceptAll(Iterable<T> elements) {
+        for(var element : elements) {
+            accept(element);
+        }
+        return this;
+    }
+
+    public void accept(T element) {
+        this.count++;
+        this.temperature.accept(element, this.lowTemperature.applyAsDouble(element), this.highTemperature.applyAsDouble(element));
+        this.humidity.accept(element, this.lowHumidity.applyAsDouble(element), this.highHumidity.applyAsDouble(element));
+    }
+
+    /**
+     * Returns the number of elements, including those with missing values.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the element with the lowest temperature or <code>null</code>, if there is no temperature.
+     */
+    public T getMinimumTemperature() {
+        return this.temperature.minimum;
+    }
+
+    /**
+     * Returns the element with the highest temperature or <code>null</code>, if there is no temperature.
+     */
+    public T getMaximumTemperature() {
+        return this.temperature.maximum;
+    }
+
+    /**
+     * Returns the average temperature, using the middle of the low and high value of each element, or NaN.
+     */
+    public double getAverageTemperature() {
+        return this.temperature.average();
+    }
+
+    /**
+     * Returns the element with the lowest humidity or <code>null</code>, if there is no humidity.
+     */
+    public T getMinimumHumidity() {
+        return this.humidity.minimum;
+    }
+
+    /**
+     * Returns the element with the highest humidity or <code>null</code>, if there is no humidity.
+     */
+    public T getMaximumHumidity() {
+        return this.humidity.maximum;
+    }
+
+    /**
+     * Returns the average humidity, using the middle of the low and high value of each element, or NaN.
+     */
+    public double getAverageHumidity() {
+        return this.humidity.average();
+    }
+
+    private static double value(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static class Extremes<T> {
+        private T minimum;
+
+        private T maximum;
+
+        private double low = Double.POSITIVE_INFINITY;
+
+        private double high = Double.NEGATIVE_INFINITY;
+
+        private double sum;
+
+        private long count;
+
+        private void accept(T element, double low, double high) {
+            if(!Double.isNaN(low) && (this.minimum == null || low < this.low)) {
+                this.low = low;
+                this.minimum = element;
+            }
+            if(!Double.isNaN(high) && (this.maximum == null || high > this.high)) {
+                this.high = high;
+                this.maximum = element;
+            }
+            if(!Double.isNaN(low) && !Double.isNaN(high)) {
+                this.sum += (low + high) / 2;
+                this.count++;
+            }
+        }
+
+        private double average() {
+            return this.count > 0 ? this.sum / this.count : Double.NaN;
+        }
+    }
+}
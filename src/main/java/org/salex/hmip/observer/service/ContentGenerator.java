@@ -18,7 +18,14 @@ public interface ContentGenerator {
 
     Mono<String> generateHistory(Date start, Date end, Map<Sensor, List<ClimateMeasurementBoundaries>> data, Map<Sensor, Map<String, Image>> diagrams);
 
-    Mono<String> generateClimateAlert(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data);
+    default Mono<String> generateClimateAlert(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
+        return generateClimateAlert(start, end, data, null);
+    }
+
+    /**
+     * Generates the climate alert, which shows the inline chart with the given content id, if any.
+     */
+    Mono<String> generateClimateAlert(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data, String chartContentId);
 
     Mono<String> generateOperatingAlert(List<OperatingAlertService.Event> data);
 }
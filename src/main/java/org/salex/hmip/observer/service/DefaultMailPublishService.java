@@ -1,40 +1,59 @@
 package org.salex.hmip.observer.service;
 
 import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ObserverDatabase;
 import org.salex.hmip.observer.data.Sensor;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
-import javax.mail.Message;
-import javax.mail.MessagingException;
-import javax.mail.internet.AddressException;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeBodyPart;
-import javax.mail.internet.MimeMultipart;
-
-import java.io.UnsupportedEncodingException;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class DefaultMailPublishService implements MailPublishService {
-    private final JavaMailSender mailSender;
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultMailPublishService.class);
+
+    private record WindowChart(Date end, Mono<byte[]> chart) {
+    }
 
     private final ContentGenerator contentGenerator;
 
-    private final InternetAddress[] alarmMailTargets;
+    private final MailOutbox outbox;
+
+    private final ChartGenerator chartGenerator;
+
+    private final ObserverDatabase database;
 
-    public DefaultMailPublishService(ContentGenerator contentGenerator, JavaMailSender mailSender, List<String> alarmMailTargets) {
-        this.mailSender = mailSender;
+    private final BlockingExecutor blockingExecutor;
+
+    private final AtomicReference<WindowChart> latestChart = new AtomicReference<>();
+
+    public DefaultMailPublishService(ContentGenerator contentGenerator, MailOutbox outbox, ChartGenerator chartGenerator, ObserverDatabase database, BlockingExecutor blockingExecutor) {
         this.contentGenerator = contentGenerator;
-        this.alarmMailTargets = alarmMailTargets.stream().map(this::createAddress).toList().toArray(new InternetAddress[0]);
+        this.outbox = outbox;
+        this.chartGenerator = chartGenerator;
+        this.database = database;
+        this.blockingExecutor = blockingExecutor;
     }
 
+    /**
+     * Sends the climate alert with the chart of the 24 hours before its end. The chart covers the same window as
+     * the chart of the blog, so it is taken from the render cache of the chart generator, if the blog has already
+     * been updated. The chart of the latest window is kept by its end, so further alerts of the same reading neither
+     * read the measurements nor render the chart again.
+     */
     @Override
     public Mono<Map<Sensor, List<ClimateMeasurement>>> sendClimateAlert(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
-        return contentGenerator.generateClimateAlert(start, end, data)
-                .mapNotNull(content -> content)
-                .flatMap(content -> sendMail("Klimaalarm", content))
+        final var chartId = "verlauf-" + UUID.randomUUID();
+        return create24HourChart(end, data.isEmpty())
+                .flatMap(chart -> contentGenerator.generateClimateAlert(start, end, data, chart.isPresent() ? chartId : null)
+                        .mapNotNull(content -> content)
+                        .flatMap(content -> sendMail("Klimaalarm", content, chart.map(image -> Map.of(chartId, image)).orElse(Map.of()))))
                 .then(Mono.just(data));
     }
 
@@ -42,32 +61,48 @@ public class DefaultMailPublishService implements MailPublishService {
     public Mono<List<OperatingAlertService.Event>> sendOperatingAlert(List<OperatingAlertService.Event> data) {
         return contentGenerator.generateOperatingAlert(data)
                 .mapNotNull(content -> content)
-                .flatMap(content -> sendMail("Betriebsalarm", content))
+                .flatMap(content -> sendMail("Betriebsalarm", content, Map.of()))
                 .then(Mono.just(data));
     }
 
-    private InternetAddress createAddress(String address) {
-        try {
-            return new InternetAddress(address);
-        } catch(AddressException e) {
-            throw new RuntimeException(e);
+    private Mono<Optional<byte[]>> create24HourChart(Date end, boolean skip) {
+        if(skip) {
+            return Mono.just(Optional.empty());
         }
+        return getWindowChart(end)
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    LOG.warn("Creating the chart for the climate alert failed: " + e.getMessage());
+                    return Mono.just(Optional.empty());
+                })
+                .defaultIfEmpty(Optional.empty());
     }
 
-    private Mono<String> sendMail(String subject, String content) {
-        try {
-            final var textPart = new MimeBodyPart();
-            final var message = this.mailSender.createMimeMessage();
-            textPart.setContent(content, "text/html");
-            message.setFrom(new InternetAddress("noreply@salex.org", "Smart Home Observer"));
-            message.setHeader("X-Priority", "1");
-            message.setRecipients(Message.RecipientType.TO, this.alarmMailTargets);
-            message.setSubject(subject);
-            message.setContent(new MimeMultipart(textPart));
-            this.mailSender.send(message);
-            return Mono.just(content);
-        } catch (MessagingException | UnsupportedEncodingException e) {
-            return Mono.error(e);
+    /**
+     * Returns the chart of the window ending at the given time, which is read and rendered only if it isn't the
+     * window of the chart returned before. A failed chart is removed, so it is created again on the next request.
+     */
+    private Mono<byte[]> getWindowChart(Date end) {
+        final var current = this.latestChart.get();
+        if(current != null && current.end().equals(end)) {
+            return current.chart();
         }
+        final var start = new Date(end.getTime() - TimeUnit.HOURS.toMillis(24));
+        final var created = new AtomicReference<WindowChart>();
+        created.set(new WindowChart(end, this.blockingExecutor.call(() -> this.database.getClimateMeasurements(start, end))
+                .flatMap(history -> this.chartGenerator.create24HourChart(start, end, history))
+                .doOnError(e -> this.latestChart.compareAndSet(created.get(), null))
+                .cache()));
+        return this.latestChart.compareAndSet(current, created.get()) ? created.get().chart() : getWindowChart(end);
+    }
+
+    /**
+     * Puts the mail into the outbox, which sends it asynchronously.
+     */
+    private Mono<String> sendMail(String subject, String content, Map<String, byte[]> images) {
+        return this.blockingExecutor.call(() -> {
+            this.outbox.enqueue(subject, content, images, this.chartGenerator.getContentType());
+            return content;
+        });
     }
 }
@@ -1,49 +1,122 @@
 package org.salex.hmip.observer.service;
 
 import org.salex.hmip.observer.data.OperatingMeasurement;
+import org.salex.hmip.observer.data.RuntimeMeasurement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class DefaultOperatingAlertService implements OperatingAlertService {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultOperatingAlertService.class);
     private static final Logger ERROR_LOG = LoggerFactory.getLogger("error");
 
-    private final List<Event> events;
+    private final EventBuffer events;
+
+    private final AlertStateMachine<String> states;
+
+    private final AlertJournal journal;
+
+    private final int capacity;
 
     public DefaultOperatingAlertService() {
-        this.events = new ArrayList<>();
+        this(Duration.ZERO, 256, EventBuffer.Overflow.DROP_OLDEST, AlertJournal.none());
+    }
+
+    public DefaultOperatingAlertService(Duration minimumDuration, int capacity, EventBuffer.Overflow overflow, AlertJournal journal) {
+        this.events = new EventBuffer(capacity, overflow, journal::discard);
+        this.states = new AlertStateMachine<>(minimumDuration);
+        this.journal = journal;
+        this.capacity = capacity;
     }
 
     @Override
     public void signal(Throwable error) {
         LOG.error(error.getMessage());
         ERROR_LOG.error(error.getMessage(), error);
-        synchronized (this.events) {
-            events.add(new Error(error));
+        final var added = this.events.addError(error);
+        if(added != null) {
+            this.journal.record(added);
         }
     }
 
     @Override
     public void check(List<OperatingMeasurement> measurements) {
-        synchronized (this.events) {
-            this.events.addAll(measurements.stream()
-                .filter(measurement -> measurement.getCpuTemperature() > 60.0 || measurement.getMemoryUsage() > 90.0 || measurement.getDiskUsage() > 90.0)
-                .map(Exceedance::new)
-                .collect(Collectors.toList()));
+        final var now = System.currentTimeMillis();
+        for(var measurement : measurements) {
+            var firing = fires("cpuTemperature", peak(measurement.getCpuTemperature(), measurement.getCpuTemperatureMaximum()), 60.0, 55.0, now);
+            firing |= fires("memoryUsage", peak(measurement.getMemoryUsage(), measurement.getMemoryUsageMaximum()), 90.0, 85.0, now);
+            firing |= fires("diskUsage", measurement.getDiskUsage(), 90.0, 85.0, now);
+            if(firing) {
+                add(new Exceedance(measurement));
+            }
+        }
+    }
+
+    @Override
+    public void checkRuntime(List<RuntimeMeasurement> measurements) {
+        final var now = System.currentTimeMillis();
+        for(var measurement : measurements) {
+            var firing = fires("heapUsage", measurement.getHeapUsage(), 90.0, 80.0, now);
+            firing |= fires("gcTimeRatio", measurement.getGcTimeRatio(), 10.0, 5.0, now);
+            if(firing) {
+                add(new RuntimeExceedance(measurement));
+            }
         }
     }
 
+    @Override
+    public void raise(Event event) {
+        add(event);
+    }
+
+    private void add(Event event) {
+        this.events.add(event);
+        this.journal.record(event);
+    }
+
+    /**
+     * Updates the alert state of the value and returns <code>true</code>, if the alert has started firing. The
+     * alert is resolved when the value has fallen to the clear threshold.
+     */
+    private boolean fires(String key, double value, double threshold, double clearThreshold, long now) {
+        final var transition = this.states.update(key, value > threshold, value <= clearThreshold, now);
+        if(transition == AlertStateMachine.State.RESOLVED) {
+            LOG.info(String.format("Operating alert for %s resolved", key));
+        }
+        return transition == AlertStateMachine.State.FIRING;
+    }
+
+    /**
+     * Returns the maximum of all samples, if the measurement is a summary of samples, and the value otherwise.
+     */
+    private double peak(Double value, Double maximum) {
+        return maximum != null ? maximum : value;
+    }
+
+    /**
+     * Returns the buffered events together with the events of the journal, which haven't been delivered before, e.g.
+     * because their delivery has failed or the application has been restarted.
+     */
     public List<Event> retrieveEvents() {
-        synchronized (this.events) {
-            var events = List.copyOf(this.events);
-            this.events.clear();
-            return events;
+        final var dropped = this.events.drainDropped();
+        if(dropped > 0) {
+            LOG.warn(String.format("%d operating alert events dropped because the buffer was full", dropped));
         }
+        final var events = new ArrayList<>(this.journal.recover(this.capacity));
+        events.addAll(this.events.drain());
+        return events;
     }
 
+    @Override
+    public void confirmDelivery(List<Event> events) {
+        this.journal.confirmDelivery(events);
+    }
 
+    @Override
+    public void failDelivery(List<Event> events) {
+        this.journal.failDelivery(events);
+    }
 }
@@ -0,0 +1,163 @@
+package org.salex.hmip.observer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring buffer for the events of the operating alert service. Errors with the same root cause are
+ * coalesced into a single counted entry until the buffer is drained, so a long outage occupies only one slot. When
+ * the buffer is full, either the oldest or the new event is dropped and the dropped events are counted and passed to
+ * the listener, e.g. to mark them as failed in the journal.
+ */
+public class EventBuffer {
+    public enum Overflow {
+        DROP_OLDEST, DROP_NEWEST
+    }
+
+    private final int capacity;
+
+    private final Overflow overflow;
+
+    private final Consumer<OperatingAlertService.Event> droppedListener;
+
+    private final AtomicReferenceArray<OperatingAlertService.Event> slots;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final ConcurrentHashMap<String, OperatingAlertService.Error> pendingErrors = new ConcurrentHashMap<>();
+
+    public EventBuffer(int capacity, Overflow overflow) {
+        this(capacity, overflow, event -> {});
+    }
+
+    public EventBuffer(int capacity, Overflow overflow, Consumer<OperatingAlertService.Event> droppedListener) {
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.droppedListener = droppedListener;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an error or counts it for an already buffered error with the same root cause. Returns the added error
+     * or <code>null</code>, if it has been counted.
+     */
+    public OperatingAlertService.Error addError(Throwable error) {
+        final var key = key(error);
+        while(true) {
+            final var pending = this.pendingErrors.get(key);
+            if(pending != null && pending.occurredAgain()) {
+                return null;
+            }
+            final var created = new OperatingAlertService.Error(error);
+            if(pending == null ? this.pendingErrors.putIfAbsent(key, created) == null : this.pendingErrors.replace(key, pending, created)) {
+                add(created);
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Adds an event.
+     */
+    public void add(OperatingAlertService.Event event) {
+        while(!offer(event)) {
+            if(this.overflow == Overflow.DROP_NEWEST) {
+                this.dropped.incrementAndGet();
+                seal(event);
+                this.droppedListener.accept(event);
+                return;
+            }
+            final var oldest = poll();
+            if(oldest != null) {
+                this.dropped.incrementAndGet();
+                seal(oldest);
+                this.droppedListener.accept(oldest);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns all buffered events. Coalesced errors won't be counted anymore after they've been drained.
+     */
+    public List<OperatingAlertService.Event> drain() {
+        final var events = new ArrayList<OperatingAlertService.Event>();
+        OperatingAlertService.Event event;
+        while((event = poll()) != null) {
+            seal(event);
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Returns and resets the number of events dropped because the buffer was full.
+     */
+    public long drainDropped() {
+        return this.dropped.getAndSet(0);
+    }
+
+    private boolean offer(OperatingAlertService.Event event) {
+        while(true) {
+            final var position = this.tail.get();
+            final var index = (int) (position % this.capacity);
+            final var difference = this.sequences.get(index) - position;
+            if(difference == 0) {
+                if(this.tail.compareAndSet(position, position + 1)) {
+                    this.slots.set(index, event);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if(difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    private OperatingAlertService.Event poll() {
+        while(true) {
+            final var position = this.head.get();
+            final var index = (int) (position % this.capacity);
+            final var difference = this.sequences.get(index) - (position + 1);
+            if(difference == 0) {
+                if(this.head.compareAndSet(position, position + 1)) {
+                    final var event = this.slots.getAndSet(index, null);
+                    this.sequences.set(index, position + this.capacity);
+                    return event;
+                }
+            } else if(difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    private void seal(OperatingAlertService.Event event) {
+        if(event instanceof OperatingAlertService.Error error) {
+            error.seal();
+            this.pendingErrors.remove(key(error.getRootCause()), error);
+        }
+    }
+
+    private static String key(Throwable error) {
+        var rootCause = error;
+        while(rootCause.getCause() != null) {
+            rootCause = rootCause.getCause();
+        }
+        return rootCause.getClass().getName() + ":" + Objects.toString(rootCause.getMessage(), "");
+    }
+}
@@ -83,11 +83,7 @@ public class FreeMarkerContentGenerator implements ContentGenerator {
         return Flux.fromIterable(data.keySet())
                 .map(sensor -> {
                     final var templateData = new HashMap<String, Object>();
-                    final var measurements = data.get(sensor);
-                    templateData.put("minTemp", measurements.stream().min(Comparator.comparing(ClimateMeasurement::getTemperature)).orElseThrow());
-                    templateData.put("maxTemp", measurements.stream().max(Comparator.comparing(ClimateMeasurement::getTemperature)).orElseThrow());
-                    templateData.put("minHum", measurements.stream().min(Comparator.comparing(ClimateMeasurement::getHumidity)).orElseThrow());
-                    templateData.put("maxHum", measurements.stream().max(Comparator.comparing(ClimateMeasurement::getHumidity)).orElseThrow());
+                    putStatistics(templateData, ClimateStatistics.ofMeasurements(data.get(sensor)));
                     templateData.put("sensor", sensor);
                     return templateData;
                 })
@@ -122,11 +118,7 @@ public class FreeMarkerContentGenerator implements ContentGenerator {
         return Flux.fromIterable(data.keySet())
                 .map(sensor -> {
                     final var templateData = new HashMap<String, Object>();
-                    final var measurements = data.get(sensor);
-                    templateData.put("minTemp", measurements.stream().min(Comparator.comparing(ClimateMeasurementBoundaries::getMinimumTemperature)).orElseThrow());
-                    templateData.put("maxTemp", measurements.stream().max(Comparator.comparing(ClimateMeasurementBoundaries::getMaximumTemperature)).orElseThrow());
-                    templateData.put("minHum", measurements.stream().min(Comparator.comparing(ClimateMeasurementBoundaries::getMinimumHumidity)).orElseThrow());
-                    templateData.put("maxHum", measurements.stream().max(Comparator.comparing(ClimateMeasurementBoundaries::getMaximumHumidity)).orElseThrow());
+                    putStatistics(templateData, ClimateStatistics.ofBoundaries(data.get(sensor)));
                     templateData.put("tempDiagram", diagrams.get(sensor).get("temperature"));
                     templateData.put("humDiagram", diagrams.get(sensor).get("humidity"));
                     templateData.put("sensor", sensor);
@@ -152,7 +144,7 @@ public class FreeMarkerContentGenerator implements ContentGenerator {
     }
 
     @Override
-    public Mono<String> generateClimateAlert(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
+    public Mono<String> generateClimateAlert(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data, String chartContentId) {
         if(data.isEmpty()) {
             return Mono.empty();
         }
@@ -160,11 +152,7 @@ public class FreeMarkerContentGenerator implements ContentGenerator {
                 .filter(sensor -> !data.get(sensor).isEmpty())
                 .map(sensor -> {
                     final var templateData = new HashMap<String, Object>();
-                    final var measurements = data.get(sensor);
-                    templateData.put("minTemp", measurements.stream().min(Comparator.comparing(ClimateMeasurement::getTemperature)).orElseThrow());
-                    templateData.put("maxTemp", measurements.stream().max(Comparator.comparing(ClimateMeasurement::getTemperature)).orElseThrow());
-                    templateData.put("minHum", measurements.stream().min(Comparator.comparing(ClimateMeasurement::getHumidity)).orElseThrow());
-                    templateData.put("maxHum", measurements.stream().max(Comparator.comparing(ClimateMeasurement::getHumidity)).orElseThrow());
+                    putStatistics(templateData, ClimateStatistics.ofMeasurements(data.get(sensor)));
                     templateData.put("sensor", sensor);
                     return templateData;
                 })
@@ -174,6 +162,9 @@ public class FreeMarkerContentGenerator implements ContentGenerator {
                     templateData.put("boundaries", boundaries);
                     templateData.put("periodStart", start);
                     templateData.put("periodEnd", end);
+                    if(chartContentId != null) {
+                        templateData.put("chart", chartContentId);
+                    }
                     return templateData;
                 })
                 .flatMap(templateData -> {
@@ -195,6 +186,18 @@ public class FreeMarkerContentGenerator implements ContentGenerator {
                             .filter(event -> event instanceof OperatingAlertService.Exceedance)
                             .map(OperatingAlertService.Exceedance.class::cast)
                             .collect(Collectors.toList()));
+                    templateData.put("runtimeExceedances", data.stream()
+                            .filter(event -> event instanceof OperatingAlertService.RuntimeExceedance)
+                            .map(OperatingAlertService.RuntimeExceedance.class::cast)
+                            .collect(Collectors.toList()));
+                    templateData.put("forecasts", data.stream()
+                            .filter(event -> event instanceof OperatingAlertService.Forecast)
+                            .map(OperatingAlertService.Forecast.class::cast)
+                            .collect(Collectors.toList()));
+                    templateData.put("anomalies", data.stream()
+                            .filter(event -> event instanceof OperatingAlertService.Anomaly)
+                            .map(OperatingAlertService.Anomaly.class::cast)
+                            .collect(Collectors.toList()));
                     templateData.put("errors", data.stream()
                             .filter(event -> event instanceof OperatingAlertService.Error)
                             .map(OperatingAlertService.Error.class::cast)
@@ -211,4 +214,20 @@ public class FreeMarkerContentGenerator implements ContentGenerator {
                     }
                 });
     }
+
+    /**
+     * Adds the extremes and averages of the climate data of a sensor to its template data.
+     */
+    private static void putStatistics(Map<String, Object> templateData, ClimateStatistics<?> statistics) {
+        if(statistics.getMinimumTemperature() == null || statistics.getMinimumHumidity() == null) {
+            throw new NoSuchElementException("No climate data available");
+        }
+        templateData.put("minTemp", statistics.getMinimumTemperature());
+        templateData.put("maxTemp", statistics.getMaximumTemperature());
+        templateData.put("minHum", statistics.getMinimumHumidity());
+        templateData.put("maxHum", statistics.getMaximumHumidity());
+        templateData.put("avgTemp", statistics.getAverageTemperature());
+        templateData.put("avgHum", statistics.getAverageHumidity());
+        templateData.put("count", statistics.getCount());
+    }
 }
@@ -0,0 +1,235 @@
+package org.salex.hmip.observer.service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes images as PNG with an indexed palette of up to 256 colors and alpha. The charts consist of few colors, so
+ * the 8 bit indices compress much better than 32 bit ARGB pixels. If an image has more colors, e.g. by
+ * anti-aliasing, the most frequent colors become the palette and the others are mapped to the nearest one.
+ */
+public class IndexedPngEncoder {
+    public enum Filter {
+        /**
+         * Rows are compressed as they are, which is usually best for indexed images.
+         */
+        NONE,
+
+        /**
+         * Each row is filtered by the PNG filter producing the smallest sum of absolute differences.
+         */
+        ADAPTIVE
+    }
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int MAXIMUM_COLORS = 256;
+    private static final int COLOR_TYPE_INDEXED = 3;
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_SUB = 1;
+    private static final int FILTER_UP = 2;
+    private static final int FILTER_AVERAGE = 3;
+    private static final int FILTER_PAETH = 4;
+
+    private final int compressionLevel;
+
+    private final Filter filter;
+
+    /**
+     * @param compressionLevel deflate level from 0 (fastest) to 9 (smallest)
+     */
+    public IndexedPngEncoder(int compressionLevel, Filter filter) {
+        if(compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level has to be between 0 and 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+    }
+
+    public byte[] encode(BufferedImage image) {
+        final var width = image.getWidth();
+        final var height = image.getHeight();
+        final var pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        final var palette = createPalette(pixels);
+        final var indices = new byte[pixels.length];
+        final var lookup = new HashMap<Integer, Integer>();
+        for(int i = 0; i < palette.length; i++) {
+            lookup.put(palette[i], i);
+        }
+        var previousPixel = 0;
+        var previousIndex = (byte) 0;
+        for(int i = 0; i < pixels.length; i++) {
+            // Runs of the same color are frequent, so the lookup is skipped for them
+            if(i == 0 || pixels[i] != previousPixel) {
+                previousPixel = pixels[i];
+                previousIndex = (byte) (int) lookup.computeIfAbsent(previousPixel, color -> nearest(palette, color));
+            }
+            indices[i] = previousIndex;
+        }
+
+        final var out = new ByteArrayOutputStream(pixels.length / 8);
+        out.writeBytes(SIGNATURE);
+        writeChunk(out, "IHDR", ByteBuffer.allocate(13)
+                .putInt(width)
+                .putInt(height)
+                .put((byte) 8)
+                .put((byte) COLOR_TYPE_INDEXED)
+                .put((byte) 0)
+                .put((byte) 0)
+                .put((byte) 0)
+                .array());
+        final var colors = new byte[palette.length * 3];
+        final var alphas = new byte[palette.length];
+        var opaque = true;
+        for(int i = 0; i < palette.length; i++) {
+            colors[3 * i] = (byte) (palette[i] >> 16);
+            colors[3 * i + 1] = (byte) (palette[i] >> 8);
+            colors[3 * i + 2] = (byte) palette[i];
+            alphas[i] = (byte) (palette[i] >>> 24);
+            opaque &= alphas[i] == (byte) 0xFF;
+        }
+        writeChunk(out, "PLTE", colors);
+        if(!opaque) {
+            writeChunk(out, "tRNS", alphas);
+        }
+        writeChunk(out, "IDAT", compress(filter(indices, width, height)));
+        writeChunk(out, "IEND", new byte[0]);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the colors of the image ordered by their frequency, limited to the maximum number of colors.
+     */
+    private int[] createPalette(int[] pixels) {
+        final var counts = new HashMap<Integer, int[]>();
+        var previous = 0;
+        int[] count = null;
+        for(var pixel : pixels) {
+            // Fully transparent pixels share a single color
+            final var color = (pixel >>> 24) == 0 ? 0 : pixel;
+            if(count == null || color != previous) {
+                count = counts.computeIfAbsent(color, key -> new int[1]);
+                previous = color;
+            }
+            count[0]++;
+        }
+        return counts.entrySet().stream()
+                .sorted((first, second) -> Integer.compare(second.getValue()[0], first.getValue()[0]))
+                .limit(MAXIMUM_COLORS)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private static int nearest(int[] palette, int color) {
+        if((color >>> 24) == 0) {
+            for(int i = 0; i < palette.length; i++) {
+                if(palette[i] == 0) {
+                    return i;
+                }
+            }
+        }
+        var best = 0;
+        var bestDistance = Long.MAX_VALUE;
+        for(int i = 0; i < palette.length; i++) {
+            long distance = 0;
+            for(int shift = 0; shift < 32; shift += 8) {
+                final var difference = ((color >>> shift) & 0xFF) - ((palette[i] >>> shift) & 0xFF);
+                distance += (long) difference * difference;
+            }
+            if(distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Prefixes each row by its filter type and filters it.
+     */
+    private byte[] filter(byte[] indices, int width, int height) {
+        final var filtered = new byte[height * (width + 1)];
+        final var candidate = new byte[width];
+        final var best = new byte[width];
+        for(int y = 0; y < height; y++) {
+            final var offset = y * width;
+            final var target = y * (width + 1);
+            if(this.filter == Filter.NONE) {
+                filtered[target] = FILTER_NONE;
+                System.arraycopy(indices, offset, filtered, target + 1, width);
+                continue;
+            }
+            var bestType = FILTER_NONE;
+            var bestSum = Long.MAX_VALUE;
+            for(int type = FILTER_NONE; type <= FILTER_PAETH; type++) {
+                var sum = 0L;
+                for(int x = 0; x < width; x++) {
+                    final var value = indices[offset + x] & 0xFF;
+                    final var left = x > 0 ? indices[offset + x - 1] & 0xFF : 0;
+                    final var up = y > 0 ? indices[offset - width + x] & 0xFF : 0;
+                    final var upLeft = x > 0 && y > 0 ? indices[offset - width + x - 1] & 0xFF : 0;
+                    final var predicted = switch(type) {
+                        case FILTER_SUB -> left;
+                        case FILTER_UP -> up;
+                        case FILTER_AVERAGE -> (left + up) / 2;
+                        case FILTER_PAETH -> paeth(left, up, upLeft);
+                        default -> 0;
+                    };
+                    candidate[x] = (byte) (value - predicted);
+                    sum += Math.abs(candidate[x]);
+                }
+                if(sum < bestSum) {
+                    bestSum = sum;
+                    bestType = type;
+                    System.arraycopy(candidate, 0, best, 0, width);
+                }
+            }
+            filtered[target] = (byte) bestType;
+            System.arraycopy(best, 0, filtered, target + 1, width);
+        }
+        return filtered;
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        final var estimate = left + up - upLeft;
+        final var distanceLeft = Math.abs(estimate - left);
+        final var distanceUp = Math.abs(estimate - up);
+        final var distanceUpLeft = Math.abs(estimate - upLeft);
+        if(distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    private byte[] compress(byte[] data) {
+        final var deflater = new Deflater(this.compressionLevel);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            final var out = new ByteArrayOutputStream(data.length / 4);
+            final var buffer = new byte[8192];
+            while(!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data) {
+        final var typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final var crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeBytes(ByteBuffer.allocate(4).putInt(data.length).array());
+        out.writeBytes(typeBytes);
+        out.writeBytes(data);
+        out.writeBytes(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+}
@@ -1,5 +1,9 @@
 package org.salex.hmip.observer.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.*;
@@ -14,33 +18,116 @@ import org.jfree.data.xy.XYDataset;
 import org.salex.hmip.observer.data.ClimateMeasurement;
 import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
 import org.salex.hmip.observer.data.HomematicMeasurement;
+import org.salex.hmip.observer.data.Reading;
 import org.salex.hmip.observer.data.Sensor;
 import reactor.core.publisher.Mono;
 
 import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+/**
+ * Chart generator rendering PNG images by JFreeChart. The immutable parts of the charts, like tick units, strokes
+ * and colors, are built once. The pixel buffers and date formats, which can't be shared between threads, are kept
+ * per thread and reused for the next chart of the same size. The images are written as 32 bit ARGB or, much smaller,
+ * with an indexed palette by the {@link IndexedPngEncoder}.
+ */
 public class JFreeChartGenerator implements ChartGenerator {
+    private static final int DETAILS_WIDTH = 600;
+    private static final int DETAILS_HEIGHT = 300;
+    private static final int HISTORY_WIDTH = 520;
+    private static final int HISTORY_HEIGHT = 260;
+
+    private static final NumberTickUnit TEMPERATURE_TICK_UNIT = new NumberTickUnit(5);
+    private static final NumberTickUnit HUMIDITY_TICK_UNIT = new NumberTickUnit(10);
+    private static final DateTickUnit HOUR_TICK_UNIT = new DateTickUnit(DateTickUnitType.HOUR, 1);
+    private static final DateTickUnit MONTH_TICK_UNIT = new DateTickUnit(DateTickUnitType.MONTH, 1);
+    private static final Stroke SOLID_STROKE = new BasicStroke(2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 1.0f);
+    private static final Stroke DASHED_STROKE = new BasicStroke(2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 1.0f,
+            new float[] { 2.0f, 5.0f }, 0.0f);
+    private static final Composite CLEAR = AlphaComposite.getInstance(AlphaComposite.CLEAR);
+
+    private final IndexedPngEncoder encoder;
+
+    private final Map<String, Timer> encodeTimers = new HashMap<>();
+
+    private final Map<String, DistributionSummary> sizes = new HashMap<>();
+
+    private final ThreadLocal<DateFormat> hourFormat = ThreadLocal.withInitial(() -> new SimpleDateFormat("HH"));
+
+    private final ThreadLocal<DateFormat> monthFormat = ThreadLocal.withInitial(() -> new SimpleDateFormat("MM"));
+
+    private final ThreadLocal<BufferedImage> detailsBuffer = ThreadLocal.withInitial(() -> new BufferedImage(DETAILS_WIDTH, DETAILS_HEIGHT, BufferedImage.TYPE_INT_ARGB));
+
+    private final ThreadLocal<BufferedImage> historyBuffer = ThreadLocal.withInitial(() -> new BufferedImage(HISTORY_WIDTH, HISTORY_HEIGHT, BufferedImage.TYPE_INT_ARGB));
+
+    /**
+     * Creates a generator writing 32 bit ARGB images.
+     */
+    public JFreeChartGenerator() {
+        this(null, Metrics.globalRegistry);
+    }
+
+    /**
+     * @param encoder encoder of the images with an indexed palette or <code>null</code> for 32 bit ARGB images
+     */
+    public JFreeChartGenerator(IndexedPngEncoder encoder, MeterRegistry registry) {
+        this.encoder = encoder;
+        for(var kind : List.of("24h", "365d-temperature", "365d-humidity")) {
+            this.encodeTimers.put(kind, Timer.builder("observer.chart.encode")
+                    .description("Time to encode a chart as PNG")
+                    .tag("kind", kind)
+                    .register(registry));
+            this.sizes.put(kind, DistributionSummary.builder("observer.chart.size")
+                    .description("Size of the encoded charts")
+                    .baseUnit("bytes")
+                    .tag("kind", kind)
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Renders one chart of each kind, so AWT, the fonts and the PNG encoder are initialized before the first chart is
+     * requested. The charts are rendered on the thread subscribing, one after the other.
+     */
+    @Override
+    public Mono<Void> warmUp() {
+        return Mono.defer(() -> {
+            final var end = new Date();
+            final var start = new Date(end.getTime() - TimeUnit.HOURS.toMillis(24));
+            final var sensor = new Sensor(0L, "Warm-up", Sensor.Type.HmIP_STHO, "warm-up", "#000000");
+            final var reading = new Reading(end);
+            return create24HourChart(start, end, Map.of(sensor, List.of(
+                    new ClimateMeasurement(reading, sensor, start, 10.0, 50.0, 5.0),
+                    new ClimateMeasurement(reading, sensor, end, 12.0, 55.0, 5.5))))
+                    .flatMap(chart -> create365DayTemperatureChart(start, end, List.of(), sensor));
+        }).then();
+    }
+
     @Override
     public Mono<byte[]> create24HourChart(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
         // Create plot with axis
         final var plot = new XYPlot();
         final var temperatureAxis = new NumberAxis("Temperatur in °C");
         temperatureAxis.setRange(-15, 40);
-        temperatureAxis.setTickUnit(new NumberTickUnit(5));
+        temperatureAxis.setTickUnit(TEMPERATURE_TICK_UNIT);
         final var humidityAxis = new NumberAxis("Relative Luftfeuchtigkeit in %");
         humidityAxis.setRange(0, 100);
-        humidityAxis.setTickUnit(new NumberTickUnit(10));
+        humidityAxis.setTickUnit(HUMIDITY_TICK_UNIT);
         final var timeAxis = new DateAxis("Zeit in Stunden");
         if(!data.isEmpty()) {
             timeAxis.setRange(start, end);
         }
-        timeAxis.setDateFormatOverride(new SimpleDateFormat("HH"));
-        timeAxis.setTickUnit(new DateTickUnit(DateTickUnitType.HOUR, 1));
+        timeAxis.setDateFormatOverride(this.hourFormat.get());
+        timeAxis.setTickUnit(HOUR_TICK_UNIT);
         plot.setRangeAxis(0, temperatureAxis);
         plot.setRangeAxis(1, humidityAxis);
         plot.setDomainAxis(timeAxis);
@@ -62,89 +149,58 @@ public class JFreeChartGenerator implements ChartGenerator {
             plot.mapDatasetToRangeAxis(datasetNumber, 1);
             datasetNumber++;
 
-            // Add data to series
-            final var sensorData = data.get(sensor);
-            Collections.sort(sensorData, Comparator.comparing(HomematicMeasurement::getMeasuringTime));
-            for(var measurement : sensorData) {
-                tempSeries.addOrUpdate(new Minute(measurement.getMeasuringTime()), measurement.getTemperature());
-                humSeries.addOrUpdate(new Minute(measurement.getMeasuringTime()), measurement.getHumidity());
+            // Add data to series, downsampled to one point per pixel
+            final var sensorData = data.get(sensor).stream()
+                    .sorted(Comparator.comparing(HomematicMeasurement::getMeasuringTime))
+                    .toList();
+            final var times = new long[sensorData.size()];
+            final var temperatures = new double[sensorData.size()];
+            final var humidities = new double[sensorData.size()];
+            for(int i = 0; i < times.length; i++) {
+                final var measurement = sensorData.get(i);
+                times[i] = measurement.getMeasuringTime().getTime();
+                temperatures[i] = measurement.getTemperature() != null ? measurement.getTemperature() : Double.NaN;
+                humidities[i] = measurement.getHumidity() != null ? measurement.getHumidity() : Double.NaN;
+            }
+            for(var i : LargestTriangleThreeBuckets.select(times, temperatures, DETAILS_WIDTH)) {
+                tempSeries.addOrUpdate(new Minute(sensorData.get(i).getMeasuringTime()), sensorData.get(i).getTemperature());
+            }
+            for(var i : LargestTriangleThreeBuckets.select(times, humidities, DETAILS_WIDTH)) {
+                humSeries.addOrUpdate(new Minute(sensorData.get(i).getMeasuringTime()), sensorData.get(i).getHumidity());
             }
         }
 
         // Generate the chart and return PNG as byte array
         JFreeChart chart = new JFreeChart(null, null, plot, false);
         chart.setBackgroundPaint(null);
-        try {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ChartUtils.writeChartAsPNG(baos, chart, 600, 300);
-            return Mono.just(baos.toByteArray());
-        } catch (IOException e) {
-            return Mono.error(e);
-        }
+        return render(chart, this.detailsBuffer.get(), "24h");
     }
 
     @Override
     public Mono<byte[]> create365DayTemperatureChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
-        // Create plot with axis
-        final XYPlot plot = new XYPlot();
-        final NumberAxis temperatureAxis = new NumberAxis("Temperatur in °C");
-        temperatureAxis.setRange(-15, 40);
-        temperatureAxis.setTickUnit(new NumberTickUnit(5));
-        final DateAxis timeAxis = new DateAxis("Monat");
-        if(!data.isEmpty()) {
-            timeAxis.setRange(start, end);
-        }
-        timeAxis.setDateFormatOverride(new SimpleDateFormat("MM"));
-        timeAxis.setTickUnit(new DateTickUnit(DateTickUnitType.MONTH, 1));
-        plot.setRangeAxis(temperatureAxis);
-        plot.setDomainAxis(timeAxis);
-
-        // Create time series with collection
-        final TimeSeries maxSeries = new TimeSeries("Maximum");
-        final TimeSeries minSeries = new TimeSeries("Minimum");
-        final TimeSeriesCollection dataset = new TimeSeriesCollection();
-        dataset.addSeries(maxSeries);
-        dataset.addSeries(minSeries);
-        plot.setDataset(dataset);
-
-        // Add data to series
-        Collections.sort(data, Comparator.comparing(ClimateMeasurementBoundaries::getDay));
-        for(var boundaries : data) {
-            final Day day = new Day(boundaries.getDay());
-            maxSeries.add(day, boundaries.getMaximumTemperature());
-            minSeries.add(day, boundaries.getMinimumTemperature());
-        }
-
-        // Generate the chart and return png as byte array
-        final XYDifferenceRenderer renderer = new XYDifferenceRenderer(Color.gray, Color.gray, false);
-        renderer.setSeriesPaint(0, Color.red);
-        renderer.setSeriesPaint(1, Color.blue);
-        plot.setRenderer(renderer);
-        JFreeChart chart = new JFreeChart("Temperaturverlauf " + sensor.getName(), null, plot, false);
-        chart.setBackgroundPaint(null);
-        try {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ChartUtils.writeChartAsPNG(baos, chart, 520, 260);
-            return Mono.just(baos.toByteArray());
-        } catch (IOException e) {
-            return Mono.error(e);
-        }
+        return create365DayChart(start, end, data, "365d-temperature", new NumberAxis("Temperatur in °C"), -15, 40, TEMPERATURE_TICK_UNIT, "Temperaturverlauf " + sensor.getName(),
+                ClimateMeasurementBoundaries::getMinimumTemperature, ClimateMeasurementBoundaries::getMaximumTemperature);
     }
 
     @Override
     public Mono<byte[]> create365DayHumidityChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return create365DayChart(start, end, data, "365d-humidity", new NumberAxis("Relative Luftfeuchtigkeit in %"), 0, 100, HUMIDITY_TICK_UNIT, "Verlauf der relative Luftfeuchtigkeit " + sensor.getName(),
+                ClimateMeasurementBoundaries::getMinimumHumidity, ClimateMeasurementBoundaries::getMaximumHumidity);
+    }
+
+    private Mono<byte[]> create365DayChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, String kind, NumberAxis valueAxis, double minimum, double maximum, NumberTickUnit tickUnit, String title,
+                                           Function<ClimateMeasurementBoundaries, Double> lower, Function<ClimateMeasurementBoundaries, Double> upper) {
         // Create plot with axis
         final XYPlot plot = new XYPlot();
-        final NumberAxis humidityAxis = new NumberAxis("Relative Luftfeuchtigkeit in %");
-        humidityAxis.setRange(0, 100);
-        humidityAxis.setTickUnit(new NumberTickUnit(10));
+        valueAxis.setRange(minimum, maximum);
+        valueAxis.setTickUnit(tickUnit);
         final DateAxis timeAxis = new DateAxis("Monat");
         if(!data.isEmpty()) {
             timeAxis.setRange(start, end);
         }
-        timeAxis.setDateFormatOverride(new SimpleDateFormat("MM"));
-        timeAxis.setTickUnit(new DateTickUnit(DateTickUnitType.MONTH, 1));
-        plot.setRangeAxis(humidityAxis);
+        timeAxis.setDateFormatOverride(this.monthFormat.get());
+        timeAxis.setTickUnit(MONTH_TICK_UNIT);
+        plot.setRangeAxis(valueAxis);
         plot.setDomainAxis(timeAxis);
 
         // Create time series with collection
@@ -155,12 +211,14 @@ public class JFreeChartGenerator implements ChartGenerator {
         dataset.addSeries(minSeries);
         plot.setDataset(dataset);
 
-        // Add data to series
-        Collections.sort(data, Comparator.comparing(ClimateMeasurementBoundaries::getDay));
-        for(var boundaries : data) {
+        // Add data to series, sorted without modifying the data, which is shared by the charts rendered in parallel
+        final var days = data.stream()
+                .sorted(Comparator.comparing(ClimateMeasurementBoundaries::getDay))
+                .toList();
+        for(var boundaries : days) {
             final Day day = new Day(boundaries.getDay());
-            maxSeries.add(day, boundaries.getMaximumHumidity());
-            minSeries.add(day, boundaries.getMinimumHumidity());
+            maxSeries.add(day, upper.apply(boundaries));
+            minSeries.add(day, lower.apply(boundaries));
         }
 
         // Generate the chart and return png as byte array
@@ -168,12 +226,38 @@ public class JFreeChartGenerator implements ChartGenerator {
         renderer.setSeriesPaint(0, Color.red);
         renderer.setSeriesPaint(1, Color.blue);
         plot.setRenderer(renderer);
-        JFreeChart chart = new JFreeChart("Verlauf der relative Luftfeuchtigkeit " + sensor.getName(), null, plot, false);
+        JFreeChart chart = new JFreeChart(title, null, plot, false);
         chart.setBackgroundPaint(null);
+        return render(chart, this.historyBuffer.get(), kind);
+    }
+
+    /**
+     * Draws the chart into the cleared pixel buffer of the current thread and encodes it as PNG. The encoding time
+     * and size of the image are recorded per kind of chart.
+     */
+    private Mono<byte[]> render(JFreeChart chart, BufferedImage buffer, String kind) {
+        final var graphics = buffer.createGraphics();
         try {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ChartUtils.writeChartAsPNG(baos, chart, 520, 260);
-            return Mono.just(baos.toByteArray());
+            graphics.setComposite(CLEAR);
+            graphics.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+            graphics.setComposite(AlphaComposite.SrcOver);
+            chart.draw(graphics, new Rectangle2D.Double(0, 0, buffer.getWidth(), buffer.getHeight()));
+        } finally {
+            graphics.dispose();
+        }
+        final var start = System.nanoTime();
+        try {
+            final byte[] image;
+            if(this.encoder != null) {
+                image = this.encoder.encode(buffer);
+            } else {
+                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ChartUtils.writeBufferedImageAsPNG(baos, buffer);
+                image = baos.toByteArray();
+            }
+            this.encodeTimers.get(kind).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            this.sizes.get(kind).record(image.length);
+            return Mono.just(image);
         } catch (IOException e) {
             return Mono.error(e);
         }
@@ -189,12 +273,7 @@ public class JFreeChartGenerator implements ChartGenerator {
         final XYSplineRenderer renderer = new XYSplineRenderer();
         renderer.setSeriesPaint(0, paint);
         renderer.setSeriesShapesVisible(0, false);
-        if (dashed) {
-            renderer.setSeriesStroke(0, new BasicStroke(2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 1.0f,
-                    new float[] { 2.0f, 5.0f }, 0.0f));
-        } else {
-            renderer.setSeriesStroke(0, new BasicStroke(2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 1.0f));
-        }
+        renderer.setSeriesStroke(0, dashed ? DASHED_STROKE : SOLID_STROKE);
         return renderer;
     }
 }
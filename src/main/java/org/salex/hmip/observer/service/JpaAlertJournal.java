@@ -0,0 +1,239 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Alert journal stored in the table <code>alert_journal</code>. The entries of operating alert events are kept in
+ * memory while their delivery is pending, so the occurrences of coalesced errors are updated on each flush. An entry
+ * stops being pending, when its delivery is confirmed or has failed or when the event has been dropped. Entries
+ * whose delivery has failed stay undelivered in the table and are recovered for the next delivery.
+ */
+public class JpaAlertJournal implements AlertJournal {
+    private static final Logger LOG = LoggerFactory.getLogger(JpaAlertJournal.class);
+
+    private static final Set<AlertJournalEntry.Kind> OPERATING_KINDS = Set.of(
+            AlertJournalEntry.Kind.ERROR,
+            AlertJournalEntry.Kind.OPERATING_EXCEEDANCE,
+            AlertJournalEntry.Kind.RUNTIME_EXCEEDANCE,
+            AlertJournalEntry.Kind.ANOMALY);
+
+    private final AlertJournalRepository alertJournalRepository;
+
+    private final OperatingMeasurementRepository operatingMeasurementRepository;
+
+    private final RuntimeMeasurementRepository runtimeMeasurementRepository;
+
+    private final ClimateMeasurementRepository climateMeasurementRepository;
+
+    private final ConcurrentLinkedQueue<AlertJournalEntry> recorded = new ConcurrentLinkedQueue<>();
+
+    private final Map<OperatingAlertService.Event, AlertJournalEntry> pending = new ConcurrentHashMap<>();
+
+    public JpaAlertJournal(AlertJournalRepository alertJournalRepository, OperatingMeasurementRepository operatingMeasurementRepository, RuntimeMeasurementRepository runtimeMeasurementRepository, ClimateMeasurementRepository climateMeasurementRepository) {
+        this.alertJournalRepository = alertJournalRepository;
+        this.operatingMeasurementRepository = operatingMeasurementRepository;
+        this.runtimeMeasurementRepository = runtimeMeasurementRepository;
+        this.climateMeasurementRepository = climateMeasurementRepository;
+    }
+
+    @Override
+    public void record(OperatingAlertService.Event event) {
+        final AlertJournalEntry entry;
+        if(event instanceof OperatingAlertService.Error error) {
+            entry = new AlertJournalEntry(AlertJournalEntry.Kind.ERROR, error.getTimestamp(), null, null, error.getRootCause().toString(), false);
+        } else if(event instanceof OperatingAlertService.Exceedance exceedance) {
+            entry = new AlertJournalEntry(AlertJournalEntry.Kind.OPERATING_EXCEEDANCE, exceedance.getTimestamp(), null, exceedance.getMeasurement().getId(), null, false);
+        } else if(event instanceof OperatingAlertService.RuntimeExceedance exceedance) {
+            entry = new AlertJournalEntry(AlertJournalEntry.Kind.RUNTIME_EXCEEDANCE, exceedance.getTimestamp(), null, exceedance.getMeasurement().getId(), null, false);
+        } else if(event instanceof OperatingAlertService.Anomaly anomaly) {
+            final var message = String.format(Locale.ROOT, "%s %s expected %.3f deviation %.3f score %.3f",
+                    anomaly.getValue(), anomaly.getKind(), anomaly.getExpected(), anomaly.getDeviation(), anomaly.getScore());
+            entry = new AlertJournalEntry(AlertJournalEntry.Kind.ANOMALY, anomaly.getTimestamp(), anomaly.getMeasurement().getSensor(), anomaly.getMeasurement().getId(), message, false);
+            entry.setAnomaly(anomaly.getValue().name(), anomaly.getKind().name(), anomaly.getExpected(), anomaly.getDeviation(), anomaly.getScore());
+        } else {
+            return;
+        }
+        this.pending.put(event, entry);
+        this.recorded.add(entry);
+    }
+
+    @Override
+    public void recordClimateAlert(ClimateMeasurement measurement, ClimateRule rule, AlertStateMachine.State state) {
+        final var kind = state == AlertStateMachine.State.FIRING ? AlertJournalEntry.Kind.CLIMATE_FIRING : AlertJournalEntry.Kind.CLIMATE_RESOLVED;
+        this.recorded.add(new AlertJournalEntry(kind, measurement.getMeasuringTime(), measurement.getSensor(), measurement.getId(), rule.toString(), true));
+    }
+
+    @Override
+    @Transactional
+    public void confirmDelivery(List<OperatingAlertService.Event> events) {
+        final var delivered = new ArrayList<AlertJournalEntry>();
+        for(var event : events) {
+            final var entry = this.pending.remove(event);
+            if(entry != null) {
+                update(entry, event);
+                entry.setDelivered(true);
+                delivered.add(entry);
+            }
+        }
+        flush();
+        this.alertJournalRepository.saveAll(delivered.stream().filter(entry -> entry.getId() != null).toList());
+    }
+
+    @Override
+    public void failDelivery(List<OperatingAlertService.Event> events) {
+        for(var event : events) {
+            release(event, false);
+        }
+    }
+
+    @Override
+    public void discard(OperatingAlertService.Event event) {
+        release(event, true);
+    }
+
+    @Override
+    @Transactional
+    public List<OperatingAlertService.Event> recover(int limit) {
+        flush();
+        final var pendingIds = this.pending.values().stream()
+                .map(AlertJournalEntry::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        final var page = this.alertJournalRepository.findUndelivered(OPERATING_KINDS, PageRequest.of(0, limit + pendingIds.size()));
+        final var entries = page.stream()
+                .filter(entry -> !pendingIds.contains(entry.getId()))
+                .limit(limit)
+                .toList();
+        if(entries.isEmpty()) {
+            return List.of();
+        }
+        if(page.size() == limit + pendingIds.size()) {
+            final var failed = this.alertJournalRepository.markFailedBefore(OPERATING_KINDS, entries.get(entries.size() - 1).getEventTime());
+            if(failed > 0) {
+                LOG.warn(String.format("%d undelivered operating alert events exceeding the limit marked as failed", failed));
+            }
+        }
+        final var events = new ArrayList<OperatingAlertService.Event>();
+        for(var entry : entries) {
+            final var event = restore(entry);
+            if(event != null) {
+                this.pending.put(event, entry);
+                events.add(0, event);
+            } else {
+                entry.setFailed(true);
+                this.recorded.add(entry);
+            }
+        }
+        LOG.info(String.format("%d undelivered operating alert events recovered", events.size()));
+        return events;
+    }
+
+    @Override
+    @Transactional
+    public synchronized void flush() {
+        final var entries = new ArrayList<AlertJournalEntry>();
+        AlertJournalEntry entry;
+        while((entry = this.recorded.poll()) != null) {
+            entries.add(entry);
+        }
+        this.pending.forEach((event, pendingEntry) -> {
+            if(update(pendingEntry, event) && pendingEntry.getId() != null) {
+                entries.add(pendingEntry);
+            }
+        });
+        if(!entries.isEmpty()) {
+            this.alertJournalRepository.saveAll(entries);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AlertJournalEntry> getEntries(Date startTime, Date endTime) {
+        return this.alertJournalRepository.findByEventTimeBetweenOrderByEventTimeDesc(startTime, endTime);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AlertJournalEntry> getEntries(Date startTime, Date endTime, Sensor sensor) {
+        return this.alertJournalRepository.findByEventTimeBetweenAndSensorOrderByEventTimeDesc(startTime, endTime, sensor);
+    }
+
+    /**
+     * Stops the entry of the event from being pending. Its final state is written by the next flush, if it has been
+     * written before. Otherwise it's still recorded.
+     */
+    private synchronized void release(OperatingAlertService.Event event, boolean failed) {
+        final var entry = this.pending.remove(event);
+        if(entry != null) {
+            update(entry, event);
+            entry.setFailed(failed);
+            if(entry.getId() != null) {
+                this.recorded.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Updates the occurrences of a coalesced error and returns <code>true</code>, if they have changed.
+     */
+    private boolean update(AlertJournalEntry entry, OperatingAlertService.Event event) {
+        if(event instanceof OperatingAlertService.Error error && error.getCount() != entry.getCount()) {
+            entry.setCount(error.getCount());
+            entry.setLastTime(error.getLastSeen());
+            return true;
+        }
+        return false;
+    }
+
+    private OperatingAlertService.Event restore(AlertJournalEntry entry) {
+        if(entry.getKind() != AlertJournalEntry.Kind.ERROR && entry.getMeasurementId() == null) {
+            return null;
+        }
+        return switch(entry.getKind()) {
+            case ERROR -> new OperatingAlertService.Error(new RuntimeException(entry.getMessage()), entry.getEventTime(), entry.getLastTime(), entry.getCount());
+            case OPERATING_EXCEEDANCE -> this.operatingMeasurementRepository.findById(entry.getMeasurementId())
+                    .map(measurement -> new OperatingAlertService.Exceedance(measurement, entry.getEventTime()))
+                    .orElse(null);
+            case RUNTIME_EXCEEDANCE -> this.runtimeMeasurementRepository.findById(entry.getMeasurementId())
+                    .map(measurement -> new OperatingAlertService.RuntimeExceedance(measurement, entry.getEventTime()))
+                    .orElse(null);
+            case ANOMALY -> restoreAnomaly(entry);
+            default -> null;
+        };
+    }
+
+    /**
+     * Restores the anomaly from its own columns, the message is for display only.
+     */
+    private OperatingAlertService.Event restoreAnomaly(AlertJournalEntry entry) {
+        if(entry.getAnomalyValue() == null || entry.getAnomalyKind() == null || entry.getExpected() == null || entry.getDeviation() == null || entry.getScore() == null) {
+            return null;
+        }
+        final ClimateRule.Value value;
+        final OperatingAlertService.Anomaly.Kind kind;
+        try {
+            value = ClimateRule.Value.valueOf(entry.getAnomalyValue());
+            kind = OperatingAlertService.Anomaly.Kind.valueOf(entry.getAnomalyKind());
+        } catch(IllegalArgumentException e) {
+            return null;
+        }
+        return this.climateMeasurementRepository.findById(entry.getMeasurementId())
+                .map(measurement -> new OperatingAlertService.Anomaly(measurement, value, kind, entry.getExpected(), entry.getDeviation(), entry.getScore()))
+                .orElse(null);
+    }
+}
@@ -0,0 +1,103 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.RuntimeMeasurement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the health of the JVM running the observer by the management MXBeans. Garbage collections and page
+ * cache accesses are reported as differences to the previous reading.
+ */
+public class JvmRuntimeMeasurementService implements RuntimeMeasurementService {
+    private static final Logger LOG = LoggerFactory.getLogger(JvmRuntimeMeasurementService.class);
+
+    private static final String PAGE_CACHE = "org.apache.derby:type=CacheManager,name=PageCache,*";
+
+    private final MBeanServer server;
+
+    private long lastTimestamp;
+
+    private long lastGcCount;
+
+    private long lastGcTime;
+
+    private long lastPageCacheHits;
+
+    private long lastPageCacheMisses;
+
+    public JvmRuntimeMeasurementService() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JvmRuntimeMeasurementService(MBeanServer server) {
+        this.server = server;
+        this.lastTimestamp = ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    @Override
+    public Mono<Reading> measureRuntimeValues(Reading reading) {
+        reading.addMeasurement(measure(reading));
+        return Mono.just(reading);
+    }
+
+    private synchronized RuntimeMeasurement measure(Reading reading) {
+        final var now = System.currentTimeMillis();
+        final var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        final var heapMaximum = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        long gcCount = 0;
+        long gcTime = 0;
+        for(var collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcTime += Math.max(collector.getCollectionTime(), 0);
+        }
+        final var measurement = new RuntimeMeasurement(
+                reading,
+                heap.getUsed() / (1024.0 * 1024.0),
+                (double) heap.getUsed() / heapMaximum * 100,
+                gcCount - this.lastGcCount,
+                gcTime - this.lastGcTime,
+                now > this.lastTimestamp ? (double) (gcTime - this.lastGcTime) / (now - this.lastTimestamp) * 100 : 0.0,
+                ManagementFactory.getThreadMXBean().getThreadCount(),
+                null,
+                null);
+        this.lastTimestamp = now;
+        this.lastGcCount = gcCount;
+        this.lastGcTime = gcTime;
+        measurePageCache(measurement);
+        return measurement;
+    }
+
+    private void measurePageCache(RuntimeMeasurement measurement) {
+        try {
+            for(var name : this.server.queryNames(new ObjectName(PAGE_CACHE), null)) {
+                if(!(Boolean) this.server.getAttribute(name, "CollectAccessCounts")) {
+                    this.server.setAttribute(name, new Attribute("CollectAccessCounts", true));
+                }
+                final var hits = (Long) this.server.getAttribute(name, "HitCount");
+                final var misses = (Long) this.server.getAttribute(name, "MissCount");
+                final var used = (Long) this.server.getAttribute(name, "UsedEntries");
+                final var maximum = (Long) this.server.getAttribute(name, "MaxEntries");
+                final var accesses = (hits - this.lastPageCacheHits) + (misses - this.lastPageCacheMisses);
+                if(maximum > 0) {
+                    measurement.setPageCacheUsage((double) used / maximum * 100);
+                }
+                if(accesses > 0) {
+                    measurement.setPageCacheHitRatio((double) (hits - this.lastPageCacheHits) / accesses * 100);
+                }
+                this.lastPageCacheHits = hits;
+                this.lastPageCacheMisses = misses;
+                return;
+            }
+        } catch(JMException e) {
+            LOG.warn("Page cache of the database could not be measured: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.salex.hmip.observer.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Reads numeric values from a file of the <code>/proc</code> or <code>/sys</code> file system. The file is kept
+ * open and read again from the beginning into a preallocated buffer on each {@link #reload()}, so reading a
+ * value doesn't allocate any memory.
+ */
+public class KernelFileReader implements Closeable {
+    private final Path path;
+
+    private final RandomAccessFile file;
+
+    private final byte[] buffer;
+
+    private int length;
+
+    public KernelFileReader(Path path) throws IOException {
+        this(path, 4096);
+    }
+
+    public KernelFileReader(Path path, int bufferSize) throws IOException {
+        this.path = path;
+        this.file = new RandomAccessFile(path.toFile(), "r");
+        this.buffer = new byte[bufferSize];
+    }
+
+    public static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Reads the current content of the file into the buffer.
+     */
+    public KernelFileReader reload() throws IOException {
+        this.file.seek(0);
+        this.length = 0;
+        int count;
+        while(this.length < this.buffer.length && (count = this.file.read(this.buffer, this.length, this.buffer.length - this.length)) > 0) {
+            this.length += count;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the first number of the file content.
+     */
+    public long firstNumber() throws IOException {
+        return parseNumber(0);
+    }
+
+    /**
+     * Returns the number following the given key at the beginning of a line.
+     */
+    public long numberAfter(byte[] key) throws IOException {
+        int lineStart = 0;
+        while(lineStart < this.length) {
+            if(startsWith(lineStart, key)) {
+                return parseNumber(lineStart + key.length);
+            }
+            while(lineStart < this.length && this.buffer[lineStart] != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        throw new IOException("Key not found in " + this.path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    private boolean startsWith(int offset, byte[] key) {
+        if(offset + key.length > this.length) {
+            return false;
+        }
+        for(int i = 0; i < key.length; i++) {
+            if(this.buffer[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long parseNumber(int offset) throws IOException {
+        var position = offset;
+        while(position < this.length && (this.buffer[position] < '0' || this.buffer[position] > '9') && this.buffer[position] != '-') {
+            position++;
+        }
+        var negative = false;
+        if(position < this.length && this.buffer[position] == '-') {
+            negative = true;
+            position++;
+        }
+        if(position >= this.length || this.buffer[position] < '0' || this.buffer[position] > '9') {
+            throw new IOException("No number found in " + this.path);
+        }
+        long value = 0;
+        while(position < this.length && this.buffer[position] >= '0' && this.buffer[position] <= '9') {
+            value = value * 10 + (this.buffer[position] - '0');
+            position++;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,139 @@
+package org.salex.hmip.observer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Downsampling of a time series by Largest-Triangle-Three-Buckets. The first and last point are kept and the points
+ * between are split into buckets, from each of which the point spanning the largest triangle with the previously
+ * selected point and the average of the next bucket is selected. Peaks and the shape of the series are preserved,
+ * while the number of points is limited to the budget, e.g. the width of the chart in pixels.
+ */
+public class LargestTriangleThreeBuckets {
+    /**
+     * Smallest budget a series is downsampled to, the first and last point and one point between. A smaller budget
+     * keeps all points.
+     */
+    public static final int MINIMUM_BUDGET = 3;
+
+    private LargestTriangleThreeBuckets() {
+    }
+
+    /**
+     * Returns the ascending indices of the points selected from the series, which has to be sorted by time. Missing
+     * values (NaN) are never selected. If the series doesn't exceed the budget, all indices are returned.
+     */
+    public static int[] select(long[] times, double[] values, int budget) {
+        if(values.length <= budget || budget < MINIMUM_BUDGET) {
+            return range(values.length);
+        }
+        var valid = 0;
+        for(var value : values) {
+            if(!Double.isNaN(value)) {
+                valid++;
+            }
+        }
+        if(valid == values.length) {
+            return selectValid(times, values, budget);
+        }
+        final var indices = new int[valid];
+        final var validTimes = new long[valid];
+        final var validValues = new double[valid];
+        for(int i = 0, j = 0; i < values.length; i++) {
+            if(!Double.isNaN(values[i])) {
+                indices[j] = i;
+                validTimes[j] = times[i];
+                validValues[j] = values[i];
+                j++;
+            }
+        }
+        if(valid <= budget) {
+            return indices;
+        }
+        final var selected = selectValid(validTimes, validValues, budget);
+        for(int i = 0; i < selected.length; i++) {
+            selected[i] = indices[selected[i]];
+        }
+        return selected;
+    }
+
+    /**
+     * Downsamples the points, which have to be sorted by time, to the budget. With multiple values per point the
+     * budget is shared between them and a point is kept, if it is selected for any of the values.
+     */
+    @SafeVarargs
+    public static <T> List<T> downsample(List<T> points, int budget, ToLongFunction<T> time, ToDoubleFunction<T>... values) {
+        if(points.size() <= budget || values.length == 0) {
+            return points;
+        }
+        final var times = new long[points.size()];
+        for(int i = 0; i < times.length; i++) {
+            times[i] = time.applyAsLong(points.get(i));
+        }
+        final var selected = new TreeSet<Integer>();
+        for(var value : values) {
+            final var series = new double[points.size()];
+            for(int i = 0; i < series.length; i++) {
+                series[i] = value.applyAsDouble(points.get(i));
+            }
+            for(var index : select(times, series, budget / values.length)) {
+                selected.add(index);
+            }
+        }
+        final var result = new ArrayList<T>(selected.size());
+        selected.forEach(index -> result.add(points.get(index)));
+        return result;
+    }
+
+    private static int[] selectValid(long[] times, double[] values, int budget) {
+        final var count = values.length;
+        final var selected = new int[budget];
+        final var bucketSize = (double) (count - 2) / (budget - 2);
+        final var origin = times[0];
+        var previous = 0;
+        for(int bucket = 0; bucket < budget - 2; bucket++) {
+            // Average of the next bucket as third point of the triangle
+            final var nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            final var nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, count);
+            var averageTime = 0.0;
+            var averageValue = 0.0;
+            for(int i = nextStart; i < nextEnd; i++) {
+                averageTime += times[i] - origin;
+                averageValue += values[i];
+            }
+            averageTime /= nextEnd - nextStart;
+            averageValue /= nextEnd - nextStart;
+
+            // Point of the current bucket spanning the largest triangle
+            final var start = (int) Math.floor(bucket * bucketSize) + 1;
+            final var end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            final double previousTime = times[previous] - origin;
+            final var previousValue = values[previous];
+            var largestArea = -1.0;
+            var next = start;
+            for(int i = start; i < end; i++) {
+                final var area = Math.abs((previousTime - averageTime) * (values[i] - previousValue)
+                        - (previousTime - (times[i] - origin)) * (averageValue - previousValue));
+                if(area > largestArea) {
+                    largestArea = area;
+                    next = i;
+                }
+            }
+            selected[bucket + 1] = next;
+            previous = next;
+        }
+        selected[budget - 1] = count - 1;
+        return selected;
+    }
+
+    private static int[] range(int count) {
+        final var indices = new int[count];
+        for(int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+}
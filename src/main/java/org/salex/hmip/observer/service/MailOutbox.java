@@ -0,0 +1,245 @@
+package org.salex.hmip.observer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.salex.hmip.observer.data.OutboxMail;
+import org.salex.hmip.observer.data.OutboxMailRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import javax.activation.DataHandler;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.UnsupportedEncodingException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent outbox of the alert mails. Mails are stored in the table <code>mail_outbox</code> and sent later by
+ * {@link #send()}, so a stalled SMTP server doesn't block the producer and a failed mail isn't lost. Mails with the
+ * same subject, which are due at the same time, are combined into a single digest and all mails of a batch are sent
+ * over one connection. A failed mail is retried with exponential backoff until the maximum number of attempts. Sent
+ * and finally failed mails are kept until they are purged by {@link #purge(Date)}.
+ */
+public class MailOutbox {
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutbox.class);
+
+    private static final int MAXIMUM_BACKOFF_SHIFT = 6;
+
+    private final JavaMailSender mailSender;
+
+    private final InternetAddress[] recipients;
+
+    private final OutboxMailRepository repository;
+
+    private final long delay;
+
+    private final long backoff;
+
+    private final int maximumAttempts;
+
+    private final AtomicLong depth;
+
+    private final Timer sendTimer;
+
+    private final Timer latencyTimer;
+
+    private final Counter failedCounter;
+
+    /**
+     * @param delay time a new mail waits for further mails with the same subject
+     * @param backoff delay of the first retry, which is doubled with each further retry up to 64 times the backoff
+     * @param maximumAttempts attempts after which a mail is given up
+     */
+    public MailOutbox(JavaMailSender mailSender, List<String> recipients, OutboxMailRepository repository, Duration delay, Duration backoff, int maximumAttempts, MeterRegistry registry) {
+        this.mailSender = mailSender;
+        this.recipients = recipients.stream().map(this::createAddress).toList().toArray(new InternetAddress[0]);
+        this.repository = repository;
+        this.delay = delay.toMillis();
+        this.backoff = backoff.toMillis();
+        this.maximumAttempts = maximumAttempts;
+        this.depth = new AtomicLong(repository.countByStatus(OutboxMail.Status.PENDING));
+        Gauge.builder("observer.mail.outbox.depth", this.depth, AtomicLong::get)
+                .description("Mails waiting in the outbox")
+                .register(registry);
+        this.sendTimer = Timer.builder("observer.mail.send")
+                .description("Time to send a batch of mails")
+                .register(registry);
+        this.latencyTimer = Timer.builder("observer.mail.latency")
+                .description("Time from enqueuing a mail until it has been sent")
+                .register(registry);
+        this.failedCounter = Counter.builder("observer.mail.failed")
+                .description("Failed attempts to send a mail")
+                .register(registry);
+    }
+
+    /**
+     * Stores a mail in the outbox.
+     */
+    public OutboxMail enqueue(String subject, String content) {
+        return enqueue(subject, content, Map.of());
+    }
+
+    /**
+     * Stores a mail with inline PNG images in the outbox. The images are referenced in the content by
+     * <code>cid:</code> and the key of the map.
+     */
+    public OutboxMail enqueue(String subject, String content, Map<String, byte[]> images) {
+        return enqueue(subject, content, images, "image/png");
+    }
+
+    /**
+     * Stores a mail with inline images of the given content type in the outbox.
+     */
+    public OutboxMail enqueue(String subject, String content, Map<String, byte[]> images, String contentType) {
+        final var now = new Date();
+        final var mail = new OutboxMail(subject, content, now, new Date(now.getTime() + this.delay));
+        images.forEach((contentId, image) -> mail.addAttachment(contentId, contentType, image));
+        final var saved = this.repository.save(mail);
+        this.depth.incrementAndGet();
+        return saved;
+    }
+
+    public long getDepth() {
+        return this.depth.get();
+    }
+
+    /**
+     * Sends all due mails and returns the number of mails sent.
+     */
+    public synchronized int send() {
+        final var now = new Date();
+        final var due = this.repository.findByStatusAndNextAttemptLessThanEqualOrderByCreated(OutboxMail.Status.PENDING, now);
+        if(due.isEmpty()) {
+            return 0;
+        }
+        final var messages = new LinkedHashMap<MimeMessage, List<OutboxMail>>();
+        final var groups = due.stream().collect(Collectors.groupingBy(OutboxMail::getSubject, LinkedHashMap::new, Collectors.toList()));
+        groups.forEach((subject, mails) -> {
+            try {
+                messages.put(createMessage(subject, mails), mails);
+            } catch(MessagingException | UnsupportedEncodingException e) {
+                fail(mails, e, now);
+            }
+        });
+        final var failures = new HashMap<Object, Exception>();
+        if(!messages.isEmpty()) {
+            final var start = System.nanoTime();
+            try {
+                this.mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch(MailSendException e) {
+                failures.putAll(e.getFailedMessages());
+                if(failures.isEmpty()) {
+                    messages.keySet().forEach(message -> failures.put(message, e));
+                }
+            } catch(MailException e) {
+                messages.keySet().forEach(message -> failures.put(message, e));
+            } finally {
+                this.sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        var sent = 0;
+        for(var entry : messages.entrySet()) {
+            final var failure = failures.get(entry.getKey());
+            if(failure != null) {
+                fail(entry.getValue(), failure, now);
+            } else {
+                for(var mail : entry.getValue()) {
+                    mail.setAttempts(mail.getAttempts() + 1);
+                    mail.setStatus(OutboxMail.Status.SENT);
+                    mail.setSent(now);
+                    mail.setLastError(null);
+                    this.latencyTimer.record(now.getTime() - mail.getCreated().getTime(), TimeUnit.MILLISECONDS);
+                }
+                sent += entry.getValue().size();
+            }
+        }
+        this.repository.saveAll(due);
+        this.depth.set(this.repository.countByStatus(OutboxMail.Status.PENDING));
+        if(sent > 0) {
+            LOG.info(String.format("%d mails sent in %d messages", sent, messages.size() - failures.size()));
+        }
+        return sent;
+    }
+
+    /**
+     * Deletes the sent and finally failed mails created before the given time together with their images and
+     * returns the number of deleted mails. Pending mails are kept.
+     */
+    public synchronized int purge(Date before) {
+        final var finished = this.repository.findByStatusInAndCreatedLessThan(EnumSet.of(OutboxMail.Status.SENT, OutboxMail.Status.FAILED), before);
+        if(!finished.isEmpty()) {
+            this.repository.deleteAll(finished);
+            LOG.info(String.format("%d finished mails purged from the outbox", finished.size()));
+        }
+        return finished.size();
+    }
+
+    private void fail(List<OutboxMail> mails, Exception error, Date now) {
+        for(var mail : mails) {
+            mail.setAttempts(mail.getAttempts() + 1);
+            mail.setLastError(error.getMessage());
+            this.failedCounter.increment();
+            if(mail.getAttempts() >= this.maximumAttempts) {
+                mail.setStatus(OutboxMail.Status.FAILED);
+                LOG.error(String.format("Sending mail '%s' finally failed after %d attempts: %s", mail.getSubject(), mail.getAttempts(), error.getMessage()));
+            } else {
+                final var retryDelay = this.backoff << Math.min(mail.getAttempts() - 1, MAXIMUM_BACKOFF_SHIFT);
+                mail.setNextAttempt(new Date(now.getTime() + retryDelay));
+                LOG.warn(String.format("Sending mail '%s' failed, retrying in %d s: %s", mail.getSubject(), retryDelay / 1000, error.getMessage()));
+            }
+        }
+    }
+
+    private MimeMessage createMessage(String subject, List<OutboxMail> mails) throws MessagingException, UnsupportedEncodingException {
+        final var textPart = new MimeBodyPart();
+        final var message = this.mailSender.createMimeMessage();
+        final var contents = new ArrayList<String>();
+        mails.forEach(mail -> contents.add(mail.getContent()));
+        textPart.setContent(String.join("<hr/>", contents), "text/html");
+        final var multipart = new MimeMultipart("related", textPart);
+        for(var mail : mails) {
+            for(var attachment : mail.getAttachments()) {
+                final var imagePart = new MimeBodyPart();
+                imagePart.setDataHandler(new DataHandler(new ByteArrayDataSource(attachment.getData(), attachment.getContentType())));
+                imagePart.setContentID("<" + attachment.getContentId() + ">");
+                imagePart.setDisposition(MimeBodyPart.INLINE);
+                multipart.addBodyPart(imagePart);
+            }
+        }
+        message.setFrom(new InternetAddress("noreply@salex.org", "Smart Home Observer"));
+        message.setHeader("X-Priority", "1");
+        message.setRecipients(Message.RecipientType.TO, this.recipients);
+        message.setSubject(mails.size() > 1 ? String.format("%s (%d Meldungen)", subject, mails.size()) : subject);
+        message.setContent(multipart);
+        return message;
+    }
+
+    private InternetAddress createAddress(String address) {
+        try {
+            return new InternetAddress(address);
+        } catch(AddressException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.blog.Media;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Looks up media of the blog by their id. Lookups requested within a short window, e.g. by charts uploaded
+ * concurrently, are combined into a single <code>GET /media?include=...</code>, so looking up several media costs a
+ * single round trip.
+ */
+public class MediaBatchLookup {
+    private record Lookup(String id, MonoSink<Media> sink) {
+    }
+
+    private final WebClient client;
+
+    private final Sinks.Many<Lookup> lookups = Sinks.many().unicast().onBackpressureBuffer();
+
+    /**
+     * @param maximumBatchSize maximum number of media looked up by a single request
+     * @param window time a lookup waits for further lookups to be combined with
+     */
+    public MediaBatchLookup(WebClient client, int maximumBatchSize, Duration window) {
+        this.client = client;
+        this.lookups.asFlux()
+                .bufferTimeout(maximumBatchSize, window)
+                .concatMap(this::lookup)
+                .subscribe();
+    }
+
+    /**
+     * Returns the media with the id or an error, if the blog doesn't know it.
+     */
+    public Mono<Media> get(String id) {
+        return Mono.create(sink -> {
+            // Lookups may be requested concurrently, but have to be emitted serialized
+            synchronized(this.lookups) {
+                this.lookups.emitNext(new Lookup(id, sink), Sinks.EmitFailureHandler.FAIL_FAST);
+            }
+        });
+    }
+
+    private Mono<Void> lookup(List<Lookup> batch) {
+        final var ids = batch.stream().map(Lookup::id).distinct().collect(Collectors.joining(","));
+        return this.client.get()
+                .uri(builder -> builder.path("/media")
+                        .queryParam("include", ids)
+                        .queryParam("per_page", batch.size())
+                        .build())
+                .retrieve()
+                .bodyToFlux(Media.class)
+                .collectMap(media -> String.valueOf(media.getId()), Function.identity())
+                .doOnNext(found -> complete(batch, found))
+                .doOnError(e -> batch.forEach(lookup -> lookup.sink().error(e)))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private static void complete(List<Lookup> batch, Map<String, Media> found) {
+        for(var lookup : batch) {
+            final var media = found.get(lookup.id());
+            if(media != null) {
+                lookup.sink().success(media);
+            } else {
+                lookup.sink().error(new Exception("Media " + lookup.id() + " not found in blog"));
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.blog.Image;
+import org.salex.hmip.observer.data.PublishedMedia;
+import org.salex.hmip.observer.data.PublishedMediaRepository;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed index of the media uploaded to the blog. Media is looked up by the SHA-256 of its content, so an
+ * identical image is uploaded once and its media is shared, even if the same image is uploaded concurrently. The
+ * references to each media are counted, so a media is only deleted, when nothing references it anymore. A reference
+ * is taken, when the media is handed out, so the media can't be deleted while a post is written with it, and it has
+ * to be released, if the post isn't written. Media unknown to the index, e.g. uploaded by an earlier version, is never
+ * considered referenced.
+ */
+public class MediaIndex {
+    private final Map<String, PublishedMedia> byHash = new HashMap<>();
+
+    private final Map<String, PublishedMedia> byMediaId = new HashMap<>();
+
+    private final Map<String, Mono<Image>> uploads = new HashMap<>();
+
+    private final PublishedMediaRepository repository;
+
+    private final BlockingExecutor blockingExecutor;
+
+    /**
+     * @param repository repository the index is kept in or <code>null</code> to keep it in memory only
+     */
+    public MediaIndex(PublishedMediaRepository repository, BlockingExecutor blockingExecutor) {
+        this.repository = repository;
+        this.blockingExecutor = blockingExecutor;
+        if(repository != null) {
+            repository.findAll().forEach(this::put);
+        }
+    }
+
+    /**
+     * Creates an index kept in memory only.
+     */
+    public static MediaIndex inMemory() {
+        return new MediaIndex(null, BlockingExecutor.immediate());
+    }
+
+    public static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns the media with the given content or uploads it and takes a reference to it. Concurrent requests for
+     * the same content share a single upload. A failed upload isn't remembered.
+     */
+    public Mono<Image> getOrUpload(String contentHash, Supplier<Mono<Image>> upload) {
+        return Mono.defer(() -> {
+            synchronized(this) {
+                final var indexed = this.byHash.get(contentHash);
+                if(indexed != null) {
+                    return reference(indexed);
+                }
+                final var running = this.uploads.get(contentHash);
+                if(running != null) {
+                    return acquire(running, contentHash, upload);
+                }
+                final var uploading = Mono.defer(upload)
+                        .flatMap(image -> add(contentHash, image))
+                        .doFinally(signal -> {
+                            synchronized(this) {
+                                this.uploads.remove(contentHash);
+                            }
+                        })
+                        .cache();
+                this.uploads.put(contentHash, uploading);
+                return acquire(uploading, contentHash, upload);
+            }
+        });
+    }
+
+    /**
+     * Takes a reference to the indexed media with the id. Returns nothing, if the media isn't indexed anymore.
+     */
+    public Mono<Image> reference(String mediaId) {
+        return Mono.defer(() -> {
+            synchronized(this) {
+                final var indexed = this.byMediaId.get(mediaId);
+                return indexed != null ? reference(indexed) : Mono.empty();
+            }
+        });
+    }
+
+    /**
+     * Releases a reference to each of the media, once for each time the id is given, and returns the media not
+     * referenced anymore, which can be deleted. They are removed from the index at once, so they aren't handed out
+     * again.
+     */
+    public Mono<List<String>> release(Collection<String> mediaIds) {
+        final var changed = new LinkedHashSet<PublishedMedia>();
+        final var removed = new ArrayList<PublishedMedia>();
+        final var unreferenced = new LinkedHashSet<String>();
+        synchronized(this) {
+            for(var mediaId : mediaIds) {
+                final var media = this.byMediaId.get(mediaId);
+                if(media != null && media.getReferences() > 1) {
+                    media.setReferences(media.getReferences() - 1);
+                    changed.add(media);
+                } else {
+                    if(media != null) {
+                        changed.remove(media);
+                        removed.add(media);
+                        take(mediaId);
+                    }
+                    unreferenced.add(mediaId);
+                }
+            }
+        }
+        return save(List.copyOf(changed)).then(delete(removed)).thenReturn(List.copyOf(unreferenced));
+    }
+
+    /**
+     * Removes the deleted media from the index.
+     */
+    public Mono<Void> remove(String mediaId) {
+        final PublishedMedia removed;
+        synchronized(this) {
+            removed = take(mediaId);
+        }
+        return removed != null ? delete(List.of(removed)) : Mono.empty();
+    }
+
+    /**
+     * Takes a reference to the media uploaded by the shared upload. If it has been released and deleted before the
+     * reference is taken, the content is looked up again.
+     */
+    private Mono<Image> acquire(Mono<Image> uploading, String contentHash, Supplier<Mono<Image>> upload) {
+        return uploading.flatMap(image -> reference(image.getId())
+                .switchIfEmpty(Mono.defer(() -> getOrUpload(contentHash, upload))));
+    }
+
+    private Mono<Image> reference(PublishedMedia media) {
+        media.setReferences(media.getReferences() + 1);
+        return save(List.of(media)).thenReturn(toImage(media));
+    }
+
+    private Mono<Image> add(String contentHash, Image image) {
+        final var media = new PublishedMedia(contentHash, image.getId());
+        media.setFull(image.getFull());
+        media.setThumbnail(image.getThumbnail());
+        media.setThumbnailWidth(image.getThumbnailWidth());
+        media.setThumbnailHeight(image.getThumbnailHeight());
+        synchronized(this) {
+            put(media);
+        }
+        return save(List.of(media)).thenReturn(image);
+    }
+
+    private void put(PublishedMedia media) {
+        this.byHash.put(media.getContentHash(), media);
+        this.byMediaId.put(media.getMediaId(), media);
+    }
+
+    private PublishedMedia take(String mediaId) {
+        final var media = this.byMediaId.remove(mediaId);
+        if(media != null) {
+            this.byHash.remove(media.getContentHash());
+        }
+        return media;
+    }
+
+    private Mono<Void> delete(List<PublishedMedia> media) {
+        if(media.isEmpty() || this.repository == null) {
+            return Mono.empty();
+        }
+        return this.blockingExecutor.call(() -> {
+            this.repository.deleteAll(media);
+            return media;
+        }).then();
+    }
+
+    private Mono<Void> save(List<PublishedMedia> media) {
+        if(media.isEmpty() || this.repository == null) {
+            return Mono.empty();
+        }
+        return this.blockingExecutor.call(() -> this.repository.saveAll(media)).then();
+    }
+
+    private static Image toImage(PublishedMedia media) {
+        final var image = new Image(media.getMediaId());
+        image.setFull(media.getFull());
+        image.setThumbnail(media.getThumbnail());
+        image.setThumbnailWidth(media.getThumbnailWidth());
+        image.setThumbnailHeight(media.getThumbnailHeight());
+        return image;
+    }
+}
@@ -0,0 +1,110 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.OperatingMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures the operating values by reading the kernel interfaces in <code>/sys</code> and <code>/proc</code>
+ * directly instead of forking external processes. Only the core voltage still requires <code>vcgencmd</code>
+ * and is skipped when no script is configured.
+ */
+public class NativeOperatingMeasurementService implements OperatingMeasurementService {
+    public static class FileSystemAccess {
+        public String readFile(Path path) throws IOException {
+            return Files.readString(path, StandardCharsets.US_ASCII);
+        }
+
+        public FileStore getFileStore(Path path) throws IOException {
+            return Files.getFileStore(path);
+        }
+    }
+
+    private static final Path CPU_TEMPERATURE = Path.of("/sys/class/thermal/thermal_zone0/temp");
+    private static final Path MEMORY_INFO = Path.of("/proc/meminfo");
+    private static final Path ROOT = Path.of("/");
+
+    private final String cpuMeasureScript;
+
+    private final FileSystemAccess fileSystemAccess;
+
+    private final RaspberryOperatingMeasurementService.OperatingSystemAccess operatingSystemAccess;
+
+    private final BlockingExecutor blockingExecutor;
+
+    public NativeOperatingMeasurementService(String cpuMeasureScript, BlockingExecutor blockingExecutor) {
+        this(cpuMeasureScript, new FileSystemAccess(), new RaspberryOperatingMeasurementService.OperatingSystemAccess(), blockingExecutor);
+    }
+
+    public NativeOperatingMeasurementService(String cpuMeasureScript, FileSystemAccess fileSystemAccess, RaspberryOperatingMeasurementService.OperatingSystemAccess operatingSystemAccess, BlockingExecutor blockingExecutor) {
+        this.cpuMeasureScript = cpuMeasureScript;
+        this.fileSystemAccess = fileSystemAccess;
+        this.operatingSystemAccess = operatingSystemAccess;
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    @Override
+    public Mono<Reading> measureOperatingValues(Reading reading) {
+        return this.blockingExecutor.call(() -> {
+            var measurement = new OperatingMeasurement(reading, readCPUTemperature(), readCoreVoltage(), readDiskUsage(), readMemoryUsage());
+            reading.addMeasurement(measurement);
+            return reading;
+        });
+    }
+
+    /**
+     * Reads the CPU temperature in degree celsius from the first thermal zone.
+     */
+    public double readCPUTemperature() throws IOException {
+        return Long.parseLong(this.fileSystemAccess.readFile(CPU_TEMPERATURE).trim()) / 1000.0;
+    }
+
+    /**
+     * Reads the core voltage by <code>vcgencmd</code>, if a script is configured.
+     */
+    public Double readCoreVoltage() throws IOException {
+        if(this.cpuMeasureScript == null || this.cpuMeasureScript.isBlank()) {
+            return null;
+        }
+        final var result = this.operatingSystemAccess.runCommand(new String[] { this.cpuMeasureScript, "measure_volts" }).split("[=V]");
+        return Double.parseDouble(result[1]);
+    }
+
+    /**
+     * Reads the usage of the root file system in percent.
+     */
+    public double readDiskUsage() throws IOException {
+        final var store = this.fileSystemAccess.getFileStore(ROOT);
+        final var total = (double) store.getTotalSpace();
+        return (total - store.getUnallocatedSpace()) / total * 100;
+    }
+
+    /**
+     * Reads the usage of the system memory in percent, regarding buffers and caches as available memory.
+     */
+    public double readMemoryUsage() throws IOException {
+        long total = -1;
+        long available = -1;
+        for(var line : this.fileSystemAccess.readFile(MEMORY_INFO).split("\n")) {
+            if(line.startsWith("MemTotal:")) {
+                total = parseMemoryInfoValue(line);
+            } else if(line.startsWith("MemAvailable:")) {
+                available = parseMemoryInfoValue(line);
+            }
+        }
+        if(total <= 0 || available < 0) {
+            throw new IOException("Unable to read memory usage from " + MEMORY_INFO);
+        }
+        return (double) (total - available) / total * 100;
+    }
+
+    private long parseMemoryInfoValue(String line) {
+        return Long.parseLong(line.split("[: \\t]+")[1]);
+    }
+}
@@ -1,16 +1,25 @@
 package org.salex.hmip.observer.service;
 
+import org.salex.hmip.observer.data.ClimateMeasurement;
 import org.salex.hmip.observer.data.OperatingMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.RuntimeMeasurement;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 public interface OperatingAlertService {
     abstract class Event {
         private final Date timestamp;
 
         public Event() {
-            this.timestamp = new Date();
+            this(new Date());
+        }
+
+        protected Event(Date timestamp) {
+            this.timestamp = timestamp;
         }
 
         public Date getTimestamp() {
@@ -20,14 +29,66 @@ public interface OperatingAlertService {
     class Error extends Event {
         private final Throwable error;
 
+        private final AtomicLong count = new AtomicLong(1);
+
+        private volatile Date lastSeen;
+
         public Error(Throwable error) {
             this.error = error;
+            this.lastSeen = getTimestamp();
+        }
+
+        /**
+         * Restores an error with the given occurrences, e.g. from the alert journal.
+         */
+        public Error(Throwable error, Date firstSeen, Date lastSeen, long count) {
+            super(firstSeen);
+            this.error = error;
+            this.lastSeen = lastSeen;
+            this.count.set(count);
         }
 
         public Throwable getError() {
             return error;
         }
 
+        /**
+         * Returns how often an error with the same root cause occurred.
+         */
+        public long getCount() {
+            return Math.abs(count.get());
+        }
+
+        public Date getFirstSeen() {
+            return getTimestamp();
+        }
+
+        public Date getLastSeen() {
+            return lastSeen;
+        }
+
+        /**
+         * Counts another occurrence, unless the error has already been sealed.
+         */
+        boolean occurredAgain() {
+            long current;
+            do {
+                current = this.count.get();
+                if(current < 0) {
+                    return false;
+                }
+            } while(!this.count.compareAndSet(current, current + 1));
+            this.lastSeen = new Date();
+            return true;
+        }
+
+        /**
+         * Stops counting further occurrences.
+         */
+        void seal() {
+            this.count.getAndUpdate(current -> current > 0 ? -current : current);
+        }
+
         public Throwable getRootCause() {
             return getRootCause(error);
         }
@@ -47,14 +108,171 @@ public interface OperatingAlertService {
             this.measurement = measurement;
         }
 
+        public Exceedance(OperatingMeasurement measurement, Date timestamp) {
+            super(timestamp);
+            this.measurement = measurement;
+        }
+
         public OperatingMeasurement getMeasurement() {
             return measurement;
         }
     }
+    class RuntimeExceedance extends Event {
+        private final RuntimeMeasurement measurement;
+
+        public RuntimeExceedance(RuntimeMeasurement measurement) {
+            this.measurement = measurement;
+        }
+
+        public RuntimeExceedance(RuntimeMeasurement measurement, Date timestamp) {
+            super(timestamp);
+            this.measurement = measurement;
+        }
+
+        public RuntimeMeasurement getMeasurement() {
+            return measurement;
+        }
+    }
+
+    /**
+     * Climate value deviating from its recent course, as detected by the {@link ClimateAnomalyDetector}.
+     */
+    class Anomaly extends Event {
+        public enum Kind {
+            SPIKE, DRIFT_UP, DRIFT_DOWN
+        }
+
+        private final ClimateMeasurement measurement;
+
+        private final ClimateRule.Value value;
+
+        private final Kind kind;
+
+        private final double expected;
+
+        private final double deviation;
+
+        private final double score;
+
+        public Anomaly(ClimateMeasurement measurement, ClimateRule.Value value, Kind kind, double expected, double deviation, double score) {
+            super(measurement.getMeasuringTime());
+            this.measurement = measurement;
+            this.value = value;
+            this.kind = kind;
+            this.expected = expected;
+            this.deviation = deviation;
+            this.score = score;
+        }
+
+        public ClimateMeasurement getMeasurement() {
+            return measurement;
+        }
+
+        public ClimateRule.Value getValue() {
+            return value;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Double getActual() {
+            return value.of(measurement);
+        }
+
+        /**
+         * Moving average of the value before the measurement.
+         */
+        public double getExpected() {
+            return expected;
+        }
+
+        /**
+         * Moving standard deviation of the value before the measurement.
+         */
+        public double getDeviation() {
+            return deviation;
+        }
+
+        /**
+         * Z-score of a spike or cumulative sum of a drift.
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Projected violation of a climate rule, as predicted by the {@link ClimateForecast}.
+     */
+    class Forecast extends Event {
+        private final ClimateMeasurement measurement;
+
+        private final ClimateRule rule;
+
+        private final Date crossing;
+
+        public Forecast(ClimateMeasurement measurement, ClimateRule rule, Date crossing) {
+            super(measurement.getMeasuringTime());
+            this.measurement = measurement;
+            this.rule = rule;
+            this.crossing = crossing;
+        }
+
+        public ClimateMeasurement getMeasurement() {
+            return measurement;
+        }
+
+        public ClimateRule getRule() {
+            return rule;
+        }
+
+        public Double getActual() {
+            return rule.getValue().of(measurement);
+        }
+
+        /**
+         * Projected time, when the value crosses the threshold of the rule.
+         */
+        public Date getCrossing() {
+            return crossing;
+        }
+    }
 
     void signal(Throwable error);
 
     void check(List<OperatingMeasurement> measurements);
 
+    void checkRuntime(List<RuntimeMeasurement> measurements);
+
+    /**
+     * Raises an event detected elsewhere, e.g. an anomaly of the climate.
+     */
+    void raise(Event event);
+
+    /**
+     * Checks the operating and runtime measurements of the given reading.
+     */
+    default void checkReading(Reading reading) {
+        check(reading.getMeasurements().stream()
+                .filter(m -> m instanceof OperatingMeasurement)
+                .map(OperatingMeasurement.class::cast)
+                .collect(Collectors.toList()));
+        checkRuntime(reading.getMeasurements().stream()
+                .filter(m -> m instanceof RuntimeMeasurement)
+                .map(RuntimeMeasurement.class::cast)
+                .collect(Collectors.toList()));
+    }
+
     List<Event> retrieveEvents();
+
+    /**
+     * Confirms that the given events, retrieved before, have been delivered.
+     */
+    void confirmDelivery(List<Event> events);
+
+    /**
+     * Reports that the delivery of the given events, retrieved before, has failed, so they are retrieved again.
+     */
+    void failDelivery(List<Event> events);
 }
@@ -0,0 +1,96 @@
+package org.salex.hmip.observer.service;
+
+import java.util.Arrays;
+
+/**
+ * Preallocated ring buffer for the samples of a single operating value. When the buffer is full, the oldest
+ * samples will be overwritten. Adding a sample doesn't allocate any memory.
+ */
+public class OperatingSampleBuffer {
+    public static class Summary {
+        private final int count;
+        private final double minimum;
+        private final double maximum;
+        private final double average;
+        private final double percentile95;
+
+        public Summary(int count, double minimum, double maximum, double average, double percentile95) {
+            this.count = count;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.average = average;
+            this.percentile95 = percentile95;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getMinimum() {
+            return minimum;
+        }
+
+        public double getMaximum() {
+            return maximum;
+        }
+
+        public double getAverage() {
+            return average;
+        }
+
+        public double getPercentile95() {
+            return percentile95;
+        }
+    }
+
+    private final double[] samples;
+
+    private final double[] sorted;
+
+    private int next;
+
+    private int size;
+
+    public OperatingSampleBuffer(int capacity) {
+        this.samples = new double[capacity];
+        this.sorted = new double[capacity];
+    }
+
+    public synchronized void add(double sample) {
+        this.samples[this.next] = sample;
+        this.next = (this.next + 1) % this.samples.length;
+        if(this.size < this.samples.length) {
+            this.size++;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Summarizes all samples added since the last call and clears the buffer. Returns <code>null</code> when
+     * no samples are available.
+     */
+    public synchronized Summary drain() {
+        if(this.size == 0) {
+            return null;
+        }
+        final var start = (this.next - this.size + this.samples.length) % this.samples.length;
+        var minimum = Double.MAX_VALUE;
+        var maximum = -Double.MAX_VALUE;
+        var sum = 0.0;
+        for(int i = 0; i < this.size; i++) {
+            final var sample = this.samples[(start + i) % this.samples.length];
+            minimum = Math.min(minimum, sample);
+            maximum = Math.max(maximum, sample);
+            sum += sample;
+            this.sorted[i] = sample;
+        }
+        Arrays.sort(this.sorted, 0, this.size);
+        final var percentile95 = this.sorted[(int) Math.ceil(0.95 * this.size) - 1];
+        final var summary = new Summary(this.size, minimum, maximum, sum / this.size, percentile95);
+        this.size = 0;
+        return summary;
+    }
+}
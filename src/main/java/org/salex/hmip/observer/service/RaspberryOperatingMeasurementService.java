@@ -23,24 +23,29 @@ public class RaspberryOperatingMeasurementService implements OperatingMeasuremen
 
     private final OperatingSystemAccess operatingSystemAccess;
 
-    public RaspberryOperatingMeasurementService(String cpuMeasureScript) {
-        this(cpuMeasureScript, new OperatingSystemAccess());
+    private final BlockingExecutor blockingExecutor;
+
+    public RaspberryOperatingMeasurementService(String cpuMeasureScript, BlockingExecutor blockingExecutor) {
+        this(cpuMeasureScript, new OperatingSystemAccess(), blockingExecutor);
     }
 
     public RaspberryOperatingMeasurementService(String cpuMeasureScript, OperatingSystemAccess operatingSystemAccess) {
+        this(cpuMeasureScript, operatingSystemAccess, BlockingExecutor.immediate());
+    }
+
+    public RaspberryOperatingMeasurementService(String cpuMeasureScript, OperatingSystemAccess operatingSystemAccess, BlockingExecutor blockingExecutor) {
         this.cpuMeasureScript = cpuMeasureScript;
         this.operatingSystemAccess = operatingSystemAccess;
+        this.blockingExecutor = blockingExecutor;
     }
 
     @Override
     public Mono<Reading> measureOperatingValues(Reading reading) {
-        try {
+        return this.blockingExecutor.call(() -> {
             var measurement = new OperatingMeasurement(reading, readCPUTemperature(), readCoreVoltage(), readDiskUsage(), readMemoryUsage());
             reading.addMeasurement(measurement);
-            return Mono.just(reading);
-        } catch(IOException e) {
-            return Mono.error(e);
-        }
+            return reading;
+        });
     }
 
     private Double readCPUTemperature() throws IOException {
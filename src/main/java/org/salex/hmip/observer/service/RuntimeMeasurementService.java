@@ -0,0 +1,8 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.Reading;
+import reactor.core.publisher.Mono;
+
+public interface RuntimeMeasurementService {
+    Mono<Reading> measureRuntimeValues(Reading reading);
+}
@@ -0,0 +1,91 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.OperatingMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Samples the CPU temperature and the memory usage in a high frequency between the readings and adds a summary
+ * of all samples to each reading. The operating measurement contains the averages of the samples as values and
+ * additionally their minimum, maximum and 95th percentile. Core voltage and disk usage are measured once per
+ * reading by the given collector.
+ */
+public class SampledOperatingMeasurementService implements OperatingMeasurementService {
+    private static final Path CPU_TEMPERATURE = Path.of("/sys/class/thermal/thermal_zone0/temp");
+    private static final Path MEMORY_INFO = Path.of("/proc/meminfo");
+    private static final byte[] MEMORY_TOTAL = KernelFileReader.key("MemTotal:");
+    private static final byte[] MEMORY_AVAILABLE = KernelFileReader.key("MemAvailable:");
+
+    private final NativeOperatingMeasurementService collector;
+
+    private final BlockingExecutor blockingExecutor;
+
+    private final Path cpuTemperaturePath;
+
+    private final Path memoryInfoPath;
+
+    private final OperatingSampleBuffer cpuTemperatures;
+
+    private final OperatingSampleBuffer memoryUsages;
+
+    private KernelFileReader cpuTemperatureReader;
+
+    private KernelFileReader memoryInfoReader;
+
+    public SampledOperatingMeasurementService(NativeOperatingMeasurementService collector, int capacity, BlockingExecutor blockingExecutor) {
+        this(collector, capacity, CPU_TEMPERATURE, MEMORY_INFO, blockingExecutor);
+    }
+
+    public SampledOperatingMeasurementService(NativeOperatingMeasurementService collector, int capacity, Path cpuTemperaturePath, Path memoryInfoPath, BlockingExecutor blockingExecutor) {
+        this.collector = collector;
+        this.blockingExecutor = blockingExecutor;
+        this.cpuTemperaturePath = cpuTemperaturePath;
+        this.memoryInfoPath = memoryInfoPath;
+        this.cpuTemperatures = new OperatingSampleBuffer(capacity);
+        this.memoryUsages = new OperatingSampleBuffer(capacity);
+    }
+
+    /**
+     * Takes a sample of the CPU temperature and the memory usage.
+     */
+    public synchronized void sample() throws IOException {
+        if(this.cpuTemperatureReader == null) {
+            this.cpuTemperatureReader = new KernelFileReader(this.cpuTemperaturePath, 64);
+            this.memoryInfoReader = new KernelFileReader(this.memoryInfoPath);
+        }
+        final var cpuTemperature = this.cpuTemperatureReader.reload().firstNumber() / 1000.0;
+        this.memoryInfoReader.reload();
+        final var total = this.memoryInfoReader.numberAfter(MEMORY_TOTAL);
+        final var available = this.memoryInfoReader.numberAfter(MEMORY_AVAILABLE);
+        this.cpuTemperatures.add(cpuTemperature);
+        this.memoryUsages.add((double) (total - available) / total * 100);
+    }
+
+    @Override
+    public Mono<Reading> measureOperatingValues(Reading reading) {
+        return this.blockingExecutor.call(() -> {
+            final OperatingSampleBuffer.Summary cpuTemperature;
+            final OperatingSampleBuffer.Summary memoryUsage;
+            synchronized (this) {
+                if(this.cpuTemperatures.isEmpty()) {
+                    sample();
+                }
+                cpuTemperature = this.cpuTemperatures.drain();
+                memoryUsage = this.memoryUsages.drain();
+            }
+            final var measurement = new OperatingMeasurement(reading, cpuTemperature.getAverage(), this.collector.readCoreVoltage(), this.collector.readDiskUsage(), memoryUsage.getAverage());
+            measurement.setSampleCount(cpuTemperature.getCount());
+            measurement.setCpuTemperatureMinimum(cpuTemperature.getMinimum());
+            measurement.setCpuTemperatureMaximum(cpuTemperature.getMaximum());
+            measurement.setCpuTemperaturePercentile95(cpuTemperature.getPercentile95());
+            measurement.setMemoryUsageMinimum(memoryUsage.getMinimum());
+            measurement.setMemoryUsageMaximum(memoryUsage.getMaximum());
+            measurement.setMemoryUsagePercentile95(memoryUsage.getPercentile95());
+            reading.addMeasurement(measurement);
+            return reading;
+        });
+    }
+}
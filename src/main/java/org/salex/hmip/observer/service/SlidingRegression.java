@@ -0,0 +1,115 @@
+package org.salex.hmip.observer.service;
+
+/**
+ * Least squares line through the last values of a time series. The sums of the regression are updated when a value
+ * is added and the oldest one drops out of the window, so the window is only scanned once per full turn to get rid
+ * of rounding errors. Times are counted in hours relative to the latest value to keep the sums small.
+ */
+public class SlidingRegression {
+    private static final double MILLIS_PER_HOUR = 3600000.0;
+
+    private final long[] times;
+
+    private final double[] values;
+
+    private int next;
+
+    private int count;
+
+    private long origin;
+
+    private double sumTime;
+
+    private double sumValue;
+
+    private double sumTimeTime;
+
+    private double sumTimeValue;
+
+    public SlidingRegression(int window) {
+        this.times = new long[window];
+        this.values = new double[window];
+    }
+
+    /**
+     * Adds a value, which is expected to be newer than all values added before.
+     */
+    public void add(long time, double value) {
+        if(this.count > 0) {
+            shift((time - this.origin) / MILLIS_PER_HOUR);
+        }
+        this.origin = time;
+        if(this.count == this.times.length) {
+            final var oldTime = (this.times[this.next] - this.origin) / MILLIS_PER_HOUR;
+            final var oldValue = this.values[this.next];
+            this.sumTime -= oldTime;
+            this.sumValue -= oldValue;
+            this.sumTimeTime -= oldTime * oldTime;
+            this.sumTimeValue -= oldTime * oldValue;
+        } else {
+            this.count++;
+        }
+        // at the origin the new value only adds to the sum of the values
+        this.times[this.next] = time;
+        this.values[this.next] = value;
+        this.sumValue += value;
+        this.next = (this.next + 1) % this.times.length;
+        if(this.next == 0) {
+            recalculate();
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the change of the value per hour or <code>NaN</code>, if there are less than two distinct times.
+     */
+    public double getSlope() {
+        final var denominator = this.count * this.sumTimeTime - this.sumTime * this.sumTime;
+        if(this.count < 2 || denominator <= 1e-12) {
+            return Double.NaN;
+        }
+        return (this.count * this.sumTimeValue - this.sumTime * this.sumValue) / denominator;
+    }
+
+    /**
+     * Returns the value of the regression line at the given time.
+     */
+    public double getValueAt(long time) {
+        final var slope = getSlope();
+        final var mean = this.sumValue / this.count;
+        if(Double.isNaN(slope)) {
+            return mean;
+        }
+        final var meanTime = this.sumTime / this.count;
+        return mean + slope * ((time - this.origin) / MILLIS_PER_HOUR - meanTime);
+    }
+
+    /**
+     * Recalculates the sums once per window, so rounding errors of the updates don't accumulate.
+     */
+    private void recalculate() {
+        this.sumTime = 0.0;
+        this.sumValue = 0.0;
+        this.sumTimeTime = 0.0;
+        this.sumTimeValue = 0.0;
+        for(int i = 0; i < this.count; i++) {
+            final var time = (this.times[i] - this.origin) / MILLIS_PER_HOUR;
+            this.sumTime += time;
+            this.sumValue += this.values[i];
+            this.sumTimeTime += time * time;
+            this.sumTimeValue += time * this.values[i];
+        }
+    }
+
+    /**
+     * Moves the origin of the sums by the given hours.
+     */
+    private void shift(double hours) {
+        this.sumTimeTime += -2.0 * hours * this.sumTime + this.count * hours * hours;
+        this.sumTimeValue -= hours * this.sumValue;
+        this.sumTime -= this.count * hours;
+    }
+}
@@ -0,0 +1,330 @@
+package org.salex.hmip.observer.service;
+
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
+import org.salex.hmip.observer.data.Sensor;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lightweight chart generator writing SVG directly into a byte stream. The series are copied into primitive arrays
+ * and drawn as straight lines, so neither a plot model nor AWT and its fonts are needed. The charts have the same
+ * size, axes, colors and labels as the ones of the {@link JFreeChartGenerator}.
+ */
+public class SvgChartGenerator implements ChartGenerator {
+    private static final int DETAILS_WIDTH = 600;
+    private static final int DETAILS_HEIGHT = 300;
+    private static final int HISTORY_WIDTH = 520;
+    private static final int HISTORY_HEIGHT = 260;
+    private static final int MARGIN_LEFT = 55;
+    private static final int MARGIN_RIGHT = 55;
+    private static final int MARGIN_TOP = 10;
+    private static final int MARGIN_TITLE = 30;
+    private static final int MARGIN_BOTTOM = 40;
+
+    private final ZoneId zone;
+
+    public SvgChartGenerator() {
+        this(ZoneId.systemDefault());
+    }
+
+    public SvgChartGenerator(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    @Override
+    public String getContentType() {
+        return "image/svg+xml";
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "svg";
+    }
+
+    @Override
+    public Mono<byte[]> create24HourChart(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
+        final var svg = new Svg(DETAILS_WIDTH, DETAILS_HEIGHT, MARGIN_LEFT, MARGIN_RIGHT, MARGIN_TOP, start.getTime(), end.getTime());
+        svg.valueAxis(-15, 40, 5, "Temperatur in °C", false);
+        svg.valueAxis(0, 100, 10, "Relative Luftfeuchtigkeit in %", true);
+        svg.timeAxis(ChronoUnit.HOURS, "HH", "Zeit in Stunden", this.zone);
+        svg.beginPlot();
+        data.keySet().stream().sorted(Comparator.comparing(Sensor::getId)).forEach(sensor -> {
+            final var measurements = data.get(sensor).stream()
+                    .sorted(Comparator.comparing(ClimateMeasurement::getMeasuringTime))
+                    .toList();
+            final var times = new long[measurements.size()];
+            final var temperatures = new double[measurements.size()];
+            final var humidities = new double[measurements.size()];
+            for(int i = 0; i < times.length; i++) {
+                final var measurement = measurements.get(i);
+                times[i] = measurement.getMeasuringTime().getTime();
+                temperatures[i] = valueOf(measurement.getTemperature());
+                humidities[i] = valueOf(measurement.getHumidity());
+            }
+            svg.line(times, temperatures, LargestTriangleThreeBuckets.select(times, temperatures, DETAILS_WIDTH), -15, 40, sensor.getColor(), false);
+            svg.line(times, humidities, LargestTriangleThreeBuckets.select(times, humidities, DETAILS_WIDTH), 0, 100, sensor.getColor(), true);
+        });
+        svg.endPlot();
+        return Mono.just(svg.toByteArray());
+    }
+
+    @Override
+    public Mono<byte[]> create365DayTemperatureChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return Mono.just(create365DayChart(start, end, data, -15, 40, 5, "Temperatur in °C", "Temperaturverlauf " + sensor.getName(),
+                ClimateMeasurementBoundaries::getMinimumTemperature, ClimateMeasurementBoundaries::getMaximumTemperature));
+    }
+
+    @Override
+    public Mono<byte[]> create365DayHumidityChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, Sensor sensor) {
+        return Mono.just(create365DayChart(start, end, data, 0, 100, 10, "Relative Luftfeuchtigkeit in %", "Verlauf der relative Luftfeuchtigkeit " + sensor.getName(),
+                ClimateMeasurementBoundaries::getMinimumHumidity, ClimateMeasurementBoundaries::getMaximumHumidity));
+    }
+
+    private byte[] create365DayChart(Date start, Date end, List<ClimateMeasurementBoundaries> data, double minimum, double maximum, double tick, String label, String title,
+                                     Function<ClimateMeasurementBoundaries, Double> lower, Function<ClimateMeasurementBoundaries, Double> upper) {
+        final var svg = new Svg(HISTORY_WIDTH, HISTORY_HEIGHT, MARGIN_LEFT, MARGIN_RIGHT / 2, MARGIN_TITLE, start.getTime(), end.getTime());
+        svg.title(title);
+        svg.valueAxis(minimum, maximum, tick, label, false);
+        svg.timeAxis(ChronoUnit.MONTHS, "MM", "Monat", this.zone);
+        final var days = data.stream()
+                .sorted(Comparator.comparing(ClimateMeasurementBoundaries::getDay))
+                .toList();
+        final var times = new long[days.size()];
+        final var minimums = new double[days.size()];
+        final var maximums = new double[days.size()];
+        for(int i = 0; i < times.length; i++) {
+            times[i] = days.get(i).getDay().getTime();
+            minimums[i] = valueOf(lower.apply(days.get(i)));
+            maximums[i] = valueOf(upper.apply(days.get(i)));
+        }
+        svg.beginPlot();
+        svg.area(times, minimums, maximums, minimum, maximum, "#808080");
+        svg.line(times, maximums, null, minimum, maximum, "#FF0000", false);
+        svg.line(times, minimums, null, minimum, maximum, "#0000FF", false);
+        svg.endPlot();
+        return svg.toByteArray();
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    /**
+     * Writes the elements of a chart. Coordinates are written with one decimal without any formatter.
+     */
+    private static class Svg {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+
+        private final int width;
+
+        private final int height;
+
+        private final int left;
+
+        private final int top;
+
+        private final int plotWidth;
+
+        private final int plotHeight;
+
+        private final long start;
+
+        private final long span;
+
+        Svg(int width, int height, int left, int right, int top, long start, long end) {
+            this.width = width;
+            this.height = height;
+            this.left = left;
+            this.top = top;
+            this.plotWidth = width - left - right;
+            this.plotHeight = height - top - MARGIN_BOTTOM;
+            this.start = start;
+            this.span = Math.max(1, end - start);
+            write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").write(width).write("\" height=\"").write(height)
+                    .write("\" viewBox=\"0 0 ").write(width).write(' ').write(height)
+                    .write("\" font-family=\"sans-serif\" font-size=\"10\">");
+            write("<clipPath id=\"p\"><rect x=\"").write(left).write("\" y=\"").write(top).write("\" width=\"").write(this.plotWidth)
+                    .write("\" height=\"").write(this.plotHeight).write("\"/></clipPath>");
+            write("<rect x=\"").write(left).write("\" y=\"").write(top).write("\" width=\"").write(this.plotWidth)
+                    .write("\" height=\"").write(this.plotHeight).write("\" fill=\"#FFFFFF\" stroke=\"#808080\"/>");
+        }
+
+        void title(String title) {
+            write("<text x=\"").write(this.width / 2).write("\" y=\"").write(this.top - 10)
+                    .write("\" text-anchor=\"middle\" font-size=\"14\" font-weight=\"bold\">").text(title).write("</text>");
+        }
+
+        /**
+         * Writes the grid, ticks and label of a value axis on the left or right side of the plot.
+         */
+        void valueAxis(double minimum, double maximum, double tick, String label, boolean right) {
+            final var x = right ? this.left + this.plotWidth : this.left;
+            final var anchor = right ? "start" : "end";
+            final var offset = right ? 4 : -4;
+            final var count = (int) Math.round((maximum - minimum) / tick);
+            write("<g stroke=\"#C0C0C0\" stroke-width=\"0.5\">");
+            for(int i = 0; i <= count; i++) {
+                final var y = y(minimum + i * tick, minimum, maximum);
+                write("<path d=\"M").write(this.left).write(' ').write(y).write('h').write(this.plotWidth).write("\"/>");
+            }
+            write("</g><g text-anchor=\"").write(anchor).write("\">");
+            for(int i = 0; i <= count; i++) {
+                final var value = minimum + i * tick;
+                write("<text x=\"").write(x + offset).write("\" y=\"").write(y(value, minimum, maximum) + 3).write("\">").write((long) value).write("</text>");
+            }
+            final var labelX = right ? this.width - 10 : 14;
+            final var labelY = this.top + this.plotHeight / 2;
+            write("</g><text text-anchor=\"middle\" transform=\"translate(").write(labelX).write(' ').write(labelY)
+                    .write(") rotate(-90)\">").text(label).write("</text>");
+        }
+
+        /**
+         * Writes the grid and ticks of the time axis with a tick at the start of each unit within the window.
+         */
+        void timeAxis(ChronoUnit unit, String format, String label, ZoneId zone) {
+            final var formatter = DateTimeFormatter.ofPattern(format);
+            final var first = ZonedDateTime.ofInstant(Instant.ofEpochMilli(this.start), zone);
+            var tick = unit == ChronoUnit.MONTHS ? first.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1) : first.truncatedTo(unit);
+            if(tick.toInstant().toEpochMilli() < this.start) {
+                tick = tick.plus(1, unit);
+            }
+            final var bottom = this.top + this.plotHeight;
+            final var labels = new StringBuilder();
+            write("<g stroke=\"#C0C0C0\" stroke-width=\"0.5\">");
+            for(; tick.toInstant().toEpochMilli() <= this.start + this.span; tick = tick.plus(1, unit)) {
+                final var x = x(tick.toInstant().toEpochMilli());
+                write("<path d=\"M").write(x).write(' ').write(this.top).write('v').write(this.plotHeight + 4).write("\"/>");
+                labels.append("<text x=\"").append(Math.round(x)).append("\" y=\"").append(bottom + 14).append("\">").append(formatter.format(tick)).append("</text>");
+            }
+            write("</g><g text-anchor=\"middle\">").write(labels.toString()).write("</g>");
+            write("<text x=\"").write(this.left + this.plotWidth / 2).write("\" y=\"").write(this.height - 6)
+                    .write("\" text-anchor=\"middle\">").text(label).write("</text>");
+        }
+
+        void beginPlot() {
+            write("<g clip-path=\"url(#p)\" fill=\"none\" stroke-width=\"2\" stroke-linecap=\"round\" stroke-linejoin=\"round\">");
+        }
+
+        void endPlot() {
+            write("</g></svg>");
+        }
+
+        /**
+         * Writes a line through the selected values or all values, if none are selected. The line is interrupted by
+         * missing values.
+         */
+        void line(long[] times, double[] values, int[] selected, double minimum, double maximum, String color, boolean dashed) {
+            write("<path stroke=\"").text(color).write('"');
+            if(dashed) {
+                write(" stroke-dasharray=\"2 5\"");
+            }
+            write(" d=\"");
+            var move = true;
+            final var count = selected != null ? selected.length : times.length;
+            for(int j = 0; j < count; j++) {
+                final var i = selected != null ? selected[j] : j;
+                if(Double.isNaN(values[i])) {
+                    move = true;
+                    continue;
+                }
+                write(move ? 'M' : 'L').write(x(times[i])).write(' ').write(y(values[i], minimum, maximum));
+                move = false;
+            }
+            write("\"/>");
+        }
+
+        /**
+         * Writes the filled area between the lower and upper values.
+         */
+        void area(long[] times, double[] lower, double[] upper, double minimum, double maximum, String color) {
+            write("<path stroke=\"none\" fill=\"").text(color).write("\" d=\"");
+            var move = true;
+            for(int i = 0; i < times.length; i++) {
+                if(Double.isNaN(upper[i]) || Double.isNaN(lower[i])) {
+                    continue;
+                }
+                write(move ? 'M' : 'L').write(x(times[i])).write(' ').write(y(upper[i], minimum, maximum));
+                move = false;
+            }
+            for(int i = times.length - 1; i >= 0; i--) {
+                if(Double.isNaN(upper[i]) || Double.isNaN(lower[i])) {
+                    continue;
+                }
+                write('L').write(x(times[i])).write(' ').write(y(lower[i], minimum, maximum));
+            }
+            write("Z\"/>");
+        }
+
+        byte[] toByteArray() {
+            return this.out.toByteArray();
+        }
+
+        private double x(long time) {
+            return this.left + (double) (time - this.start) * this.plotWidth / this.span;
+        }
+
+        private double y(double value, double minimum, double maximum) {
+            return this.top + (maximum - value) * this.plotHeight / (maximum - minimum);
+        }
+
+        private Svg write(String value) {
+            final var bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.out.write(bytes, 0, bytes.length);
+            return this;
+        }
+
+        private Svg write(char value) {
+            this.out.write(value);
+            return this;
+        }
+
+        private Svg write(long value) {
+            if(value < 0) {
+                this.out.write('-');
+                value = -value;
+            }
+            if(value >= 10) {
+                write(value / 10);
+            }
+            this.out.write((int) ('0' + value % 10));
+            return this;
+        }
+
+        /**
+         * Writes the value rounded to one decimal, omitting a zero decimal.
+         */
+        private Svg write(double value) {
+            var tenths = Math.round(value * 10);
+            if(tenths < 0) {
+                this.out.write('-');
+                tenths = -tenths;
+            }
+            write(tenths / 10);
+            if(tenths % 10 != 0) {
+                this.out.write('.');
+                this.out.write((int) ('0' + tenths % 10));
+            }
+            return this;
+        }
+
+        /**
+         * Writes text with the XML special characters escaped.
+         */
+        private Svg text(String value) {
+            return write(value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;"));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.salex.hmip.observer.service;
+
+import java.time.Duration;
+
+/**
+ * Limits the rate of notifications. The bucket holds up to the given number of tokens and gets a new token after
+ * each refill interval. Each notification takes a token and is dropped, if the bucket is empty. A refill interval
+ * of zero doesn't limit the notifications at all.
+ */
+public class TokenBucket {
+    private final int capacity;
+
+    private final long refillInterval;
+
+    private int tokens;
+
+    private long lastRefill;
+
+    public TokenBucket(int capacity, Duration refillInterval) {
+        this.capacity = capacity;
+        this.refillInterval = refillInterval.toMillis();
+        this.tokens = capacity;
+        this.lastRefill = -1;
+    }
+
+    public synchronized boolean tryAcquire(long now) {
+        if(this.refillInterval == 0) {
+            return true;
+        }
+        if(this.lastRefill < 0) {
+            this.lastRefill = now;
+        } else if(now - this.lastRefill >= this.refillInterval) {
+            final var refills = (now - this.lastRefill) / this.refillInterval;
+            this.tokens = (int) Math.min(this.capacity, this.tokens + refills);
+            this.lastRefill += refills * this.refillInterval;
+        }
+        if(this.tokens == 0) {
+            return false;
+        }
+        this.tokens--;
+        return true;
+    }
+}
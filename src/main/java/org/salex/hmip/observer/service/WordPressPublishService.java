@@ -1,21 +1,46 @@
 package org.salex.hmip.observer.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.salex.hmip.observer.blog.Image;
 import org.salex.hmip.observer.blog.Media;
 import org.salex.hmip.observer.blog.Post;
 import org.salex.hmip.observer.data.ClimateMeasurement;
 import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
+import org.salex.hmip.observer.data.PublishedPost;
+import org.salex.hmip.observer.data.PublishedPostRepository;
 import org.salex.hmip.observer.data.Reading;
 import org.salex.hmip.observer.data.Sensor;
 import org.springframework.http.*;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+/**
+ * Publishes the readings to the WordPress blog. The uploaded charts are remembered by their
+ * {@link ChartFingerprint}, so an unchanged chart is neither rendered nor uploaded again and its media stays
+ * referenced by the post instead of being deleted and replaced. The hash of the content of each post is kept in
+ * the database, so a post whose content and images didn't change isn't read and written again. Together with the
+ * hash, the meta of the post from the response of its last update is kept, so the post doesn't have to be read before
+ * it is written. Identical images are uploaded once and shared by the posts, see {@link MediaIndex}. The sizes of an
+ * uploaded image are taken from the response of the upload, so an upload takes a single request.
+ */
 public class WordPressPublishService implements BlogPublishService {
     private final static String OVERVIEW_ID = "146";
     private final static String OVERVIEW_TYPE = "content_block";
@@ -24,6 +49,20 @@ public class WordPressPublishService implements BlogPublishService {
     private final static String HISTORY_ID = "60309";
     private final static String HISTORY_TYPE = "pages";
     private final static String REFERENCED_IMAGES_SEPARATOR = ";";
+    private final static int DEFAULT_MEDIA_CACHE_CAPACITY = 16;
+    private final static int VECTOR_THUMBNAIL_WIDTH = 300;
+    private final static int VECTOR_THUMBNAIL_HEIGHT = 150;
+    private final static int CONTENT_HASH_FILENAME_LENGTH = 16;
+    private final static int MEDIA_LOOKUP_BATCH_SIZE = 20;
+    private final static Duration MEDIA_LOOKUP_WINDOW = Duration.ofMillis(50);
+    private final static List<String> POSTS = List.of("overview", "details", "history");
+    private final static List<String> CHART_KINDS = List.of("24h", "365d-temperature", "365d-humidity");
+
+    private record ReferenceChange(List<String> added, List<String> removed) {
+    }
+
+    private record CreatedMedia(String id, Media media) {
+    }
 
     private final WebClient client;
 
@@ -31,25 +70,98 @@ public class WordPressPublishService implements BlogPublishService {
 
     private final ChartGenerator chartGenerator;
 
+    private final Map<String, Image> uploadedCharts;
+
+    private final Map<String, PublishedPost> publishedPosts = new ConcurrentHashMap<>();
+
+    private final PublishedPostRepository postRepository;
+
+    private final MediaIndex mediaIndex;
+
+    private final MediaBatchLookup mediaLookup;
+
+    private final BlockingExecutor blockingExecutor;
+
+    private final Scheduler renderScheduler;
+
+    private final Timer uploadTimer;
+
+    private final Map<String, Timer> renderTimers = new HashMap<>();
+
+    private final Map<String, Counter> metaCounters = new HashMap<>();
+
+    private final Map<String, Counter> writeCounters = new HashMap<>();
+
     public WordPressPublishService(WebClient client, ContentGenerator contentGenerator, ChartGenerator chartGenerator) {
+        this(client, contentGenerator, chartGenerator, DEFAULT_MEDIA_CACHE_CAPACITY, null, MediaIndex.inMemory(), BlockingExecutor.immediate(), Schedulers.immediate(), Metrics.globalRegistry);
+    }
+
+    /**
+     * @param mediaCacheCapacity number of uploaded charts remembered by their fingerprint
+     * @param postRepository repository the hashes of the published posts are kept in or <code>null</code> to keep
+     *                       them in memory only
+     * @param mediaIndex content-addressed index of the uploaded media, shared between the posts
+     * @param renderScheduler scheduler the charts are rendered on, so the charts of the history are rendered in
+     *                        parallel and overlapped with the uploads
+     */
+    public WordPressPublishService(WebClient client, ContentGenerator contentGenerator, ChartGenerator chartGenerator, int mediaCacheCapacity, PublishedPostRepository postRepository, MediaIndex mediaIndex, BlockingExecutor blockingExecutor, Scheduler renderScheduler, MeterRegistry registry) {
         this.client = client;
         this.contentGenerator = contentGenerator;
         this.chartGenerator = chartGenerator;
+        this.postRepository = postRepository;
+        this.mediaIndex = mediaIndex;
+        this.mediaLookup = new MediaBatchLookup(client, MEDIA_LOOKUP_BATCH_SIZE, MEDIA_LOOKUP_WINDOW);
+        this.blockingExecutor = blockingExecutor;
+        if(postRepository != null) {
+            postRepository.findAll().forEach(post -> this.publishedPosts.put(post.getKey(), post));
+        }
+        this.renderScheduler = renderScheduler;
+        this.uploadTimer = Timer.builder("observer.blog.upload")
+                .description("Time to upload a chart to the blog")
+                .register(registry);
+        for(var kind : CHART_KINDS) {
+            this.renderTimers.put(kind, Timer.builder("observer.chart.render")
+                    .description("Time to render a chart for the blog")
+                    .tag("kind", kind)
+                    .register(registry));
+        }
+        for(var post : POSTS) {
+            for(var result : List.of("hit", "miss", "conflict")) {
+                this.metaCounters.put(post + "/" + result, Counter.builder("observer.blog.meta")
+                        .description("Lookups of the meta of the blog posts in the local cache")
+                        .tag("post", post)
+                        .tag("result", result)
+                        .register(registry));
+            }
+            for(var result : List.of("written", "skipped")) {
+                this.writeCounters.put(post + "/" + result, Counter.builder("observer.blog.write")
+                        .description("Updates of the blog posts, written or skipped because the content didn't change")
+                        .tag("post", post)
+                        .tag("result", result)
+                        .register(registry));
+            }
+        }
+        this.uploadedCharts = new LinkedHashMap<>(mediaCacheCapacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                return size() > mediaCacheCapacity;
+            }
+        };
     }
 
     @Override
     public Mono<Reading> postOverview(Reading reading) {
         return contentGenerator.generateOverview(reading)
-                .flatMap(content -> updatePost(OVERVIEW_ID, OVERVIEW_TYPE, content, new ArrayList<>()))
+                .flatMap(content -> updatePost("overview", OVERVIEW_ID, OVERVIEW_TYPE, content, new ArrayList<>()))
                 .then(Mono.just(reading));
     }
 
     @Override
     public Mono<Map<Sensor, List<ClimateMeasurement>>> postDetails(Date start, Date end, Map<Sensor, List<ClimateMeasurement>> data) {
-        return chartGenerator.create24HourChart(start, end, data)
-                        .flatMap(chart -> addPNGImage("verlauf-", chart))
-                        .flatMap(image -> contentGenerator.generateDetails(start, end, data, image)
-                                .flatMap(content -> updatePost(DETAILS_ID, DETAILS_TYPE, content, List.of(image)))
+        final var fingerprint = ChartFingerprint.of24HourChart(start, end, data);
+        return uploadChart(fingerprint, "24h", "verlauf-", () -> chartGenerator.create24HourChart(fingerprint, start, end, data))
+                        .flatMap(image -> releaseOnError(contentGenerator.generateDetails(start, end, data, image), List.of(image))
+                                .flatMap(content -> updatePost("details", DETAILS_ID, DETAILS_TYPE, content, List.of(image)))
                                 .then(Mono.just(data))
                         );
     }
@@ -57,26 +169,71 @@ public class WordPressPublishService implements BlogPublishService {
     @Override
     public Mono<Map<Sensor, List<ClimateMeasurementBoundaries>>> postHistory(Date start, Date end, Map<Sensor, List<ClimateMeasurementBoundaries>> data) {
         return createDiagrams(start, end, data)
-                .flatMap(charts -> contentGenerator.generateHistory(start, end, data, charts)
-                        .flatMap(content -> updatePost(HISTORY_ID, HISTORY_TYPE, content, listOfImages(charts)))
+                .flatMap(charts -> releaseOnError(contentGenerator.generateHistory(start, end, data, charts), listOfImages(charts))
+                        .flatMap(content -> updatePost("history", HISTORY_ID, HISTORY_TYPE, content, listOfImages(charts)))
                         .then(Mono.just(data))
                 );
     }
 
+    /**
+     * Uploads the charts of the history. If one of them fails, the references to the charts already uploaded are
+     * released, as they won't be posted.
+     */
     private Mono<Map<Sensor, Map<String, Image>>> createDiagrams(Date start, Date end, Map<Sensor, List<ClimateMeasurementBoundaries>> data) {
-        return Flux.fromIterable(data.keySet())
-                .flatMap(sensor -> Mono.zip(Mono.just(sensor), createDiagrams(start, end, sensor, data.get(sensor))))
-                .collectMap(Tuple2::getT1, Tuple2::getT2);
+        return Mono.defer(() -> {
+            final var uploaded = Collections.synchronizedList(new ArrayList<Image>());
+            return Flux.fromIterable(data.keySet())
+                    .flatMap(sensor -> Mono.zip(Mono.just(sensor), createDiagrams(start, end, sensor, data.get(sensor), uploaded)))
+                    .collectMap(Tuple2::getT1, Tuple2::getT2)
+                    .onErrorResume(e -> release(new ArrayList<>(uploaded)).then(Mono.error(e)));
+        });
     }
 
-    private Mono<Map<String, Image>> createDiagrams(Date start, Date end, Sensor sensor, List<ClimateMeasurementBoundaries> data) {
-        return Flux.concat(
-                Mono.zip(Mono.just("temperature"), chartGenerator.create365DayTemperatureChart(start, end, data, sensor).flatMap(chart -> addPNGImage("temperature-", chart))),
-                Mono.zip(Mono.just("humidity"), chartGenerator.create365DayHumidityChart(start, end, data, sensor).flatMap(chart -> addPNGImage("humidity-", chart)))
+    private Mono<Map<String, Image>> createDiagrams(Date start, Date end, Sensor sensor, List<ClimateMeasurementBoundaries> data, List<Image> uploaded) {
+        final var temperatureFingerprint = ChartFingerprint.of365DayChart("365d-temperature", start, end, data, sensor);
+        final var humidityFingerprint = ChartFingerprint.of365DayChart("365d-humidity", start, end, data, sensor);
+        return Flux.merge(
+                Mono.zip(Mono.just("temperature"), uploadChart(temperatureFingerprint, "365d-temperature", "temperature-", () -> chartGenerator.create365DayTemperatureChart(temperatureFingerprint, start, end, data, sensor))),
+                Mono.zip(Mono.just("humidity"), uploadChart(humidityFingerprint, "365d-humidity", "humidity-", () -> chartGenerator.create365DayHumidityChart(humidityFingerprint, start, end, data, sensor)))
         )
+        .doOnNext(chart -> uploaded.add(chart.getT2()))
         .collectMap(Tuple2::getT1, Tuple2::getT2);
     }
 
+    /**
+     * Returns the media of a chart uploaded before with the same fingerprint or renders and uploads the chart. The
+     * chart is rendered on the render scheduler, while the upload continues on the thread of the web client. Either
+     * way a reference to the media is taken, which the post has to keep or release.
+     */
+    private Mono<Image> uploadChart(String fingerprint, String kind, String prefix, Supplier<Mono<byte[]>> render) {
+        return Mono.defer(() -> {
+            final Image uploaded;
+            synchronized(this.uploadedCharts) {
+                uploaded = this.uploadedCharts.get(fingerprint);
+            }
+            final var rendered = timed(Mono.defer(render), this.renderTimers.get(kind))
+                    .subscribeOn(this.renderScheduler)
+                    .flatMap(chart -> {
+                        final var contentHash = MediaIndex.hash(chart);
+                        return this.mediaIndex.getOrUpload(contentHash, () -> timed(addImage(prefix, contentHash, chart), this.uploadTimer));
+                    })
+                    .doOnNext(image -> {
+                        synchronized(this.uploadedCharts) {
+                            this.uploadedCharts.put(fingerprint, image);
+                        }
+                    });
+            // The media of the remembered chart may have been deleted meanwhile, then the chart is uploaded again
+            return uploaded != null ? this.mediaIndex.reference(uploaded.getId()).switchIfEmpty(rendered) : rendered;
+        });
+    }
+
+    private static <T> Mono<T> timed(Mono<T> operation, Timer timer) {
+        return Mono.defer(() -> {
+            final var start = System.nanoTime();
+            return operation.doOnSuccess(result -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
     private List<Image> listOfImages(Map<Sensor, Map<String, Image>> images) {
         final var list = new ArrayList<Image>();
         for(var sensorImages : images.values()) {
@@ -89,65 +246,237 @@ public class WordPressPublishService implements BlogPublishService {
         return this.client.get().uri("/{type}/{id}", type, id).retrieve().bodyToMono(Post.class);
     }
 
-    private Mono<Void> updatePost(String id, String type, String content, List<Image> images) {
-        return getPost(id, type)
-                .flatMap(post -> {
-                    final var oldReferencedImages = getReferencedImages(post);
-                    post.setContent(content);
-                    setReferencedImages(post, images);
-                    return this.client
-                            .post()
-                            .uri("/{type}/{id}", type, id)
-                            .bodyValue(post)
-                            .retrieve()
-                            .bodyToMono(Void.class)
-                            .then(Mono.just(oldReferencedImages));
-                })
-                .flatMapMany(Flux::just)
+    /**
+     * Returns the post as known from its last update or reads it, if its meta isn't known.
+     */
+    private Mono<Post> getKnownPost(String name, String key, String id, String type) {
+        final var published = this.publishedPosts.get(key);
+        if(published == null || !published.isMetaKnown()) {
+            metaCounter(name, "miss").increment();
+            return getPost(id, type);
+        }
+        metaCounter(name, "hit").increment();
+        final var post = new Post(Long.parseLong(id));
+        if(published.hasMeta()) {
+            final var meta = new Post.Meta();
+            meta.setReferencedImages(published.getReferencedImages());
+            post.setMeta(meta);
+        }
+        post.setModified(published.getModified());
+        return Mono.just(post);
+    }
+
+    /**
+     * Writes the content and the referenced images to the post, unless they are the same as written before. The
+     * metric <code>observer.blog.write</code> counts the written and the skipped updates per post. The post is
+     * only read before, if it isn't known from its last update. Otherwise the write is conditional on the post being
+     * unmodified since, and the post is read and written again on a conflict. The post keeps the references taken
+     * to the images it references newly, the other references are released, also if the post isn't written.
+     */
+    private Mono<Void> updatePost(String name, String id, String type, String content, List<Image> images) {
+        final var key = type + "/" + id;
+        final var contentHash = hash(content, images);
+        final var published = this.publishedPosts.get(key);
+        if(published != null && contentHash.equals(published.getContentHash())) {
+            writeCounter(name, "skipped").increment();
+            return release(images);
+        }
+        return releaseOnError(getKnownPost(name, key, id, type)
+                .flatMap(post -> writePost(key, id, type, post, content, images, contentHash)
+                        .onErrorResume(WordPressPublishService::isConflict, e -> rewritePost(name, key, id, type, content, images, contentHash))), images)
+                .doOnSuccess(change -> writeCounter(name, "written").increment())
+                .flatMap(change -> this.mediaIndex.release(getReleasedImages(images, change)))
+                .flatMapMany(Flux::fromIterable)
                 .flatMap(this::deleteImage)
                 .then(Mono.empty());
     }
 
+    /**
+     * Returns the images whose references are released after the post is written, the images no longer referenced
+     * by the post and the images it referenced before already.
+     */
+    private static List<String> getReleasedImages(List<Image> images, ReferenceChange change) {
+        final var released = new ArrayList<>(change.removed());
+        final var added = new HashSet<>(change.added());
+        for(var image : images) {
+            if(!added.remove(image.getId())) {
+                released.add(image.getId());
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Releases the references to the images, if the operation fails, and deletes the media not referenced anymore.
+     */
+    private <T> Mono<T> releaseOnError(Mono<T> operation, List<Image> images) {
+        return operation.onErrorResume(e -> release(images).then(Mono.error(e)));
+    }
+
+    private Mono<Void> release(List<Image> images) {
+        if(images.isEmpty()) {
+            return Mono.empty();
+        }
+        return this.mediaIndex.release(images.stream().map(Image::getId).toList())
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(this::deleteImage)
+                .then();
+    }
+
+    private static boolean isConflict(Throwable e) {
+        return e instanceof WebClientResponseException response && response.getStatusCode() == HttpStatus.PRECONDITION_FAILED;
+    }
+
+    /**
+     * Reads the post modified by someone else and writes it again.
+     */
+    private Mono<ReferenceChange> rewritePost(String name, String key, String id, String type, String content, List<Image> images, String contentHash) {
+        metaCounter(name, "conflict").increment();
+        return getPost(id, type).flatMap(post -> writePost(key, id, type, post, content, images, contentHash));
+    }
+
+    /**
+     * Writes the post and returns the images newly referenced and no longer referenced by it.
+     */
+    private Mono<ReferenceChange> writePost(String key, String id, String type, Post post, String content, List<Image> images, String contentHash) {
+        final var previouslyReferencedImages = List.of(getReferencedImages(post));
+        final var stillReferencedImages = images.stream().map(Image::getId).toList();
+        final var change = new ReferenceChange(
+                stillReferencedImages.stream()
+                        .filter(imageId -> !previouslyReferencedImages.contains(imageId))
+                        .toList(),
+                previouslyReferencedImages.stream()
+                        .filter(imageId -> !stillReferencedImages.contains(imageId))
+                        .toList());
+        post.setContent(content);
+        setReferencedImages(post, images);
+        return this.client
+                .post()
+                .uri("/{type}/{id}", type, id)
+                .headers(headers -> {
+                    if(post.getModified() != null) {
+                        headers.setIfUnmodifiedSince(post.getModified().getTime());
+                    }
+                })
+                .bodyValue(post)
+                .retrieve()
+                .bodyToMono(Post.class)
+                .defaultIfEmpty(post)
+                .flatMap(written -> {
+                    if(written.getMeta() != null) {
+                        return savePublishedPost(key, contentHash, written);
+                    }
+                    // The response of a content block lacks the meta, but its modification time is still the one of this write
+                    if(written.getModified() != null) {
+                        post.setModified(written.getModified());
+                    }
+                    return savePublishedPost(key, contentHash, post);
+                })
+                .then(Mono.just(change));
+    }
+
+    private Mono<PublishedPost> savePublishedPost(String key, String contentHash, Post post) {
+        final var published = new PublishedPost(key);
+        published.setContentHash(contentHash);
+        published.setLastUpdate(new Date());
+        published.setMetaKnown(true);
+        published.setHasMeta(post.getMeta() != null);
+        published.setReferencedImages(post.getMeta() != null ? post.getMeta().getReferencedImages() : null);
+        published.setModified(post.getModified());
+        this.publishedPosts.put(key, published);
+        if(this.postRepository == null) {
+            return Mono.just(published);
+        }
+        return this.blockingExecutor.call(() -> this.postRepository.save(published));
+    }
+
+    private Counter metaCounter(String name, String result) {
+        return this.metaCounters.get(name + "/" + result);
+    }
+
+    private Counter writeCounter(String name, String result) {
+        return this.writeCounters.get(name + "/" + result);
+    }
+
+    private static String hash(String content, List<Image> images) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content.getBytes(StandardCharsets.UTF_8));
+            for(var image : images) {
+                digest.update((byte) 0);
+                digest.update(image.getId().getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private Mono<Void> deleteImage(String id) {
-        return this.client.delete().uri("/media/{id}?force=true", id).retrieve().bodyToMono(Void.class);
+        synchronized(this.uploadedCharts) {
+            this.uploadedCharts.values().removeIf(image -> id.equals(image.getId()));
+        }
+        return this.mediaIndex.remove(id)
+                .then(this.client.delete().uri("/media/{id}?force=true", id).retrieve().bodyToMono(Void.class));
     }
 
-    private Mono<Image> addPNGImage(String prefix, byte[] data) {
-        final var filename = prefix + UUID.randomUUID() + ".png";
+    /**
+     * Uploads the image. Its sizes are taken from the media in the response of the upload, so it takes a single
+     * request. Only if the response lacks the media, its sizes are looked up by a batched request.
+     */
+    private Mono<Image> addImage(String prefix, String contentHash, byte[] data) {
+        final var filename = prefix + contentHash.substring(0, CONTENT_HASH_FILENAME_LENGTH) + "." + this.chartGenerator.getFileExtension();
         return this.client.post()
                 .uri("/media")
-                .contentType(MediaType.IMAGE_PNG)
+                .contentType(MediaType.parseMediaType(this.chartGenerator.getContentType()))
                 .header("content-disposition", "attachement; filename=" + filename)
                 .bodyValue(data)
                 .exchangeToMono(clientResponse -> {
                     if(clientResponse.statusCode() == HttpStatus.CREATED) {
-                        return Mono.just(clientResponse.headers().header("Location"));
+                        final var location = clientResponse.headers().header("Location").stream()
+                                .findFirst()
+                                .flatMap(header -> Stream.of(header.split("/")).reduce((first, last) -> last));
+                        return clientResponse.bodyToMono(Media.class)
+                                .map(media -> new CreatedMedia(String.valueOf(media.getId()), media))
+                                .onErrorResume(e -> Mono.empty())
+                                .switchIfEmpty(Mono.justOrEmpty(location).map(imageId -> new CreatedMedia(imageId, null)));
                     } else {
                         return Mono.error(new Exception("Error adding png image to blog"));
                     }
                 })
-                .mapNotNull(location -> location.stream().findFirst().orElse(null))
-                .mapNotNull(location -> Stream.of(location.split("/")).reduce( (first, last) -> last ))
-                .mapNotNull(Optional::get)
-                .flatMap(imageId -> this.client.get()
-                            .uri("/media/{id}", imageId)
-                            .retrieve()
-                            .bodyToMono(Media.class)
-                            .map(media -> {
-                                final var image = new Image(imageId);
-                                if (media.getDetails().getSizes().containsKey("full")) {
-                                    image.setFull(media.getDetails().getSizes().get("full").getUrl());
-                                }
-                                if (media.getDetails().getSizes().containsKey("medium")) {
-                                    image.setThumbnail(media.getDetails().getSizes().get("medium").getUrl());
-                                    image.setThumbnailWidth(media.getDetails().getSizes().get("medium").getWidth());
-                                    image.setThumbnailHeight(media.getDetails().getSizes().get("medium").getHeight());
-                                }
-                                return image;
-                            })
-                );
+                .flatMap(created -> hasSizes(created.media())
+                        ? Mono.just(toImage(created.id(), created.media()))
+                        : this.mediaLookup.get(created.id()).map(media -> toImage(created.id(), media)));
     }
 
+    private static boolean hasSizes(Media media) {
+        if(media == null) {
+            return false;
+        }
+        final var details = media.getDetails();
+        return details != null && details.getSizes() != null && details.getSizes().containsKey("full") || media.getSourceUrl() != null;
+    }
+
+    private static Image toImage(String imageId, Media media) {
+        final var image = new Image(imageId);
+        final var sizes = media.getDetails() != null && media.getDetails().getSizes() != null ? media.getDetails().getSizes() : Map.<String, Media.Size>of();
+        if (sizes.containsKey("full")) {
+            image.setFull(sizes.get("full").getUrl());
+        } else {
+            // Vector images have no sizes, they are scaled by the browser
+            image.setFull(media.getSourceUrl());
+        }
+        if (!sizes.containsKey("medium")) {
+            image.setThumbnail(image.getFull());
+            image.setThumbnailWidth(VECTOR_THUMBNAIL_WIDTH);
+            image.setThumbnailHeight(VECTOR_THUMBNAIL_HEIGHT);
+        } else {
+            image.setThumbnail(sizes.get("medium").getUrl());
+            image.setThumbnailWidth(sizes.get("medium").getWidth());
+            image.setThumbnailHeight(sizes.get("medium").getHeight());
+        }
+        return image;
+    }
 
     private String[] getReferencedImages(Post post) {
         if(post != null) {
@@ -0,0 +1,31 @@
+package org.salex.hmip.observer.task;
+
+import org.salex.hmip.observer.service.AlertJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@ConditionalOnProperty("org.salex.alert.journal.flush")
+@Service
+public class AlertJournalTask {
+    private static final Logger LOG = LoggerFactory.getLogger(AlertJournalTask.class);
+
+    private final AlertJournal alertJournal;
+
+    public AlertJournalTask(@Value("${org.salex.alert.journal.flush}") long interval, AlertJournal alertJournal) {
+        this.alertJournal = alertJournal;
+        LOG.info(String.format("Alert journal task started scheduled every %d ms", interval));
+    }
+
+    @Scheduled(fixedDelayString = "${org.salex.alert.journal.flush}")
+    public void flush() {
+        try {
+            this.alertJournal.flush();
+        } catch(RuntimeException e) {
+            LOG.warn("Writing the alert journal failed: " + e.getMessage());
+        }
+    }
+}
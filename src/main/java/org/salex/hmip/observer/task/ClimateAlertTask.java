@@ -3,6 +3,8 @@ package org.salex.hmip.observer.task;
 import org.salex.hmip.observer.data.ClimateMeasurement;
 import org.salex.hmip.observer.data.ObserverDatabase;
 import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.ClimateRuleEngine;
 import org.salex.hmip.observer.service.MailPublishService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,15 +12,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuple2;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 
 @ConditionalOnProperty("org.salex.cron.climateAlert")
 @Service
@@ -29,39 +28,41 @@ public class ClimateAlertTask {
 
     private final MailPublishService mailPublishService;
 
-    public ClimateAlertTask(@Value("${org.salex.cron.climateAlert}") String cron, ObserverDatabase database, MailPublishService mailPublishService) {
+    private final ClimateRuleEngine climateRuleEngine;
+
+    private final BlockingExecutor blockingExecutor;
+
+    public ClimateAlertTask(@Value("${org.salex.cron.climateAlert}") String cron, ObserverDatabase database, MailPublishService mailPublishService, ClimateRuleEngine climateRuleEngine, BlockingExecutor blockingExecutor) {
         this.database = database;
         this.mailPublishService = mailPublishService;
+        this.climateRuleEngine = climateRuleEngine;
+        this.blockingExecutor = blockingExecutor;
         LOG.info(String.format("Climate alert task started scheduled with cron %s", cron));
     }
 
+    /**
+     * Sends a digest of the 24 hours before the latest reading, if any measurement violated a climate rule. The
+     * window ends with the latest reading like the chart of the blog, so the chart of the digest is shared with it.
+     * The alerts are sent immediately by the {@link ClimateRuleEngine}, so this task is optional.
+     */
     @Scheduled(cron = "${org.salex.cron.climateAlert}")
     public void checkAndSendAlert() {
-        final var end = new Date();
-        final var start = new Date(end.getTime() - TimeUnit.HOURS.toMillis(24));
-        Mono.just(this.database.getClimateMeasurements(start, end))
-                .filterWhen(this::shouldSendAlarm)
-                .flatMap(data -> this.mailPublishService.sendClimateAlert(start, end, data))
+        this.blockingExecutor.call(this.database::getLatestReadingTime)
+                .flatMap(Mono::justOrEmpty)
+                .flatMap(latest -> {
+                    // The time is normalized, as the database may return a subclass of date
+                    final var end = new Date(latest.getTime());
+                    final var start = new Date(end.getTime() - TimeUnit.HOURS.toMillis(24));
+                    return this.blockingExecutor.call(() -> this.database.getClimateMeasurements(start, end))
+                            .filter(this::shouldSendAlarm)
+                            .flatMap(data -> this.mailPublishService.sendClimateAlert(start, end, data));
+                })
                 .subscribe();
     }
 
-    private Mono<Boolean> shouldSendAlarm(Map<Sensor, List<ClimateMeasurement>> data) {
-        return filterRelevantMeasurements(data)
-                .map(Map::values)
-                .flatMapMany(Flux::fromIterable)
-                .filter(Predicate.not(List::isEmpty))
-                .hasElements();
-    }
-
-    private Mono<Map<Sensor, List<ClimateMeasurement>>> filterRelevantMeasurements(Map<Sensor, List<ClimateMeasurement>> data) {
-        return Flux.fromIterable(data.keySet())
-                .flatMap(sensor -> Mono.zip(Mono.just(sensor), filterRelevantMeasurements(data.get(sensor))))
-                .collectMap(Tuple2::getT1, Tuple2::getT2);
-    }
-
-    private Mono<List<ClimateMeasurement>> filterRelevantMeasurements(List<ClimateMeasurement> data) {
-        return Flux.fromIterable(data)
-                .filter(climateMeasurement -> climateMeasurement.getTemperature() < 3.0 || climateMeasurement.getHumidity() < 10.0 || climateMeasurement.getHumidity() > 90.0)
-                .collectList();
+    private boolean shouldSendAlarm(Map<Sensor, List<ClimateMeasurement>> data) {
+        return data.values().stream()
+                .flatMap(List::stream)
+                .anyMatch(measurement -> this.climateRuleEngine.getRules().stream().anyMatch(rule -> rule.isViolatedBy(measurement)));
     }
 }
@@ -0,0 +1,45 @@
+package org.salex.hmip.observer.task;
+
+import org.salex.hmip.observer.service.MailOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+
+@ConditionalOnProperty({"org.salex.mail.outbox.interval", "org.salex.mail.climateAlertAddresses"})
+@Service
+public class MailOutboxTask {
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutboxTask.class);
+
+    private final MailOutbox mailOutbox;
+
+    private final Duration retention;
+
+    public MailOutboxTask(@Value("${org.salex.mail.outbox.interval}") long interval, @Value("${org.salex.mail.outbox.retention:P7D}") Duration retention, MailOutbox mailOutbox) {
+        this.mailOutbox = mailOutbox;
+        this.retention = retention;
+        LOG.info(String.format("Mail outbox task started scheduled every %d ms", interval));
+    }
+
+    /**
+     * Sends the due mails and purges the finished mails older than the retention.
+     */
+    @Scheduled(fixedDelayString = "${org.salex.mail.outbox.interval}")
+    public void send() {
+        try {
+            this.mailOutbox.send();
+        } catch(RuntimeException e) {
+            LOG.warn("Sending the mails of the outbox failed: " + e.getMessage());
+        }
+        try {
+            this.mailOutbox.purge(new Date(System.currentTimeMillis() - this.retention.toMillis()));
+        } catch(RuntimeException e) {
+            LOG.warn("Purging the mails of the outbox failed: " + e.getMessage());
+        }
+    }
+}
@@ -2,10 +2,11 @@ package org.salex.hmip.observer.task;
 
 import org.salex.hmip.observer.blog.Image;
 import org.salex.hmip.observer.data.*;
+import org.salex.hmip.observer.service.BlockingExecutor;
 import org.salex.hmip.observer.service.BlogPublishService;
 import org.salex.hmip.observer.service.ClimateMeasurementService;
-import org.salex.hmip.observer.service.OperatingAlertService;
 import org.salex.hmip.observer.service.OperatingMeasurementService;
+import org.salex.hmip.observer.service.RuntimeMeasurementService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,7 +19,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @ConditionalOnProperty("org.salex.cron.measure")
 @Service
@@ -31,16 +31,19 @@ public class MeasurementTask {
 
     private final ClimateMeasurementService climateMeasurementService;
 
+    private final RuntimeMeasurementService runtimeMeasurementService;
+
     private final BlogPublishService blogPublishService;
 
-    private final OperatingAlertService operatingAlertService;
+    private final BlockingExecutor blockingExecutor;
 
-    public MeasurementTask(@Value("${org.salex.cron.measure}") String cron, ObserverDatabase database, OperatingMeasurementService operatingMeasurementService, ClimateMeasurementService climateMeasurementService, BlogPublishService blogPublishService, OperatingAlertService operatingAlertService) {
+    public MeasurementTask(@Value("${org.salex.cron.measure}") String cron, ObserverDatabase database, OperatingMeasurementService operatingMeasurementService, ClimateMeasurementService climateMeasurementService, RuntimeMeasurementService runtimeMeasurementService, BlogPublishService blogPublishService, BlockingExecutor blockingExecutor) {
         this.database = database;
         this.operatingMeasurementService = operatingMeasurementService;
         this.climateMeasurementService = climateMeasurementService;
+        this.runtimeMeasurementService = runtimeMeasurementService;
         this.blogPublishService = blogPublishService;
-        this.operatingAlertService = operatingAlertService;
+        this.blockingExecutor = blockingExecutor;
         LOG.info(String.format("Measurement task started scheduled with cron %s", cron));
     }
 
@@ -49,25 +52,17 @@ public class MeasurementTask {
         Mono.just(new Reading())
                 .flatMap(this.climateMeasurementService::measureClimateValues)
                 .flatMap(this.operatingMeasurementService::measureOperatingValues)
-                .map(this.database::addReading)
-                .flatMap(this::checkByOperatingAlertService)
+                .flatMap(this.runtimeMeasurementService::measureRuntimeValues)
+                .flatMap(reading -> this.blockingExecutor.call(() -> this.database.addReading(reading)))
                 .flatMap(this.blogPublishService::postOverview)
                 .flatMap(this::postDetailsByBlogPublishService)
                 .subscribe();
     }
 
-    private Mono<Reading> checkByOperatingAlertService(Reading reading) {
-        this.operatingAlertService.check(reading.getMeasurements().stream()
-                .filter(m -> m instanceof OperatingMeasurement)
-                .map(OperatingMeasurement.class::cast)
-                .collect(Collectors.toList()));
-        return Mono.just(reading);
-    }
-
     private Mono<Map<Sensor, List<ClimateMeasurement>>> postDetailsByBlogPublishService(Reading reading) {
         final var end = reading.getReadingTime();
         final var start = new Date(end.getTime() - TimeUnit.HOURS.toMillis(24));
-        final var data = this.database.getClimateMeasurements(start, end);
-        return this.blogPublishService.postDetails(start, end, data);
+        return this.blockingExecutor.call(() -> this.database.getClimateMeasurements(start, end))
+                .flatMap(data -> this.blogPublishService.postDetails(start, end, data));
     }
 }
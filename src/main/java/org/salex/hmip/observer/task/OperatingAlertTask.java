@@ -10,9 +10,6 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.util.List;
-import java.util.function.Predicate;
-
 @ConditionalOnProperty("org.salex.cron.operatingAlert")
 @Service
 public class OperatingAlertTask {
@@ -30,9 +27,15 @@ public class OperatingAlertTask {
 
     @Scheduled(cron = "${org.salex.cron.operatingAlert}")
     public void checkAndSendAlert() {
-        Mono.just(operatingAlertService.retrieveEvents())
-                .filter(Predicate.not(List::isEmpty))
-                .flatMap(this.mailPublishService::sendOperatingAlert)
-                .subscribe();
+        final var events = operatingAlertService.retrieveEvents();
+        if(events.isEmpty()) {
+            return;
+        }
+        this.mailPublishService.sendOperatingAlert(events)
+                .switchIfEmpty(Mono.error(new IllegalStateException("Operating alert not sent")))
+                .subscribe(this.operatingAlertService::confirmDelivery, error -> {
+                    LOG.error("Sending the operating alert failed, it is retried with the next check: " + error.getMessage());
+                    this.operatingAlertService.failDelivery(events);
+                });
     }
 }
@@ -0,0 +1,33 @@
+package org.salex.hmip.observer.task;
+
+import org.salex.hmip.observer.service.SampledOperatingMeasurementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+@ConditionalOnProperty("org.salex.raspberry.sampling.interval")
+@Service
+public class OperatingSamplingTask {
+    private static final Logger LOG = LoggerFactory.getLogger(OperatingSamplingTask.class);
+
+    private final SampledOperatingMeasurementService sampledOperatingMeasurementService;
+
+    public OperatingSamplingTask(@Value("${org.salex.raspberry.sampling.interval}") long interval, SampledOperatingMeasurementService sampledOperatingMeasurementService) {
+        this.sampledOperatingMeasurementService = sampledOperatingMeasurementService;
+        LOG.info(String.format("Operating sampling task started scheduled every %d ms", interval));
+    }
+
+    @Scheduled(fixedDelayString = "${org.salex.raspberry.sampling.interval}")
+    public void sample() {
+        try {
+            this.sampledOperatingMeasurementService.sample();
+        } catch(IOException e) {
+            LOG.warn("Sampling operating values failed: " + e.getMessage());
+        }
+    }
+}
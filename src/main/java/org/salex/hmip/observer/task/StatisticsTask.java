@@ -1,6 +1,7 @@
 package org.salex.hmip.observer.task;
 
 import org.salex.hmip.observer.data.ObserverDatabase;
+import org.salex.hmip.observer.service.BlockingExecutor;
 import org.salex.hmip.observer.service.BlogPublishService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,7 +9,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Mono;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -22,9 +22,12 @@ public class StatisticsTask {
 
     private final BlogPublishService blogPublishService;
 
-    public StatisticsTask(@Value("${org.salex.cron.statistics}") String cron, ObserverDatabase database, BlogPublishService blogPublishService) {
+    private final BlockingExecutor blockingExecutor;
+
+    public StatisticsTask(@Value("${org.salex.cron.statistics}") String cron, ObserverDatabase database, BlogPublishService blogPublishService, BlockingExecutor blockingExecutor) {
         this.database = database;
         this.blogPublishService = blogPublishService;
+        this.blockingExecutor = blockingExecutor;
         LOG.info(String.format("Statistics task started scheduled with cron %s", cron));
     }
 
@@ -32,7 +35,7 @@ public class StatisticsTask {
     public void updateStatistics() {
         final var end = new Date();
         final var start = new Date(end.getTime() - TimeUnit.DAYS.toMillis(365));
-        Mono.just(this.database.getClimateMeasurementBoundaries(start, end))
+        this.blockingExecutor.call(() -> this.database.getClimateMeasurementBoundaries(start, end))
                 .flatMap(data -> this.blogPublishService.postHistory(start, end, data))
                 .subscribe();
     }
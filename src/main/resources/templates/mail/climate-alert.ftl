@@ -33,4 +33,7 @@
             </td>
         </tr>
     </#list>
-</table>
\ No newline at end of file
+</table>
+<#if chart?? >
+<p><img src="cid:${chart}" width="600" height="300" alt="Verlauf der letzten 24 Stunden" /></p>
+</#if>
@@ -11,25 +11,93 @@
     <#list exceedances as exceedance>
     <tr>
         <td><span style="font-size: 16px; color: gray;">${exceedance.timestamp?datetime}</span></td>
-        <td><span style="font-size: 16px;">${exceedance.measurement.cpuTemperature?string.@cpuTemp}</span></td>
-        <td><span style="font-size: 16px;">${exceedance.measurement.memoryUsage?string.@memUsage}</span></td>
+        <td><span style="font-size: 16px;">${(exceedance.measurement.cpuTemperatureMaximum!exceedance.measurement.cpuTemperature)?string.@cpuTemp}</span></td>
+        <td><span style="font-size: 16px;">${(exceedance.measurement.memoryUsageMaximum!exceedance.measurement.memoryUsage)?string.@memUsage}</span></td>
         <td><span style="font-size: 16px;">${exceedance.measurement.diskUsage?string.@memUsage}</span></td>
     </tr>
     </#list>
 </table>
 </#if>
+<#if runtimeExceedances?has_content >
+<h1>Laufzeitumgebung im Grenzbereich</h1>
+<p>Die nachfolgenden Werte der Java-Laufzeitumgebung liegen im Grenzbereich</p>
+<table>
+    <tr>
+        <th><span style="font-size: 16px; color: #666666;">Zeitpunkt</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Heap-Auslastung</span></th>
+        <th><span style="font-size: 16px; color: #666666;">GC-Zeitanteil</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Threads</span></th>
+    </tr>
+    <#list runtimeExceedances as exceedance>
+    <tr>
+        <td><span style="font-size: 16px; color: gray;">${exceedance.timestamp?datetime}</span></td>
+        <td><span style="font-size: 16px;">${exceedance.measurement.heapUsage?string.@memUsage}</span></td>
+        <td><span style="font-size: 16px;">${exceedance.measurement.gcTimeRatio?string.@memUsage}</span></td>
+        <td><span style="font-size: 16px;">${exceedance.measurement.threadCount}</span></td>
+    </tr>
+    </#list>
+</table>
+</#if>
+<#if forecasts?has_content >
+<h1>Vorhergesagte Grenzwertverletzungen</h1>
+<p>Nach dem Verlauf der letzten Messungen werden die nachfolgenden Klimaregeln voraussichtlich bald verletzt</p>
+<table>
+    <tr>
+        <th><span style="font-size: 16px; color: #666666;">Zeitpunkt</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Sensor</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Regel</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Messwert</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Voraussichtlich um</span></th>
+    </tr>
+    <#list forecasts as forecast>
+    <#assign format = (forecast.rule.value == "TEMPERATURE")?then("@temp", "@hum") >
+    <tr>
+        <td><span style="font-size: 16px; color: gray;">${forecast.timestamp?datetime}</span></td>
+        <td><span style="font-size: 16px;">${forecast.measurement.sensor.name}</span></td>
+        <td><span style="font-size: 16px;">${forecast.rule?string?html}</span></td>
+        <td><span style="font-size: 16px;">${forecast.actual?string[format]}</span></td>
+        <td><span style="font-size: 16px;">${forecast.crossing?datetime}</span></td>
+    </tr>
+    </#list>
+</table>
+</#if>
+<#if anomalies?has_content >
+<h1>Ungewöhnliche Klimawerte</h1>
+<p>Die nachfolgenden Klimawerte weichen deutlich von ihrem bisherigen Verlauf ab</p>
+<table>
+    <tr>
+        <th><span style="font-size: 16px; color: #666666;">Zeitpunkt</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Sensor</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Abweichung</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Messwert</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Erwartet</span></th>
+    </tr>
+    <#list anomalies as anomaly>
+    <#assign format = (anomaly.value == "TEMPERATURE")?then("@temp", "@hum") >
+    <tr>
+        <td><span style="font-size: 16px; color: gray;">${anomaly.timestamp?datetime}</span></td>
+        <td><span style="font-size: 16px;">${anomaly.measurement.sensor.name}</span></td>
+        <td><span style="font-size: 16px;"><#if anomaly.kind == "SPIKE">Ausreißer<#elseif anomaly.kind == "DRIFT_UP">Anstieg<#else>Abfall</#if></span></td>
+        <td><span style="font-size: 16px;">${anomaly.actual?string[format]}</span></td>
+        <td><span style="font-size: 16px;">${anomaly.expected?string[format]}</span></td>
+    </tr>
+    </#list>
+</table>
+</#if>
 <#if errors?has_content >
 <h1>Aufgetretene Fehler</h1>
 <p>Details zu den Fehlern sind im Fehler-Log zu finden</p>
 <table>
     <tr>
         <th><span style="font-size: 16px; color: #666666;">Zeitpunkt</span></th>
+        <th><span style="font-size: 16px; color: #666666;">Anzahl</span></th>
         <th><span style="font-size: 16px; color: #666666;">Meldung</span></th>
         <th><span style="font-size: 16px; color: #666666;">Ursache</span></th>
     </tr>
     <#list errors as error>
         <tr>
-            <td><span style="font-size: 16px; color: gray;">${error.timestamp?datetime}</span></td>
+            <td><span style="font-size: 16px; color: gray;">${error.firstSeen?datetime}<#if error.count gt 1> - ${error.lastSeen?datetime}</#if></span></td>
+            <td><span style="font-size: 16px; color: gray;">${error.count}</span></td>
             <td><span style="font-size: 16px; color: gray;">${error.error.message}</span></td>
             <td><span style="font-size: 16px; color: gray;">${error.rootCause.message}</span></td>
         </tr>
@@ -0,0 +1,145 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.*;
+import org.salex.hmip.observer.service.AlertJournal;
+import org.salex.hmip.observer.service.AlertStateMachine;
+import org.salex.hmip.observer.service.ClimateRule;
+import org.salex.hmip.observer.service.DefaultOperatingAlertService;
+import org.salex.hmip.observer.service.EventBuffer;
+import org.salex.hmip.observer.service.JpaAlertJournal;
+import org.salex.hmip.observer.service.OperatingAlertService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({JpaObserverDatabase.class, TestObserverConfiguration.class })
+public class TestAlertJournal {
+    @Autowired
+    JpaObserverDatabase database;
+
+    @Autowired
+    AlertJournal journal;
+
+    @Autowired
+    AlertJournalRepository alertJournalRepository;
+
+    @Autowired
+    OperatingMeasurementRepository operatingMeasurementRepository;
+
+    @Autowired
+    RuntimeMeasurementRepository runtimeMeasurementRepository;
+
+    @Autowired
+    ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Test
+    void should_return_entries_by_time_and_sensor() {
+        final var now = new Date();
+        final var sensor = this.database.getSensors().iterator().next();
+        final var reading = new Reading(now);
+        final var measurement = new ClimateMeasurement(reading, sensor, now, 2.0, 50.0, 5.0);
+        reading.addMeasurement(measurement);
+        this.database.addReading(reading);
+        this.journal.record(new OperatingAlertService.Error(new RuntimeException("Some test exception")));
+        this.journal.recordClimateAlert(measurement, ClimateRule.parse("temperature < 3.0"), AlertStateMachine.State.FIRING);
+        this.journal.flush();
+        final var start = new Date(now.getTime() - TimeUnit.HOURS.toMillis(1));
+        final var end = new Date(now.getTime() + TimeUnit.HOURS.toMillis(1));
+        assertThat(this.journal.getEntries(start, end).size()).isEqualTo(2);
+        final var entries = this.journal.getEntries(start, end, sensor);
+        assertThat(entries.size()).isEqualTo(1);
+        assertThat(entries.get(0).getKind()).isEqualTo(AlertJournalEntry.Kind.CLIMATE_FIRING);
+        assertThat(entries.get(0).getMessage()).isEqualTo("temperature < 3.0");
+    }
+
+    @Test
+    void should_recover_undelivered_events_after_restart() {
+        final var reading = new Reading(new Date());
+        reading.addMeasurement(new OperatingMeasurement(reading, 61.0, 2.0, 50.0, 50.0));
+        this.database.addReading(reading);
+        final var service = new DefaultOperatingAlertService(Duration.ZERO, 16, EventBuffer.Overflow.DROP_OLDEST, this.journal);
+        service.signal(new RuntimeException("Delivered exception"));
+        final var delivered = service.retrieveEvents();
+        service.confirmDelivery(delivered);
+        service.signal(new RuntimeException("First", new IllegalStateException("Some test exception")));
+        service.signal(new RuntimeException("Second", new IllegalStateException("Some test exception")));
+        service.checkReading(reading);
+        this.journal.flush();
+
+        final var restarted = new DefaultOperatingAlertService(Duration.ZERO, 16, EventBuffer.Overflow.DROP_OLDEST,
+                new JpaAlertJournal(this.alertJournalRepository, this.operatingMeasurementRepository, this.runtimeMeasurementRepository, this.climateMeasurementRepository));
+        final var events = restarted.retrieveEvents();
+        assertThat(events.size()).isEqualTo(2);
+        final var error = (OperatingAlertService.Error) events.get(0);
+        assertThat(error.getCount()).isEqualTo(2);
+        assertThat(error.getRootCause().getMessage()).contains("Some test exception");
+        assertThat(events.get(1)).isInstanceOf(OperatingAlertService.Exceedance.class);
+        assertThat(((OperatingAlertService.Exceedance) events.get(1)).getMeasurement().getCpuTemperature()).isEqualTo(61.0);
+    }
+
+    @Test
+    void should_recover_anomaly_with_exact_values() {
+        final var now = new Date();
+        final var sensor = this.database.getSensors().iterator().next();
+        final var reading = new Reading(now);
+        final var measurement = new ClimateMeasurement(reading, sensor, now, 31.0, 50.0, 5.0);
+        reading.addMeasurement(measurement);
+        this.database.addReading(reading);
+        this.journal.record(new OperatingAlertService.Anomaly(measurement, ClimateRule.Value.TEMPERATURE, OperatingAlertService.Anomaly.Kind.SPIKE, 21.123456789, 0.987654321, 10.0001234));
+        this.journal.flush();
+
+        final var restarted = new JpaAlertJournal(this.alertJournalRepository, this.operatingMeasurementRepository, this.runtimeMeasurementRepository, this.climateMeasurementRepository);
+        final var events = restarted.recover(16);
+        assertThat(events.size()).isEqualTo(1);
+        final var anomaly = (OperatingAlertService.Anomaly) events.get(0);
+        assertThat(anomaly.getMeasurement().getId()).isEqualTo(measurement.getId());
+        assertThat(anomaly.getValue()).isEqualTo(ClimateRule.Value.TEMPERATURE);
+        assertThat(anomaly.getKind()).isEqualTo(OperatingAlertService.Anomaly.Kind.SPIKE);
+        assertThat(anomaly.getExpected()).isEqualTo(21.123456789);
+        assertThat(anomaly.getDeviation()).isEqualTo(0.987654321);
+        assertThat(anomaly.getScore()).isEqualTo(10.0001234);
+    }
+
+    @Test
+    void should_redeliver_events_whose_delivery_failed() {
+        final var service = new DefaultOperatingAlertService(Duration.ZERO, 16, EventBuffer.Overflow.DROP_OLDEST, this.journal);
+        service.signal(new RuntimeException("Some test exception"));
+        final var failed = service.retrieveEvents();
+        assertThat(failed.size()).isEqualTo(1);
+        service.failDelivery(failed);
+
+        final var retried = service.retrieveEvents();
+        assertThat(retried.size()).isEqualTo(1);
+        assertThat(((OperatingAlertService.Error) retried.get(0)).getRootCause().getMessage()).contains("Some test exception");
+        service.confirmDelivery(retried);
+        assertThat(service.retrieveEvents()).isEmpty();
+        assertThat(this.alertJournalRepository.findAll()).hasSize(1).allMatch(AlertJournalEntry::isDelivered);
+    }
+
+    @Test
+    void should_mark_dropped_events_as_failed() {
+        final var service = new DefaultOperatingAlertService(Duration.ZERO, 2, EventBuffer.Overflow.DROP_OLDEST, this.journal);
+        service.signal(new RuntimeException("Dropped exception"));
+        service.signal(new RuntimeException("First kept exception"));
+        service.signal(new RuntimeException("Second kept exception"));
+        this.journal.flush();
+
+        final var events = service.retrieveEvents();
+        assertThat(events.size()).isEqualTo(2);
+        assertThat(((OperatingAlertService.Error) events.get(0)).getRootCause().getMessage()).contains("First kept exception");
+        this.journal.flush();
+        assertThat(this.alertJournalRepository.findAll())
+                .filteredOn(AlertJournalEntry::isFailed)
+                .extracting(AlertJournalEntry::getMessage)
+                .containsExactly("java.lang.RuntimeException: Dropped exception");
+    }
+}
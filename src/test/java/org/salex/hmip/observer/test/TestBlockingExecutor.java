@@ -0,0 +1,39 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestBlockingExecutor {
+    @Test
+    void should_run_operation_on_calling_thread_when_immediate() {
+        final var executor = BlockingExecutor.create(BlockingExecutor.Mode.IMMEDIATE);
+        final var caller = Thread.currentThread();
+        StepVerifier
+                .create(executor.call(Thread::currentThread))
+                .expectNext(caller)
+                .verifyComplete();
+    }
+
+    @Test
+    void should_offload_operation_from_calling_thread_when_virtual_threads() {
+        final var executor = BlockingExecutor.create(BlockingExecutor.Mode.VIRTUAL_THREADS);
+        final var caller = Thread.currentThread();
+        StepVerifier
+                .create(executor.call(Thread::currentThread))
+                .assertNext(thread -> assertThat(thread).isNotSameAs(caller))
+                .verifyComplete();
+        executor.dispose();
+    }
+
+    @Test
+    void should_offload_operation_from_calling_thread_when_bounded_elastic() {
+        final var executor = BlockingExecutor.create(BlockingExecutor.Mode.BOUNDED_ELASTIC);
+        StepVerifier
+                .create(executor.call(() -> Thread.currentThread().getName()))
+                .assertNext(name -> assertThat(name).startsWith("boundedElastic"))
+                .verifyComplete();
+    }
+}
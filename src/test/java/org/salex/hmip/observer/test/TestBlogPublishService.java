@@ -1,11 +1,13 @@
 package org.salex.hmip.observer.test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
 import org.salex.hmip.observer.blog.Image;
 import org.salex.hmip.observer.data.*;
 import org.salex.hmip.observer.service.*;
@@ -13,14 +15,21 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -39,7 +48,9 @@ public class TestBlogPublishService {
         this.mockWebServer.start();
         this.webClient = WebClient.builder().baseUrl(mockWebServer.url("/").toString()).build();
         this.contentGenerator = mock(ContentGenerator.class);
-        this.chartGenerator = mock(ChartGenerator.class);
+        this.chartGenerator = mock(ChartGenerator.class, CALLS_REAL_METHODS);
+        when(chartGenerator.getContentType()).thenReturn("image/png");
+        when(chartGenerator.getFileExtension()).thenReturn("png");
     }
 
     @AfterEach
@@ -109,7 +120,6 @@ public class TestBlogPublishService {
         when(chartGenerator.create24HourChart(any(), any(), any())).thenReturn(Mono.just(new byte[0]));
         when(contentGenerator.generateDetails(any(), any(), any(), any(Image.class))).thenReturn(Mono.just("some test content"));
         this.mockWebServer.enqueue(createMockResponse(HttpStatus.CREATED, "add-image-result.json", new String[][] { { "Location", "some-test-id/12345" }, { "Content-Type", "application/json; charset=UTF-8" }})); // Add new image
-        this.mockWebServer.enqueue(createMockResponse(HttpStatus.OK, "get-image-result.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } })); // Read data for new image
         this.mockWebServer.enqueue(createMockResponse(HttpStatus.OK, "details-page.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } })); // Read old content
         this.mockWebServer.enqueue(createMockResponse(HttpStatus.OK, null)); // Post new content
         this.mockWebServer.enqueue(createMockResponse(HttpStatus.OK, null)); // Delete image 634535
@@ -124,19 +134,17 @@ public class TestBlogPublishService {
         // Verification
         verify(contentGenerator, times(1)).generateDetails(any(), any(), any(), any(Image.class));
         verifyNoMoreInteractions(contentGenerator);
+        verify(chartGenerator, times(1)).create24HourChart(eq(ChartFingerprint.of24HourChart(tenMinutesAgo, now, data)), any(), any(), any());
         verify(chartGenerator, times(1)).create24HourChart(any(), any(), any());
-        verifyNoMoreInteractions(chartGenerator);
-        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(5);
+        verifyNoMoreInteractions(ignoreStubs(chartGenerator));
+        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(4);
         final var addNewImageRequest = this.mockWebServer.takeRequest();
-        final var readNewImageRequest = this.mockWebServer.takeRequest();
         final var readPostRequest = this.mockWebServer.takeRequest();
         final var updatePostRequest = this.mockWebServer.takeRequest();
         final var deleteOldImageRequest = this.mockWebServer.takeRequest();
         assertThat(addNewImageRequest.getMethod()).isEqualTo("POST");
         assertThat(addNewImageRequest.getPath()).isEqualTo("/media");
         assertThat(addNewImageRequest.getHeader("content-disposition")).startsWith("attachement; filename=verlauf-");
-        assertThat(readNewImageRequest.getMethod()).isEqualTo("GET");
-        assertThat(readNewImageRequest.getPath()).isEqualTo("/media/12345");
         assertThat(readPostRequest.getMethod()).isEqualTo("GET");
         assertThat(readPostRequest.getPath()).isEqualTo("/pages/148");
         assertThat(updatePostRequest.getMethod()).isEqualTo("POST");
@@ -166,17 +174,24 @@ public class TestBlogPublishService {
                 ));
 
         // Prepare the mocks
-        when(chartGenerator.create365DayHumidityChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenReturn(Mono.just(new byte[0]));
-        when(chartGenerator.create365DayTemperatureChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenReturn(Mono.just(new byte[0]));
+        final var renderThreads = new ConcurrentLinkedQueue<String>();
+        when(chartGenerator.create365DayHumidityChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenAnswer(invocation -> {
+            renderThreads.add(Thread.currentThread().getName());
+            return Mono.just(new byte[] { invocation.getArgument(3, Sensor.class).getId().byteValue(), 1 });
+        });
+        when(chartGenerator.create365DayTemperatureChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenAnswer(invocation -> {
+            renderThreads.add(Thread.currentThread().getName());
+            return Mono.just(new byte[] { invocation.getArgument(3, Sensor.class).getId().byteValue(), 2 });
+        });
         when(contentGenerator.generateHistory(any(Date.class), any(Date.class), any(Map.class), any(Map.class))).thenReturn(Mono.just("some test content"));
-
+        final var mediaIds = new AtomicInteger();
         this.mockWebServer.setDispatcher(new Dispatcher() {
             @NotNull
             @Override
             public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) throws InterruptedException {
                 if(recordedRequest.getPath().startsWith("/media")) {
                     if(recordedRequest.getMethod().equals("POST")) {
-                        return createMockResponse(HttpStatus.CREATED, "add-image-result.json", new String[][] { { "Location", "some-test-id/12345" }, { "Content-Type", "application/json; charset=UTF-8" }}); // Add new image
+                        return createAddImageResponse(mediaIds.incrementAndGet()); // Add new image
                     }
                     if(recordedRequest.getMethod().equals("GET")) {
                         return createMockResponse(HttpStatus.OK, "get-image-result.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read data for new image
@@ -197,20 +212,448 @@ public class TestBlogPublishService {
             }
         });
 
-        // Create and call the service
-        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator);
+        // Create and call the service, rendering in parallel
+        final var renderScheduler = Schedulers.newParallel("chart-render", 2, true);
+        final var registry = new SimpleMeterRegistry();
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator, 16, null, MediaIndex.inMemory(), BlockingExecutor.immediate(), renderScheduler, registry);
         StepVerifier
                 .create(service.postHistory(yesterday, now, data))
                 .expectNextCount(1)
                 .verifyComplete();
+        renderScheduler.dispose();
 
         // Verification
         verify(contentGenerator, times(1)).generateHistory(any(Date.class), any(Date.class), any(Map.class), any(Map.class));
         verifyNoMoreInteractions(contentGenerator);
+        verify(chartGenerator, times(2)).create365DayTemperatureChart(anyString(), any(Date.class), any(Date.class), any(List.class), any(Sensor.class));
+        verify(chartGenerator, times(2)).create365DayHumidityChart(anyString(), any(Date.class), any(Date.class), any(List.class), any(Sensor.class));
         verify(chartGenerator, times(2)).create365DayTemperatureChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class));
         verify(chartGenerator, times(2)).create365DayHumidityChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class));
-        verifyNoMoreInteractions(chartGenerator);
-        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(14);
+        verifyNoMoreInteractions(ignoreStubs(chartGenerator));
+        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(10);
+        assertThat(renderThreads).hasSize(4).allMatch(name -> name.startsWith("chart-render"));
+        assertThat(registry.get("observer.chart.render").tag("kind", "365d-temperature").timer().count()).isEqualTo(2);
+        assertThat(registry.get("observer.chart.render").tag("kind", "365d-humidity").timer().count()).isEqualTo(2);
+        assertThat(registry.get("observer.blog.upload").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void should_reuse_unchanged_chart_without_rendering_and_uploading() throws Exception {
+        // Prepare the test data
+        final var now = new Date();
+        final var tenMinutesAgo = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(10));
+        final var reading = new Reading(now);
+        final var sensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var data = Map.of(
+                sensor, List.of(
+                        new ClimateMeasurement(reading, sensor, tenMinutesAgo, 13.2, 42.7, 5.2386758493768),
+                        new ClimateMeasurement(reading, sensor, now, 12.2, 32.7, 5.2386758493768)
+                )
+        );
+
+        // Prepare the mocks
+        when(chartGenerator.create24HourChart(any(), any(), any())).thenReturn(Mono.just(new byte[0]));
+        when(contentGenerator.generateDetails(any(), any(), any(), any(Image.class))).thenReturn(Mono.just("some test content"), Mono.just("some other test content"));
+        final var referencedImages = new AtomicReference<>("634535");
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+                if(recordedRequest.getPath().startsWith("/media")) {
+                    if(recordedRequest.getMethod().equals("POST")) {
+                        return createMockResponse(HttpStatus.CREATED, "add-image-result.json", new String[][] { { "Location", "some-test-id/12345" }, { "Content-Type", "application/json; charset=UTF-8" }}); // Add new image
+                    }
+                    if(recordedRequest.getMethod().equals("GET")) {
+                        return createMockResponse(HttpStatus.OK, "get-image-result.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read data for new image
+                    }
+                    return createMockResponse(HttpStatus.OK, null); // Delete old image
+                }
+                if(recordedRequest.getMethod().equals("POST")) {
+                    referencedImages.set("12345");
+                    return createMockResponse(HttpStatus.OK, null); // Post new content
+                }
+                final var response = createMockResponse(HttpStatus.OK, "details-page.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read old content
+                return response.setBody(response.getBody().readUtf8().replace("\"referenced_images\": \"634535\"", "\"referenced_images\": \"" + referencedImages.get() + "\""));
+            }
+        });
+
+        // Create and call the service twice with the same data
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator);
+        StepVerifier
+                .create(service.postDetails(tenMinutesAgo, now, data).then(service.postDetails(tenMinutesAgo, now, data)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verification
+        verify(chartGenerator, times(1)).create24HourChart(any(), any(), any());
+        verify(contentGenerator, times(2)).generateDetails(any(), any(), any(), any(Image.class));
+        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(5);
+        final var requests = new ArrayList<String>();
+        for(int i = 0; i < 5; i++) {
+            final var request = this.mockWebServer.takeRequest();
+            requests.add(request.getMethod() + " " + request.getPath());
+        }
+        assertThat(requests).containsExactly(
+                "POST /media", "GET /pages/148", "POST /pages/148", "DELETE /media/634535?force=true",
+                "POST /pages/148");
+    }
+
+    @Test
+    void should_skip_update_of_post_with_unchanged_content() throws Exception {
+        // Prepare the test data
+        final var reading = new Reading(new Date());
+
+        // Prepare the mocks
+        when(contentGenerator.generateOverview(reading)).thenReturn(Mono.just("some test content"), Mono.just("some test content"), Mono.just("some other test content"));
+        final var postRepository = mock(PublishedPostRepository.class);
+        when(postRepository.findAll()).thenReturn(List.of());
+        when(postRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+                if(recordedRequest.getMethod().equals("POST")) {
+                    return createMockResponse(HttpStatus.OK, null); // Post new content
+                }
+                return createMockResponse(HttpStatus.OK, "overview-content-block.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read old content
+            }
+        });
+
+        // Create and call the service three times, the second time with the same content
+        final var registry = new SimpleMeterRegistry();
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator, 16, postRepository, MediaIndex.inMemory(), BlockingExecutor.immediate(), Schedulers.immediate(), registry);
+        StepVerifier
+                .create(service.postOverview(reading).then(service.postOverview(reading)).then(service.postOverview(reading)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verification, the post is only read once
+        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(3);
+        assertThat(registry.get("observer.blog.write").tag("post", "overview").tag("result", "written").counter().count()).isEqualTo(2);
+        assertThat(registry.get("observer.blog.write").tag("post", "overview").tag("result", "skipped").counter().count()).isEqualTo(1);
+        final var saved = ArgumentCaptor.forClass(PublishedPost.class);
+        verify(postRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues()).extracting(PublishedPost::getKey).containsOnly("content_block/146");
+
+        // A new service knows the published content from the repository
+        when(postRepository.findAll()).thenReturn(List.of(saved.getValue()));
+        when(contentGenerator.generateOverview(reading)).thenReturn(Mono.just("some other test content"));
+        final var restarted = new WordPressPublishService(webClient, contentGenerator, chartGenerator, 16, postRepository, MediaIndex.inMemory(), BlockingExecutor.immediate(), Schedulers.immediate(), registry);
+        StepVerifier
+                .create(restarted.postOverview(reading))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void should_write_same_content_again_after_failed_update() throws Exception {
+        // Prepare the test data
+        final var reading = new Reading(new Date());
+
+        // Prepare the mocks, the first post of the content fails
+        when(contentGenerator.generateOverview(reading)).thenReturn(Mono.just("some test content"));
+        final var posts = new AtomicInteger();
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+                if(recordedRequest.getMethod().equals("POST")) {
+                    return createMockResponse(posts.incrementAndGet() == 1 ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK, null); // Post new content
+                }
+                return createMockResponse(HttpStatus.OK, "overview-content-block.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read old content
+            }
+        });
+
+        // Create and call the service twice with the same content
+        final var registry = new SimpleMeterRegistry();
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator, 16, null, MediaIndex.inMemory(), BlockingExecutor.immediate(), Schedulers.immediate(), registry);
+        StepVerifier
+                .create(service.postOverview(reading))
+                .verifyError();
+        StepVerifier
+                .create(service.postOverview(reading))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verification, the content isn't skipped, as it hasn't been written before
+        assertThat(posts.get()).isEqualTo(2);
+        assertThat(registry.get("observer.blog.write").tag("post", "overview").tag("result", "written").counter().count()).isEqualTo(1);
+        assertThat(registry.find("observer.blog.write").tag("result", "skipped").counters()).allMatch(counter -> counter.count() == 0);
+    }
+
+    @Test
+    void should_write_known_post_conditionally_and_read_it_on_conflict() throws Exception {
+        // Prepare the test data
+        final var reading = new Reading(new Date());
+
+        // Prepare the mocks
+        when(contentGenerator.generateOverview(reading)).thenReturn(Mono.just("some test content"), Mono.just("some other test content"));
+        final var posts = new AtomicInteger();
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+                if(recordedRequest.getMethod().equals("POST")) {
+                    if(posts.incrementAndGet() == 2) {
+                        return createMockResponse(HttpStatus.PRECONDITION_FAILED, null); // Modified by someone else
+                    }
+                    final var written = createMockResponse(HttpStatus.OK, "overview-content-block.json").getBody().readUtf8();
+                    return createMockResponse(HttpStatus.OK, null, new String[] { "Content-Type", "application/json; charset=UTF-8" })
+                            .setBody(written.replace("2022-03-30T20:05:00", "2022-03-30T20:10:00")); // Post content, modified by this write
+                }
+                return createMockResponse(HttpStatus.OK, "overview-content-block.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read content
+            }
+        });
+
+        // Create and call the service twice with different content
+        final var registry = new SimpleMeterRegistry();
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator, 16, null, MediaIndex.inMemory(), BlockingExecutor.immediate(), Schedulers.immediate(), registry);
+        StepVerifier
+                .create(service.postOverview(reading).then(service.postOverview(reading)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verification
+        assertThat(this.mockWebServer.getRequestCount()).isEqualTo(5);
+        final var requests = new ArrayList<RecordedRequest>();
+        for(int i = 0; i < 5; i++) {
+            requests.add(this.mockWebServer.takeRequest());
+        }
+        assertThat(requests).extracting(RecordedRequest::getMethod).containsExactly("GET", "POST", "POST", "GET", "POST");
+        assertThat(requests.get(2).getHeader("If-Unmodified-Since")).isEqualTo("Wed, 30 Mar 2022 20:10:00 GMT");
+        assertThat(requests.get(2).getBody().readUtf8()).doesNotContain("modified");
+        assertThat(registry.get("observer.blog.meta").tag("post", "overview").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(registry.get("observer.blog.meta").tag("post", "overview").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(registry.get("observer.blog.meta").tag("post", "overview").tag("result", "conflict").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_share_identical_images_and_delete_them_when_unreferenced() throws Exception {
+        // Prepare the test data
+        final var now = new Date();
+        final var tenMinutesAgo = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(10));
+        final var yesterday = new Date(now.getTime() - TimeUnit.DAYS.toMillis(1));
+        final var reading = new Reading(now);
+        final var sensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var details = Map.of(sensor, List.of(new ClimateMeasurement(reading, sensor, now, 12.2, 32.7, 5.2386758493768)));
+        final var changedDetails = Map.of(sensor, List.of(new ClimateMeasurement(reading, sensor, now, 14.2, 32.7, 5.2386758493768)));
+        final var history = Map.of(sensor, List.of(createBoundaries(sensor, now, 10.0, 15.0, 42.0, 56.0, 3.123, 5.321)));
+
+        // Prepare the mocks, the details and the history charts are identical until the details change
+        when(chartGenerator.create24HourChart(any(), any(), any())).thenReturn(Mono.just(new byte[] { 1 }), Mono.just(new byte[] { 2 }));
+        when(chartGenerator.create365DayTemperatureChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenReturn(Mono.just(new byte[] { 1 }));
+        when(chartGenerator.create365DayHumidityChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenReturn(Mono.just(new byte[] { 1 }));
+        when(contentGenerator.generateDetails(any(), any(), any(), any(Image.class))).thenReturn(Mono.just("some test content"), Mono.just("some other test content"));
+        when(contentGenerator.generateHistory(any(Date.class), any(Date.class), any(Map.class), any(Map.class))).thenReturn(Mono.just("some test content"));
+        final var mediaIds = new AtomicInteger();
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+                if(recordedRequest.getPath().startsWith("/media")) {
+                    if(recordedRequest.getMethod().equals("POST")) {
+                        return createAddImageResponse(mediaIds.incrementAndGet()); // Add new image
+                    }
+                    if(recordedRequest.getMethod().equals("GET")) {
+                        return createMockResponse(HttpStatus.OK, "get-image-result.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read data for new image
+                    }
+                    return createMockResponse(HttpStatus.OK, null); // Delete old image
+                }
+                if(recordedRequest.getMethod().equals("POST")) {
+                    return createMockResponse(HttpStatus.OK, null); // Post new content
+                }
+                final var page = recordedRequest.getPath().equals("/pages/148") ? "details-page.json" : "history-page.json";
+                return createMockResponse(HttpStatus.OK, page, new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read old content
+            }
+        });
+
+        // Create and call the service
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator);
+        StepVerifier
+                .create(service.postDetails(tenMinutesAgo, now, details)
+                        .then(service.postHistory(yesterday, now, history))
+                        .then(service.postDetails(tenMinutesAgo, now, changedDetails)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verification, the first image is uploaded once and kept, as the history still references it
+        final var requests = new ArrayList<String>();
+        for(int i = 0; i < this.mockWebServer.getRequestCount(); i++) {
+            final var request = this.mockWebServer.takeRequest();
+            requests.add(request.getMethod() + " " + request.getPath());
+        }
+        assertThat(requests).filteredOn(request -> request.equals("POST /media")).hasSize(2);
+        assertThat(requests).filteredOn(request -> request.startsWith("DELETE")).containsExactlyInAnyOrder(
+                "DELETE /media/634535?force=true",
+                "DELETE /media/633623?force=true", "DELETE /media/633624?force=true", "DELETE /media/633625?force=true", "DELETE /media/633626?force=true");
+    }
+
+    @Test
+    void should_look_up_sizes_in_batch_when_missing_in_upload_response() throws Exception {
+        // Prepare the test data
+        final var now = new Date();
+        final var yesterday = new Date(now.getTime() - TimeUnit.DAYS.toMillis(1));
+        final var firstSensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var secondSensor = new Sensor(2L, "Second", Sensor.Type.HmIP_STHO, "test-sgtin-2", "#00FF00");
+        final var data = Map.of(
+                firstSensor, List.of(createBoundaries(firstSensor, now, 10.0, 15.0, 42.0, 56.0, 3.123, 5.321)),
+                secondSensor, List.of(createBoundaries(secondSensor, now, 10.5, 15.5, 42.5, 56.5, 3.123, 5.321)));
+
+        // Prepare the mocks, the upload responds without the media
+        when(chartGenerator.create365DayHumidityChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenAnswer(invocation ->
+                Mono.just(new byte[] { invocation.getArgument(3, Sensor.class).getId().byteValue(), 1 }));
+        when(chartGenerator.create365DayTemperatureChart(any(Date.class), any(Date.class), any(List.class), any(Sensor.class))).thenAnswer(invocation ->
+                Mono.just(new byte[] { invocation.getArgument(3, Sensor.class).getId().byteValue(), 2 }));
+        when(contentGenerator.generateHistory(any(Date.class), any(Date.class), any(Map.class), any(Map.class))).thenReturn(Mono.just("some test content"));
+        final var mediaIds = new AtomicInteger();
+        final var uploads = new CountDownLatch(4);
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) throws InterruptedException {
+                if(recordedRequest.getPath().startsWith("/media")) {
+                    if(recordedRequest.getMethod().equals("POST")) {
+                        // The uploads are answered together, so their lookups fall into the same window
+                        final var id = mediaIds.incrementAndGet();
+                        uploads.countDown();
+                        uploads.await(5, TimeUnit.SECONDS);
+                        return createMockResponse(HttpStatus.CREATED, null, new String[] { "Location", "some-test-id/" + id }); // Add new image
+                    }
+                    if(recordedRequest.getMethod().equals("GET")) {
+                        final var media = createMockResponse(HttpStatus.OK, "get-image-result.json").getBody().readUtf8();
+                        final var body = new StringJoiner(",", "[", "]");
+                        for(var id : recordedRequest.getRequestUrl().queryParameter("include").split(",")) {
+                            body.add(media.replace("\"id\": 12345", "\"id\": " + id));
+                        }
+                        return createMockResponse(HttpStatus.OK, null, new String[] { "Content-Type", "application/json; charset=UTF-8" }).setBody(body.toString()); // Read data for new images
+                    }
+                    return createMockResponse(HttpStatus.OK, null); // Delete old image
+                }
+                if(recordedRequest.getMethod().equals("POST")) {
+                    return createMockResponse(HttpStatus.OK, null); // Post new content
+                }
+                return createMockResponse(HttpStatus.OK, "history-page.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read old content
+            }
+        });
+
+        // Create and call the service
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator);
+        StepVerifier
+                .create(service.postHistory(yesterday, now, data))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verification, the sizes of all uploaded images are looked up by batched requests
+        final ArgumentCaptor<Map<Sensor, Map<String, Image>>> charts = ArgumentCaptor.forClass(Map.class);
+        verify(contentGenerator).generateHistory(any(Date.class), any(Date.class), any(Map.class), charts.capture());
+        assertThat(charts.getValue().values().stream().flatMap(images -> images.values().stream()))
+                .hasSize(4)
+                .allMatch(image -> image.getThumbnail() != null && image.getFull() != null);
+        final var lookups = new ArrayList<RecordedRequest>();
+        for(int i = 0; i < this.mockWebServer.getRequestCount(); i++) {
+            final var request = this.mockWebServer.takeRequest();
+            if(request.getMethod().equals("GET") && request.getPath().startsWith("/media")) {
+                lookups.add(request);
+            }
+        }
+        assertThat(lookups).hasSize(1);
+        final var lookedUp = List.of(lookups.get(0).getRequestUrl().queryParameter("include").split(","));
+        assertThat(lookedUp).containsExactlyInAnyOrder("1", "2", "3", "4");
+    }
+
+    @Test
+    void should_delete_shared_image_when_last_post_releases_it() {
+        final var index = MediaIndex.inMemory();
+        StepVerifier.create(index.getOrUpload(MediaIndex.hash(new byte[] { 1 }), () -> Mono.just(new Image("42"))))
+                .expectNextMatches(uploaded -> uploaded.getId().equals("42"))
+                .verifyComplete();
+        StepVerifier.create(index.getOrUpload(MediaIndex.hash(new byte[] { 1 }), Mono::empty))
+                .expectNextMatches(shared -> shared.getId().equals("42"))
+                .verifyComplete();
+        StepVerifier.create(index.release(List.of("42", "7")))
+                .expectNext(List.of("7"))
+                .verifyComplete();
+        StepVerifier.create(index.release(List.of("42")))
+                .expectNext(List.of("42"))
+                .verifyComplete();
+        StepVerifier.create(index.reference("42"))
+                .verifyComplete();
+        StepVerifier.create(index.getOrUpload(MediaIndex.hash(new byte[] { 1 }), () -> Mono.just(new Image("43"))))
+                .expectNextMatches(uploaded -> uploaded.getId().equals("43"))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_keep_shared_image_referenced_while_another_post_is_written() {
+        final var index = MediaIndex.inMemory();
+        final var hash = MediaIndex.hash(new byte[] { 1 });
+        StepVerifier.create(index.getOrUpload(hash, () -> Mono.just(new Image("42"))))
+                .expectNextMatches(uploaded -> uploaded.getId().equals("42"))
+                .verifyComplete();
+
+        // A second post gets the image, while the first post releases it
+        StepVerifier.create(index.getOrUpload(hash, Mono::empty))
+                .expectNextMatches(shared -> shared.getId().equals("42"))
+                .verifyComplete();
+        StepVerifier.create(index.release(List.of("42")))
+                .expectNext(List.of())
+                .verifyComplete();
+
+        // The image is still indexed for the second post and deleted, when it isn't written
+        StepVerifier.create(index.getOrUpload(hash, Mono::empty).flatMap(shared -> index.release(List.of(shared.getId(), shared.getId()))))
+                .expectNext(List.of("42"))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_delete_image_uploaded_for_failed_write() throws Exception {
+        // Prepare the test data
+        final var now = new Date();
+        final var tenMinutesAgo = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(10));
+        final var reading = new Reading(now);
+        final var sensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var details = Map.of(sensor, List.of(new ClimateMeasurement(reading, sensor, now, 12.2, 32.7, 5.2386758493768)));
+
+        // Prepare the mocks, the post can't be written
+        when(chartGenerator.create24HourChart(any(), any(), any())).thenReturn(Mono.just(new byte[] { 1 }));
+        when(contentGenerator.generateDetails(any(), any(), any(), any(Image.class))).thenReturn(Mono.just("some test content"));
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+                if(recordedRequest.getPath().startsWith("/media")) {
+                    if(recordedRequest.getMethod().equals("POST")) {
+                        return createMockResponse(HttpStatus.CREATED, "add-image-result.json", new String[][] { { "Location", "some-test-id/12345" }, { "Content-Type", "application/json; charset=UTF-8" }}); // Add new image
+                    }
+                    return createMockResponse(HttpStatus.OK, null); // Delete new image
+                }
+                if(recordedRequest.getMethod().equals("POST")) {
+                    return createMockResponse(HttpStatus.INTERNAL_SERVER_ERROR, null); // Fail to post new content
+                }
+                return createMockResponse(HttpStatus.OK, "details-page.json", new String[][] { { "Content-Type", "application/json; charset=UTF-8" } }); // Read old content
+            }
+        });
+
+        // Create and call the service
+        final var service = new WordPressPublishService(webClient, contentGenerator, chartGenerator);
+        StepVerifier
+                .create(service.postDetails(tenMinutesAgo, now, details))
+                .verifyError();
+
+        // Verification, the new image is deleted, the old one is kept, as the post still references it
+        final var requests = new ArrayList<String>();
+        for(int i = 0; i < this.mockWebServer.getRequestCount(); i++) {
+            final var request = this.mockWebServer.takeRequest();
+            requests.add(request.getMethod() + " " + request.getPath());
+        }
+        assertThat(requests).filteredOn(request -> request.startsWith("DELETE")).containsExactly("DELETE /media/12345?force=true");
+    }
+
+    private static MockResponse createAddImageResponse(int id) {
+        final var media = createMockResponse(HttpStatus.OK, "add-image-result.json").getBody().readUtf8();
+        return createMockResponse(HttpStatus.CREATED, null, new String[][] { { "Location", "some-test-id/" + id }, { "Content-Type", "application/json; charset=UTF-8" } })
+                .setBody(media.replace("\"id\": 12345", "\"id\": " + id));
     }
 
     private static MockResponse createMockResponse(HttpStatus status, String resultJson, String[]... headers) {
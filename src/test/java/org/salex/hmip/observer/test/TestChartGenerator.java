@@ -1,5 +1,6 @@
 package org.salex.hmip.observer.test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,17 +8,27 @@ import org.salex.hmip.observer.data.ClimateMeasurement;
 import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
 import org.salex.hmip.observer.data.Reading;
 import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.CachingChartGenerator;
+import org.salex.hmip.observer.service.ChartFingerprint;
 import org.salex.hmip.observer.service.ChartGenerator;
 import org.salex.hmip.observer.service.JFreeChartGenerator;
+import org.salex.hmip.observer.service.SvgChartGenerator;
 import reactor.test.StepVerifier;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
 public class TestChartGenerator {
     private ChartGenerator generator;
 
@@ -72,6 +83,44 @@ public class TestChartGenerator {
                 .verifyComplete();
     }
 
+    @Test
+    void should_render_24_hour_chart_once_for_same_window_and_sensors() {
+        final var now = new Date();
+        final var yesterday = new Date(now.getTime() - TimeUnit.HOURS.toMillis(24));
+        final var sensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var data = Map.of(sensor, (List<ClimateMeasurement>) new ArrayList<ClimateMeasurement>(List.of(
+                new ClimateMeasurement(new Reading(now), sensor, now, 11.2, 52.7, 5.2386758493768))));
+        final var delegate = spy(this.generator);
+        final var registry = new SimpleMeterRegistry();
+        final var cachingGenerator = new CachingChartGenerator(delegate, 4, registry);
+        final var first = cachingGenerator.create24HourChart(yesterday, now, data).block();
+        final var second = cachingGenerator.create24HourChart(yesterday, now, data).block();
+        assertThat(second).isSameAs(first);
+        final var third = cachingGenerator.create24HourChart(ChartFingerprint.of24HourChart(yesterday, now, data), yesterday, now, data).block();
+        assertThat(third).isSameAs(first);
+        cachingGenerator.create24HourChart(yesterday, new Date(now.getTime() + 1), data).block();
+        verify(delegate, times(2)).create24HourChart(any(), any(), any());
+        assertThat(registry.get("observer.chart.cache").tag("result", "hit").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void should_render_same_chart_after_warm_up_with_reused_buffer() {
+        StepVerifier
+                .create(generator.warmUp())
+                .verifyComplete();
+        final var now = new Date();
+        final var yesterday = new Date(now.getTime() - TimeUnit.HOURS.toMillis(24));
+        final var sensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var data = Map.of(sensor, List.of(
+                new ClimateMeasurement(new Reading(now), sensor, yesterday, 21.2, 62.7, 5.2386758493768),
+                new ClimateMeasurement(new Reading(now), sensor, now, 11.2, 52.7, 5.2386758493768)));
+        final var empty = generator.create24HourChart(yesterday, now, Map.of()).block();
+        final var first = generator.create24HourChart(yesterday, now, data).block();
+        generator.create24HourChart(yesterday, now, Map.of()).block();
+        final var second = generator.create24HourChart(yesterday, now, data).block();
+        assertThat(second).isEqualTo(first).isNotEqualTo(empty);
+    }
+
     @Test
     void should_generate_356_day_chart_for_temperature() throws IOException {
         final var now = new Date();
@@ -128,6 +177,47 @@ public class TestChartGenerator {
                 .verifyComplete();
     }
 
+    @Test
+    void should_generate_24_hour_chart_as_svg() throws Exception {
+        final var now = new Date();
+        final var yesterday = new Date(now.getTime() - TimeUnit.HOURS.toMillis(24));
+        final var reading = new Reading(now);
+        final var firstSensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var secondSensor = new Sensor(2L, "Second", Sensor.Type.HmIP_STHO, "test-sgtin-2", "#00FF00");
+        final var data = Map.of(
+                firstSensor, List.of(
+                        new ClimateMeasurement(reading, firstSensor, yesterday, 11.2, 52.7, 5.2386758493768),
+                        new ClimateMeasurement(reading, firstSensor, now, 12.2, null, 5.2386758493768)
+                ),
+                secondSensor, List.of(
+                        new ClimateMeasurement(reading, secondSensor, now, 22.2, 62.7, 5.2386758493768)
+                )
+        );
+        final var svgGenerator = new SvgChartGenerator();
+        final var chart = svgGenerator.create24HourChart(yesterday, now, data).block();
+        final var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(chart));
+        assertThat(svgGenerator.getContentType()).isEqualTo("image/svg+xml");
+        assertThat(document.getDocumentElement().getAttribute("width")).isEqualTo("600");
+        assertThat(new String(chart, StandardCharsets.UTF_8))
+                .contains("stroke=\"#FF0000\" d=\"M55 ")
+                .contains("stroke=\"#00FF00\" stroke-dasharray=\"2 5\" d=\"M545 ")
+                .contains("Temperatur in °C");
+    }
+
+    @Test
+    void should_generate_356_day_chart_as_svg() throws Exception {
+        final var now = new Date();
+        final var yesterday = new Date(now.getTime() - TimeUnit.DAYS.toMillis(1));
+        final var sensor = new Sensor(1L, "Keller & Garage", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var data = List.of(
+                createBoundaries(sensor, now, 10.0, 15.0, 42.0, 56.0, 3.123, 5.321),
+                createBoundaries(sensor, yesterday, 12.0, 17.0, 47.0, 58.0, 4.123, 6.321));
+        final var chart = new SvgChartGenerator().create365DayHumidityChart(yesterday, now, data, sensor).block();
+        final var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(chart));
+        assertThat(document.getElementsByTagName("text").item(0).getTextContent()).isEqualTo("Verlauf der relative Luftfeuchtigkeit Keller & Garage");
+        assertThat(document.getElementsByTagName("path").getLength()).isGreaterThan(3);
+    }
+
     private ClimateMeasurementBoundaries createBoundaries(Sensor sensor, Date day, Double minTemp, Double maxTemp, Double minHum, Double maxHum, Double minVap, Double maxVap) {
         return new ClimateMeasurementBoundaries() {
             @Override
@@ -0,0 +1,167 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.controller.ChartRestController;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ObserverDatabase;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.ReadingFeed;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.ChartGenerator;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TestChartRestController {
+    private final Sensor sensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+
+    private final byte[] chart = { 1, 2, 3 };
+
+    private ObserverDatabase database;
+
+    private ChartGenerator chartGenerator;
+
+    private Sinks.Many<Reading> readings;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setup() {
+        database = mock(ObserverDatabase.class);
+        chartGenerator = mock(ChartGenerator.class);
+        readings = Sinks.many().replay().latest();
+        when(database.getCommittedReadings(any(), eq(ReadingFeed.Overflow.LATEST))).thenReturn(readings.asFlux());
+        when(database.getSensors()).thenReturn(List.of(sensor));
+        when(database.getClimateMeasurements(any(Date.class), any(Date.class))).thenReturn(Map.of(sensor, List.<ClimateMeasurement>of()));
+        when(database.getClimateMeasurementBoundaries(any(Date.class), any(Date.class), any(Sensor.class))).thenReturn(List.of());
+        when(chartGenerator.getContentType()).thenReturn("image/png");
+        when(chartGenerator.getFileExtension()).thenReturn("png");
+        when(chartGenerator.create24HourChart(any(), any(), any())).thenReturn(Mono.just(chart));
+        when(chartGenerator.create365DayTemperatureChart(any(), any(), any(), any())).thenReturn(Mono.just(chart));
+        when(chartGenerator.create365DayHumidityChart(any(), any(), any(), any())).thenReturn(Mono.just(chart));
+        client = WebTestClient.bindToController(new ChartRestController(database, chartGenerator, BlockingExecutor.immediate())).build();
+    }
+
+    @Test
+    void should_serve_chart_ending_with_latest_reading() {
+        final var readingTime = new Date(1_700_000_000_000L);
+        readings.tryEmitNext(new Reading(readingTime));
+        final var headers = client.get().uri("/climate/chart/24h")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("image/png")
+                .expectHeader().cacheControl(CacheControl.noCache())
+                .expectBody(byte[].class).isEqualTo(chart)
+                .returnResult()
+                .getResponseHeaders();
+        assertThat(headers.getETag()).startsWith("\"").endsWith("\"");
+        assertThat(headers.getLastModified()).isEqualTo(readingTime.getTime());
+        verify(database).getClimateMeasurements(new Date(readingTime.getTime() - TimeUnit.HOURS.toMillis(24)), readingTime);
+        verify(database, never()).getLatestReadingTime();
+    }
+
+    @Test
+    void should_answer_conditional_requests_without_database_and_rendering() {
+        final var readingTime = new Date(1_700_000_000_000L);
+        readings.tryEmitNext(new Reading(readingTime));
+        final var etag = client.get().uri("/climate/chart/365d/1/temperature")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(byte[].class)
+                .getResponseHeaders()
+                .getETag();
+        clearInvocations(database, chartGenerator);
+
+        client.get().uri("/climate/chart/365d/1/temperature")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+        client.get().uri("/climate/chart/365d/1/temperature")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(readingTime.toInstant(), ZoneOffset.UTC)))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED);
+        verifyNoMoreInteractions(ignoreStubs(database, chartGenerator));
+        verify(database, never()).getSensors();
+        verify(chartGenerator, never()).create365DayTemperatureChart(any(), any(), any(), any());
+    }
+
+    @Test
+    void should_change_etag_with_new_reading() {
+        final var readingTime = new Date(1_700_000_000_000L);
+        readings.tryEmitNext(new Reading(readingTime));
+        final var etag = client.get().uri("/climate/chart/24h")
+                .exchange()
+                .returnResult(byte[].class)
+                .getResponseHeaders()
+                .getETag();
+        readings.tryEmitNext(new Reading(new Date(readingTime.getTime() + TimeUnit.MINUTES.toMillis(10))));
+        final var changed = client.get().uri("/climate/chart/24h")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(byte[].class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(changed).isNotEqualTo(etag);
+        verify(chartGenerator, times(2)).create24HourChart(any(), any(), any());
+    }
+
+    @Test
+    void should_read_latest_reading_time_from_database_until_first_reading() {
+        final var readingTime = new Date(1_700_000_000_000L);
+        when(database.getLatestReadingTime()).thenReturn(Optional.of(readingTime));
+        client.get().uri("/climate/chart/365d/1/humidity").exchange().expectStatus().isOk();
+        client.get().uri("/climate/chart/365d/1/humidity").exchange().expectStatus().isOk();
+        verify(database, times(1)).getLatestReadingTime();
+        verify(chartGenerator, times(1)).create365DayHumidityChart(any(), any(), any(), eq(sensor));
+    }
+
+    @Test
+    void should_read_history_of_requested_sensor_once_per_reading() {
+        final var readingTime = new Date(1_700_000_000_000L);
+        readings.tryEmitNext(new Reading(readingTime));
+        client.get().uri("/climate/chart/365d/1/temperature").exchange().expectStatus().isOk().expectBody(byte[].class).isEqualTo(chart);
+        client.get().uri("/climate/chart/365d/1/temperature").exchange().expectStatus().isOk().expectBody(byte[].class).isEqualTo(chart);
+        verify(database, times(1)).getClimateMeasurementBoundaries(new Date(readingTime.getTime() - TimeUnit.DAYS.toMillis(365)), readingTime, sensor);
+        verify(database, never()).getClimateMeasurementBoundaries(any(Date.class), any(Date.class));
+        verify(chartGenerator, times(1)).create365DayTemperatureChart(any(), any(), any(), eq(sensor));
+
+        readings.tryEmitNext(new Reading(new Date(readingTime.getTime() + TimeUnit.MINUTES.toMillis(10))));
+        client.get().uri("/climate/chart/365d/1/temperature").exchange().expectStatus().isOk();
+        verify(chartGenerator, times(2)).create365DayTemperatureChart(any(), any(), any(), eq(sensor));
+    }
+
+    @Test
+    void should_return_not_found_without_readings_or_sensor() {
+        when(database.getLatestReadingTime()).thenReturn(Optional.empty());
+        client.get().uri("/climate/chart/24h").exchange().expectStatus().isNotFound();
+        readings.tryEmitNext(new Reading(new Date()));
+        client.get().uri("/climate/chart/365d/2/temperature").exchange().expectStatus().isNotFound();
+        client.get().uri("/climate/chart/365d/2/temperature")
+                .header(HttpHeaders.IF_NONE_MATCH, "*")
+                .exchange()
+                .expectStatus().isNotFound();
+        client.get().uri("/climate/chart/365d/1/vapor").exchange().expectStatus().isNotFound();
+    }
+}
@@ -1,18 +1,33 @@
 package org.salex.hmip.observer.test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.salex.hmip.observer.data.*;
+import org.salex.hmip.observer.service.AlertJournal;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.CachingChartGenerator;
+import org.salex.hmip.observer.service.ChartGenerator;
+import org.salex.hmip.observer.service.ClimateRule;
+import org.salex.hmip.observer.service.ClimateRuleEngine;
+import org.salex.hmip.observer.service.ContentGenerator;
+import org.salex.hmip.observer.service.DefaultMailPublishService;
+import org.salex.hmip.observer.service.MailOutbox;
 import org.salex.hmip.observer.service.MailPublishService;
+import org.salex.hmip.observer.service.TokenBucket;
 import org.salex.hmip.observer.task.ClimateAlertTask;
 import reactor.core.publisher.Mono;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
 
@@ -21,10 +36,16 @@ public class TestClimateAlertTask {
 
     private MailPublishService mailPublishService;
 
+    private ClimateRuleEngine climateRuleEngine;
+
     @BeforeEach
     void setup() {
         database = mock(ObserverDatabase.class);
         mailPublishService = mock(MailPublishService.class);
+        climateRuleEngine = new ClimateRuleEngine(List.of(
+                ClimateRule.parse("temperature < 3.0"),
+                ClimateRule.parse("humidity < 10.0"),
+                ClimateRule.parse("humidity > 90.0")), Duration.ZERO, new TokenBucket(1, Duration.ZERO), mailPublishService, AlertJournal.none());
     }
 
     @Test
@@ -47,10 +68,12 @@ public class TestClimateAlertTask {
                         new ClimateMeasurement(reading, secondSensor, now, 22.2, 62.7, 5.2386758493768)
                 )
         );
+        when(database.getLatestReadingTime()).thenReturn(Optional.of(now));
         when(database.getClimateMeasurements(any(Date.class), any(Date.class))).thenReturn(data);
         when(mailPublishService.sendClimateAlert(any(Date.class), any(Date.class), any())).thenReturn(Mono.just(data));
-        final var task = new ClimateAlertTask("test-cron", database, mailPublishService);
+        final var task = new ClimateAlertTask("test-cron", database, mailPublishService, climateRuleEngine, BlockingExecutor.immediate());
         task.checkAndSendAlert();
+        verify(database, times(1)).getLatestReadingTime();
         verify(database, times(1)).getClimateMeasurements(any(Date.class), any(Date.class));
         verify(mailPublishService, times(1)).sendClimateAlert(any(Date.class), any(Date.class), any());
         verifyNoMoreInteractions(database);
@@ -77,12 +100,40 @@ public class TestClimateAlertTask {
                         new ClimateMeasurement(reading, secondSensor, now, 22.2, 62.7, 5.2386758493768)
                 )
         );
+        when(database.getLatestReadingTime()).thenReturn(Optional.of(now));
         when(database.getClimateMeasurements(any(Date.class), any(Date.class))).thenReturn(data);
         when(mailPublishService.sendClimateAlert(any(Date.class), any(Date.class), any())).thenReturn(Mono.just(data));
-        final var task = new ClimateAlertTask("test-cron", database, mailPublishService);
+        final var task = new ClimateAlertTask("test-cron", database, mailPublishService, climateRuleEngine, BlockingExecutor.immediate());
         task.checkAndSendAlert();
+        verify(database, times(1)).getLatestReadingTime();
         verify(database, times(1)).getClimateMeasurements(any(Date.class), any(Date.class));
         verifyNoMoreInteractions(database);
         verifyNoInteractions(mailPublishService);
     }
+
+    @Test
+    void should_share_chart_of_digest_with_blog() {
+        final var readingTime = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(3));
+        final var start = new Date(readingTime.getTime() - TimeUnit.HOURS.toMillis(24));
+        final var reading = new Reading(readingTime);
+        final var sensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var data = Map.of(sensor, List.of(new ClimateMeasurement(reading, sensor, readingTime, 2.2, 52.7, 5.2386758493768)));
+        when(database.getLatestReadingTime()).thenReturn(Optional.of(new Timestamp(readingTime.getTime())));
+        when(database.getClimateMeasurements(any(Date.class), any(Date.class))).thenReturn(data);
+        final var renderer = mock(ChartGenerator.class);
+        when(renderer.create24HourChart(any(), any(), any())).thenReturn(Mono.just(new byte[] { 1 }));
+        when(renderer.getContentType()).thenReturn("image/png");
+        final var chartGenerator = new CachingChartGenerator(renderer, 8, new SimpleMeterRegistry());
+        final var contentGenerator = mock(ContentGenerator.class);
+        when(contentGenerator.generateClimateAlert(any(), any(), any(), any())).thenReturn(Mono.just("some test content"));
+        final var mailPublishService = new DefaultMailPublishService(contentGenerator, mock(MailOutbox.class), chartGenerator, database, BlockingExecutor.immediate());
+
+        // The blog renders the chart of the 24 hours before the reading, as the measurement task does
+        chartGenerator.create24HourChart(start, readingTime, data).block();
+        final var task = new ClimateAlertTask("test-cron", database, mailPublishService, climateRuleEngine, BlockingExecutor.immediate());
+        task.checkAndSendAlert();
+
+        verify(contentGenerator, times(1)).generateClimateAlert(eq(start), eq(readingTime), any(), any());
+        verify(renderer, times(1)).create24HourChart(any(), any(), any());
+    }
 }
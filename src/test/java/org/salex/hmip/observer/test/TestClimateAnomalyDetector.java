@@ -0,0 +1,108 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.AnomalyDetectorState;
+import org.salex.hmip.observer.data.AnomalyDetectorStateRepository;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.ClimateAnomalyDetector;
+import org.salex.hmip.observer.service.ClimateRule;
+import org.salex.hmip.observer.service.DefaultOperatingAlertService;
+import org.salex.hmip.observer.service.OperatingAlertService;
+import reactor.test.StepVerifier;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class TestClimateAnomalyDetector {
+    private final Sensor sensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+
+    private final ClimateAnomalyDetector.Parameters parameters = new ClimateAnomalyDetector.Parameters(0.1, 4.0, 0.5, 8.0, 10, 0.2);
+
+    private AnomalyDetectorStateRepository repository;
+
+    private OperatingAlertService operatingAlertService;
+
+    private long time;
+
+    @BeforeEach
+    void setup() {
+        repository = mock(AnomalyDetectorStateRepository.class);
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        operatingAlertService = new DefaultOperatingAlertService();
+        time = System.currentTimeMillis();
+    }
+
+    @Test
+    void should_detect_spike_after_warmup() {
+        final var detector = new ClimateAnomalyDetector(parameters, repository, operatingAlertService, BlockingExecutor.immediate());
+        for(int i = 0; i < 20; i++) {
+            StepVerifier.create(detector.check(createReading(10.0 + (i % 2) * 0.2, 50.0)))
+                    .assertNext(anomalies -> assertThat(anomalies).isEmpty())
+                    .verifyComplete();
+        }
+        StepVerifier.create(detector.check(createReading(15.0, 50.0)))
+                .assertNext(anomalies -> {
+                    assertThat(anomalies.size()).isEqualTo(1);
+                    assertThat(anomalies.get(0).getKind()).isEqualTo(OperatingAlertService.Anomaly.Kind.SPIKE);
+                    assertThat(anomalies.get(0).getValue()).isEqualTo(ClimateRule.Value.TEMPERATURE);
+                    assertThat(anomalies.get(0).getExpected()).isBetween(10.0, 10.2);
+                })
+                .verifyComplete();
+        final var events = operatingAlertService.retrieveEvents();
+        assertThat(events.size()).isEqualTo(1);
+        assertThat(events.get(0)).isInstanceOf(OperatingAlertService.Anomaly.class);
+        verify(repository, times(21)).saveAll(anyList());
+    }
+
+    @Test
+    void should_detect_drift_without_spike() {
+        final var detector = new ClimateAnomalyDetector(parameters, repository, operatingAlertService, BlockingExecutor.immediate());
+        for(int i = 0; i < 20; i++) {
+            detector.check(createReading(10.0, 50.0 + (i % 2))).block();
+        }
+        OperatingAlertService.Anomaly drift = null;
+        for(int i = 1; i <= 20 && drift == null; i++) {
+            final var anomalies = detector.check(createReading(10.0, 50.5 + i * 0.4)).block();
+            assertThat(anomalies).allMatch(anomaly -> anomaly.getKind() != OperatingAlertService.Anomaly.Kind.SPIKE);
+            drift = anomalies.isEmpty() ? null : anomalies.get(0);
+        }
+        assertThat(drift).isNotNull();
+        assertThat(drift.getKind()).isEqualTo(OperatingAlertService.Anomaly.Kind.DRIFT_UP);
+        assertThat(drift.getValue()).isEqualTo(ClimateRule.Value.HUMIDITY);
+    }
+
+    @Test
+    void should_continue_from_checkpoint_without_warmup() {
+        final var temperature = new AnomalyDetectorState("1:TEMPERATURE");
+        temperature.setCount(1000);
+        temperature.setMean(10.0);
+        temperature.setVariance(0.04);
+        when(repository.findAll()).thenReturn(List.of(temperature));
+        final var detector = new ClimateAnomalyDetector(parameters, repository, operatingAlertService, BlockingExecutor.immediate());
+        StepVerifier.create(detector.check(createReading(15.0, 50.0)))
+                .assertNext(anomalies -> {
+                    assertThat(anomalies.size()).isEqualTo(1);
+                    assertThat(anomalies.get(0).getScore()).isEqualTo(25.0, offset(0.001));
+                })
+                .verifyComplete();
+        assertThat(temperature.getCount()).isEqualTo(1001);
+        assertThat(temperature.getMean()).isEqualTo(10.5, offset(0.001));
+    }
+
+    private Reading createReading(double temperature, double humidity) {
+        time += TimeUnit.MINUTES.toMillis(10);
+        final var reading = new Reading(new Date(time));
+        reading.addMeasurement(new ClimateMeasurement(reading, sensor, new Date(time), temperature, humidity, 5.0));
+        return reading;
+    }
+}
@@ -0,0 +1,84 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.ClimateForecast;
+import org.salex.hmip.observer.service.ClimateRule;
+import org.salex.hmip.observer.service.DefaultOperatingAlertService;
+import org.salex.hmip.observer.service.OperatingAlertService;
+import org.salex.hmip.observer.service.SlidingRegression;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class TestClimateForecast {
+    private final Sensor sensor = new Sensor(1L, "Carport", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+
+    private OperatingAlertService operatingAlertService;
+
+    private long time;
+
+    @BeforeEach
+    void setup() {
+        operatingAlertService = new DefaultOperatingAlertService();
+        time = System.currentTimeMillis();
+    }
+
+    @Test
+    void should_fit_line_through_sliding_window() {
+        final var regression = new SlidingRegression(6);
+        final var start = System.currentTimeMillis();
+        for(int i = 0; i < 6; i++) {
+            regression.add(start + TimeUnit.MINUTES.toMillis(10 * i), 20.0);
+        }
+        assertThat(regression.getSlope()).isEqualTo(0.0, offset(1e-9));
+        for(int i = 6; i < 25; i++) {
+            regression.add(start + TimeUnit.MINUTES.toMillis(10 * i), 20.0 - 0.5 * i);
+        }
+        assertThat(regression.getCount()).isEqualTo(6);
+        assertThat(regression.getSlope()).isEqualTo(-3.0, offset(1e-9));
+        assertThat(regression.getValueAt(start + TimeUnit.MINUTES.toMillis(10 * 30))).isEqualTo(5.0, offset(1e-9));
+    }
+
+    @Test
+    void should_warn_once_before_temperature_falls_below_threshold() {
+        final var forecast = new ClimateForecast(List.of(ClimateRule.parse("temperature < 3.0")), 6, Duration.ofHours(1), operatingAlertService);
+        final var forecasts = new ArrayList<OperatingAlertService.Forecast>();
+        for(int i = 0; i < 6; i++) {
+            assertThat(forecast.check(createReading(10.0))).isEmpty();
+        }
+        var temperature = 10.0;
+        while(temperature > 3.0) {
+            forecasts.addAll(forecast.check(createReading(temperature)));
+            temperature -= 0.3;
+        }
+        assertThat(forecasts.size()).isEqualTo(1);
+        assertThat(forecasts.get(0).getActual()).isGreaterThan(3.9);
+        assertThat(forecasts.get(0).getCrossing()).isAfter(forecasts.get(0).getTimestamp());
+        assertThat(operatingAlertService.retrieveEvents()).containsExactly(forecasts.get(0));
+    }
+
+    @Test
+    void should_not_warn_when_temperature_rises() {
+        final var forecast = new ClimateForecast(List.of(ClimateRule.parse("temperature < 3.0")), 6, Duration.ofHours(1), operatingAlertService);
+        for(int i = 0; i < 20; i++) {
+            assertThat(forecast.check(createReading(4.0 + 0.3 * i))).isEmpty();
+        }
+    }
+
+    private Reading createReading(double temperature) {
+        time += TimeUnit.MINUTES.toMillis(10);
+        final var reading = new Reading(new Date(time));
+        reading.addMeasurement(new ClimateMeasurement(reading, sensor, new Date(time), temperature, 50.0, 5.0));
+        return reading;
+    }
+}
@@ -5,16 +5,27 @@ import org.junit.jupiter.api.Test;
 import org.salex.hmip.observer.controller.ClimateRestController;
 import org.salex.hmip.observer.data.ClimateMeasurement;
 import org.salex.hmip.observer.data.ObserverDatabase;
+import org.salex.hmip.observer.data.OperatingMeasurement;
 import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.ReadingFeed;
 import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 public class TestClimateRestController {
@@ -42,11 +53,71 @@ public class TestClimateRestController {
                         new ClimateMeasurement(reading, secondSensor, now, 15.7, 43.5, 3.14159265358),
                         new ClimateMeasurement(reading, secondSensor, oneHourAgo, 14.4, 45.9, 4.87674638485)
                 )));
-        final var controller = new ClimateRestController(database);
-        final var result = controller.getPastClimateMeasurements(2);
+        final var controller = new ClimateRestController(database, BlockingExecutor.immediate());
+        final var result = controller.getPastClimateMeasurements(2, null).block();
         assertThat(result.size()).isEqualTo(2);
         assertThat(result.get(firstSensor).size()).isEqualTo(2);
         assertThat(result.get(secondSensor).size()).isEqualTo(2);
     }
 
+    @Test
+    void should_downsample_measurement_data_to_points() {
+        final var now = new Date();
+        final var reading = new Reading(now);
+        final var sensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var measurements = new ArrayList<ClimateMeasurement>();
+        for(int i = 0; i < 1000; i++) {
+            final var time = new Date(now.getTime() - TimeUnit.SECONDS.toMillis(10 * i));
+            measurements.add(new ClimateMeasurement(reading, sensor, time, 12.3 + Math.sin(i / 40.0), 42.7, 3.45674395764));
+        }
+        when(database.getClimateMeasurements(3)).thenReturn(Map.of(sensor, measurements));
+        final var controller = new ClimateRestController(database, BlockingExecutor.immediate());
+        final var result = controller.getPastClimateMeasurements(3, 200).block();
+        assertThat(result.get(sensor).size()).isLessThanOrEqualTo(200);
+        assertThat(result.get(sensor).get(0).getMeasuringTime()).isEqualTo(measurements.get(999).getMeasuringTime());
+        assertThat(result.get(sensor).get(result.get(sensor).size() - 1).getMeasuringTime()).isEqualTo(now);
+    }
+
+    @Test
+    void should_reject_too_few_points() {
+        final var controller = new ClimateRestController(database, BlockingExecutor.immediate());
+        for(var points : List.of(5, 1, 0, -1)) {
+            StepVerifier
+                    .create(controller.getPastClimateMeasurements(3, points))
+                    .expectErrorMatches(e -> e instanceof ResponseStatusException exception && exception.getStatus() == HttpStatus.BAD_REQUEST)
+                    .verify();
+        }
+        verifyNoInteractions(database);
+    }
+
+    @Test
+    void should_downsample_measurement_data_to_minimum_points() {
+        final var now = new Date();
+        final var reading = new Reading(now);
+        final var sensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var measurements = new ArrayList<ClimateMeasurement>();
+        for(int i = 0; i < 100; i++) {
+            final var time = new Date(now.getTime() + TimeUnit.SECONDS.toMillis(10 * i));
+            measurements.add(new ClimateMeasurement(reading, sensor, time, 12.3 + Math.sin(i / 4.0), 42.7 + Math.cos(i / 4.0), 3.45674395764));
+        }
+        when(database.getClimateMeasurements(3)).thenReturn(Map.of(sensor, measurements));
+        final var controller = new ClimateRestController(database, BlockingExecutor.immediate());
+        final var result = controller.getPastClimateMeasurements(3, 6).block();
+        assertThat(result.get(sensor).size()).isLessThanOrEqualTo(6);
+    }
+
+    @Test
+    void should_stream_climate_measurements_of_committed_readings() {
+        final var now = new Date();
+        final var reading = new Reading(now);
+        final var sensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        reading.addMeasurement(new ClimateMeasurement(reading, sensor, now, 12.3, 42.7, 3.45674395764));
+        reading.addMeasurement(new OperatingMeasurement(reading, 1.0, 2.0, 3.0, 4.0));
+        when(database.getCommittedReadings(any(), eq(ReadingFeed.Overflow.LATEST))).thenReturn(Flux.just(reading));
+        final var controller = new ClimateRestController(database, BlockingExecutor.immediate());
+        StepVerifier
+                .create(controller.getLiveClimateMeasurements())
+                .expectNextMatches(measurement -> measurement.getSensor() == sensor)
+                .verifyComplete();
+    }
 }
@@ -0,0 +1,119 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.AlertJournal;
+import org.salex.hmip.observer.service.ClimateRule;
+import org.salex.hmip.observer.service.ClimateRuleEngine;
+import org.salex.hmip.observer.service.MailPublishService;
+import org.salex.hmip.observer.service.TokenBucket;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TestClimateRuleEngine {
+    private final Sensor firstSensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+
+    private final Sensor secondSensor = new Sensor(2L, "Testsensor 2", Sensor.Type.HmIP_STHO, "test-sgtin-2", "#00FF00");
+
+    private MailPublishService mailPublishService;
+
+    @BeforeEach
+    void setup() {
+        mailPublishService = mock(MailPublishService.class);
+        when(mailPublishService.sendClimateAlert(any(Date.class), any(Date.class), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(2)));
+    }
+
+    @Test
+    void should_parse_climate_rules() {
+        final var rule = ClimateRule.parse("Testsensor 1: vapor_amount > 12.5");
+        assertThat(rule.getSensorName()).isEqualTo("Testsensor 1");
+        assertThat(rule.getValue()).isEqualTo(ClimateRule.Value.VAPOR_AMOUNT);
+        assertThat(rule.getComparison()).isEqualTo(ClimateRule.Comparison.ABOVE);
+        assertThat(rule.getThreshold()).isEqualTo(12.5);
+        assertThat(rule.getClearThreshold()).isEqualTo(12.5);
+        assertThat(ClimateRule.parse("temperature < -3").getSensorName()).isNull();
+        assertThat(ClimateRule.parse("humidity > 90 clear 85").getClearThreshold()).isEqualTo(85.0);
+        assertThatThrownBy(() -> ClimateRule.parse("temperature = 3")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_fire_once_until_climate_has_returned_to_normal() {
+        final var engine = new ClimateRuleEngine(List.of(ClimateRule.parse("temperature < 3.0")), Duration.ZERO, new TokenBucket(5, Duration.ZERO), mailPublishService, AlertJournal.none());
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.5)))
+                .assertNext(data -> assertThat(data.get(firstSensor).size()).isEqualTo(1))
+                .verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.0))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 4.0))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 1.0)))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(mailPublishService, times(2)).sendClimateAlert(any(Date.class), any(Date.class), any());
+    }
+
+    @Test
+    void should_evaluate_sensor_specific_rules_only_for_that_sensor() {
+        final var engine = new ClimateRuleEngine(List.of(ClimateRule.parse("Testsensor 2: temperature < 3.0")), Duration.ZERO, new TokenBucket(5, Duration.ZERO), mailPublishService, AlertJournal.none());
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 1.0))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(secondSensor, 1.0)))
+                .assertNext(data -> assertThat(data.keySet()).containsExactly(secondSensor))
+                .verifyComplete();
+        verify(mailPublishService, times(1)).sendClimateAlert(any(Date.class), any(Date.class), any());
+    }
+
+    @Test
+    void should_not_resolve_while_climate_hovers_within_hysteresis_band() {
+        final var engine = new ClimateRuleEngine(List.of(ClimateRule.parse("temperature < 3.0 clear 5.0")), Duration.ZERO, new TokenBucket(5, Duration.ZERO), mailPublishService, AlertJournal.none());
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.9))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 3.5))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.9))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 5.0))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.9))).expectNextCount(1).verifyComplete();
+        verify(mailPublishService, times(2)).sendClimateAlert(any(Date.class), any(Date.class), any());
+    }
+
+    @Test
+    void should_fire_only_after_minimum_duration() {
+        final var engine = new ClimateRuleEngine(List.of(ClimateRule.parse("temperature < 3.0")), Duration.ofMinutes(15), new TokenBucket(5, Duration.ZERO), mailPublishService, AlertJournal.none());
+        final var now = System.currentTimeMillis();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.9, now))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.9, now + TimeUnit.MINUTES.toMillis(10)))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.9, now + TimeUnit.MINUTES.toMillis(20)))).expectNextCount(1).verifyComplete();
+        verify(mailPublishService, times(1)).sendClimateAlert(any(Date.class), any(Date.class), any());
+    }
+
+    @Test
+    void should_suppress_alerts_when_rate_limit_is_exceeded() {
+        final var engine = new ClimateRuleEngine(List.of(ClimateRule.parse("temperature < 3.0")), Duration.ZERO, new TokenBucket(1, Duration.ofHours(1)), mailPublishService, AlertJournal.none());
+        final var now = System.currentTimeMillis();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.0, now))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 4.0, now + TimeUnit.MINUTES.toMillis(10)))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.0, now + TimeUnit.MINUTES.toMillis(20)))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 4.0, now + TimeUnit.MINUTES.toMillis(70)))).verifyComplete();
+        StepVerifier.create(engine.evaluate(createReading(firstSensor, 2.0, now + TimeUnit.MINUTES.toMillis(80)))).expectNextCount(1).verifyComplete();
+        verify(mailPublishService, times(2)).sendClimateAlert(any(Date.class), any(Date.class), any());
+    }
+
+    private Reading createReading(Sensor sensor, double temperature) {
+        return createReading(sensor, temperature, System.currentTimeMillis());
+    }
+
+    private Reading createReading(Sensor sensor, double temperature, long time) {
+        final var now = new Date(time);
+        final var reading = new Reading(now);
+        reading.addMeasurement(new ClimateMeasurement(reading, sensor, now, temperature, 50.0, 5.0));
+        return reading;
+    }
+}
@@ -0,0 +1,105 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ClimateMeasurementBoundaries;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.ClimateStatistics;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TestClimateStatistics {
+    private final Sensor sensor = new Sensor(1L, "Testsensor 1", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+
+    @Test
+    void should_find_extremes_and_averages_of_measurements() {
+        final var first = createMeasurement(0, 12.0, 50.0);
+        final var second = createMeasurement(10, 8.0, 70.0);
+        final var third = createMeasurement(20, 15.0, 40.0);
+        final var fourth = createMeasurement(30, 8.0, 70.0);
+        final var statistics = ClimateStatistics.ofMeasurements(List.of(first, second, third, fourth));
+        assertThat(statistics.getCount()).isEqualTo(4);
+        assertThat(statistics.getMinimumTemperature()).isSameAs(second);
+        assertThat(statistics.getMaximumTemperature()).isSameAs(third);
+        assertThat(statistics.getMinimumHumidity()).isSameAs(third);
+        assertThat(statistics.getMaximumHumidity()).isSameAs(second);
+        assertThat(statistics.getAverageTemperature()).isCloseTo(10.75, within(1e-9));
+        assertThat(statistics.getAverageHumidity()).isCloseTo(57.5, within(1e-9));
+    }
+
+    @Test
+    void should_skip_missing_values() {
+        final var first = createMeasurement(0, null, 50.0);
+        final var second = createMeasurement(10, 8.0, null);
+        final var statistics = ClimateStatistics.ofMeasurements(List.of(first, second));
+        assertThat(statistics.getCount()).isEqualTo(2);
+        assertThat(statistics.getMinimumTemperature()).isSameAs(second);
+        assertThat(statistics.getMaximumHumidity()).isSameAs(first);
+        assertThat(statistics.getAverageTemperature()).isEqualTo(8.0);
+
+        final var empty = ClimateStatistics.ofMeasurements(List.of());
+        assertThat(empty.getMinimumTemperature()).isNull();
+        assertThat(empty.getAverageHumidity()).isNaN();
+    }
+
+    @Test
+    void should_use_low_and_high_values_of_boundaries() {
+        final var first = createBoundaries(1.0, 9.0, 40.0, 60.0);
+        final var second = createBoundaries(3.0, 12.0, 30.0, 50.0);
+        final var statistics = ClimateStatistics.ofBoundaries(List.of(first, second));
+        assertThat(statistics.getMinimumTemperature()).isSameAs(first);
+        assertThat(statistics.getMaximumTemperature()).isSameAs(second);
+        assertThat(statistics.getMinimumHumidity()).isSameAs(second);
+        assertThat(statistics.getMaximumHumidity()).isSameAs(first);
+        assertThat(statistics.getAverageTemperature()).isCloseTo(6.25, within(1e-9));
+        assertThat(statistics.getAverageHumidity()).isCloseTo(45.0, within(1e-9));
+    }
+
+    private ClimateMeasurement createMeasurement(int minutes, Double temperature, Double humidity) {
+        final var time = new Date(TimeUnit.MINUTES.toMillis(minutes));
+        return new ClimateMeasurement(new Reading(time), sensor, time, temperature, humidity, 5.0);
+    }
+
+    private ClimateMeasurementBoundaries createBoundaries(double minimumTemperature, double maximumTemperature, double minimumHumidity, double maximumHumidity) {
+        return new ClimateMeasurementBoundaries() {
+            @Override
+            public Double getMinimumTemperature() {
+                return minimumTemperature;
+            }
+            @Override
+            public Double getMaximumTemperature() {
+                return maximumTemperature;
+            }
+            @Override
+            public Double getMinimumHumidity() {
+                return minimumHumidity;
+            }
+            @Override
+            public Double getMaximumHumidity() {
+                return maximumHumidity;
+            }
+            @Override
+            public Double getMinimumVaporAmount() {
+                return 4.0;
+            }
+            @Override
+            public Double getMaximumVaporAmount() {
+                return 8.0;
+            }
+            @Override
+            public Long getSensorId() {
+                return sensor.getId();
+            }
+            @Override
+            public Date getDay() {
+                return new Date();
+            }
+        };
+    }
+}
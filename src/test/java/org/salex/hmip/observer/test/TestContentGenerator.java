@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.salex.hmip.observer.blog.Image;
 import org.salex.hmip.observer.data.*;
+import org.salex.hmip.observer.service.ClimateRule;
 import org.salex.hmip.observer.service.ContentGenerator;
 import org.salex.hmip.observer.service.FreeMarkerContentGenerator;
 import org.salex.hmip.observer.service.OperatingAlertService;
@@ -169,12 +170,18 @@ public class TestContentGenerator {
 
     @Test
     void should_generate_operating_alert_mail_text_when_called_with_correct_data() {
+        final var sensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var climateMeasurement = new ClimateMeasurement(new Reading(), sensor, new Date(), 12.5, 45.0, 5.2);
         final var events = List.of(
                 new OperatingAlertService.Error(new RuntimeException("Some test exception")),
-                new OperatingAlertService.Exceedance(new OperatingMeasurement(new Reading(), 48.1, 2.875, 90.1, 90.1)));
+                new OperatingAlertService.Exceedance(new OperatingMeasurement(new Reading(), 48.1, 2.875, 90.1, 90.1)),
+                new OperatingAlertService.RuntimeExceedance(new RuntimeMeasurement(new Reading(), 120.0, 90.1, 3L, 40L, 0.1, 25, null, null)),
+                new OperatingAlertService.Anomaly(climateMeasurement, ClimateRule.Value.TEMPERATURE, OperatingAlertService.Anomaly.Kind.SPIKE, 5.1, 0.8, 9.25),
+                new OperatingAlertService.Anomaly(climateMeasurement, ClimateRule.Value.HUMIDITY, OperatingAlertService.Anomaly.Kind.DRIFT_UP, 40.2, 1.5, 8.5),
+                new OperatingAlertService.Forecast(climateMeasurement, ClimateRule.parse("temperature < 3.0"), new Date()));
         StepVerifier
                 .create(generator.generateOperatingAlert(events))
-                .expectNextCount(1)
+                .assertNext(content -> assertThat(content).contains("Ausreißer", "Anstieg", "temperature &lt; 3.0"))
                 .verifyComplete();
     }
 
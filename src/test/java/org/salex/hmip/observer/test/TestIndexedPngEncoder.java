@@ -0,0 +1,79 @@
+package org.salex.hmip.observer.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.Sensor;
+import org.salex.hmip.observer.service.IndexedPngEncoder;
+import org.salex.hmip.observer.service.JFreeChartGenerator;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestIndexedPngEncoder {
+    @Test
+    void should_encode_image_with_few_colors_lossless() throws IOException {
+        final var image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_ARGB);
+        final var graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 20, 10);
+        graphics.setColor(new Color(0, 0, 255, 128));
+        graphics.drawLine(0, 19, 39, 0);
+        graphics.dispose();
+        for(var filter : IndexedPngEncoder.Filter.values()) {
+            final var decoded = ImageIO.read(new ByteArrayInputStream(new IndexedPngEncoder(9, filter).encode(image)));
+            for(int y = 0; y < image.getHeight(); y++) {
+                for(int x = 0; x < image.getWidth(); x++) {
+                    final var expected = image.getRGB(x, y);
+                    assertThat(decoded.getRGB(x, y)).isEqualTo((expected >>> 24) == 0 ? decoded.getRGB(x, y) & 0x00FFFFFF : expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void should_map_colors_beyond_palette_to_nearest_color() throws IOException {
+        final var image = new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB);
+        for(int y = 0; y < 128; y++) {
+            for(int x = 0; x < 128; x++) {
+                image.setRGB(x, y, x < 64 && y < 64 ? 0xFF000000 | (x * 4) << 16 | (y * 4) << 8 : 0xFFFFFFFF);
+            }
+        }
+        final var decoded = ImageIO.read(new ByteArrayInputStream(new IndexedPngEncoder(6, IndexedPngEncoder.Filter.ADAPTIVE).encode(image)));
+        assertThat(decoded.getWidth()).isEqualTo(128);
+        assertThat(decoded.getColorModel().getPixelSize()).isEqualTo(8);
+        assertThat(decoded.getRGB(127, 127)).isEqualTo(0xFFFFFFFF);
+        assertThat(decoded.getRGB(10, 10) >>> 24).isEqualTo(0xFF);
+    }
+
+    @Test
+    void should_write_smaller_charts_with_indexed_palette() throws IOException {
+        final var now = new Date();
+        final var start = new Date(now.getTime() - TimeUnit.HOURS.toMillis(24));
+        final var sensor = new Sensor(1L, "First", Sensor.Type.HmIP_STHO, "test-sgtin-1", "#FF0000");
+        final var measurements = new ArrayList<ClimateMeasurement>();
+        for(int i = 0; i < 144; i++) {
+            final var time = new Date(start.getTime() + TimeUnit.MINUTES.toMillis(10 * i));
+            measurements.add(new ClimateMeasurement(new Reading(time), sensor, time, 10.0 + 5 * Math.sin(i / 20.0), 60.0, 5.0));
+        }
+        final Map<Sensor, List<ClimateMeasurement>> data = Map.of(sensor, measurements);
+        final var registry = new SimpleMeterRegistry();
+        final var argb = new JFreeChartGenerator(null, registry).create24HourChart(start, now, data).block();
+        final var indexed = new JFreeChartGenerator(new IndexedPngEncoder(9, IndexedPngEncoder.Filter.NONE), registry).create24HourChart(start, now, data).block();
+        assertThat(indexed.length).isLessThan(argb.length);
+        assertThat(ImageIO.read(new ByteArrayInputStream(indexed)).getWidth()).isEqualTo(600);
+        assertThat(registry.get("observer.chart.encode").tag("kind", "24h").timer().count()).isEqualTo(2);
+        assertThat(registry.get("observer.chart.size").tag("kind", "24h").summary().totalAmount()).isEqualTo(argb.length + indexed.length);
+    }
+}
@@ -0,0 +1,64 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.service.LargestTriangleThreeBuckets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestLargestTriangleThreeBuckets {
+    @Test
+    void should_keep_series_within_budget() {
+        final var times = new long[] { 0, 1, 2, 3 };
+        final var values = new double[] { 1.0, Double.NaN, 3.0, 4.0 };
+        assertThat(LargestTriangleThreeBuckets.select(times, values, 10)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void should_downsample_to_budget_keeping_first_last_and_peak() {
+        final var times = new long[10000];
+        final var values = new double[10000];
+        for(int i = 0; i < times.length; i++) {
+            times[i] = i * 1000L;
+            values[i] = Math.sin(i / 500.0);
+        }
+        values[4321] = 50.0;
+        final var selected = LargestTriangleThreeBuckets.select(times, values, 600);
+        assertThat(selected.length).isEqualTo(600);
+        assertThat(selected[0]).isEqualTo(0);
+        assertThat(selected[599]).isEqualTo(9999);
+        assertThat(selected).contains(4321);
+        for(int i = 1; i < selected.length; i++) {
+            assertThat(selected[i]).isGreaterThan(selected[i - 1]);
+        }
+    }
+
+    @Test
+    void should_skip_missing_values() {
+        final var times = new long[1000];
+        final var values = new double[1000];
+        for(int i = 0; i < times.length; i++) {
+            times[i] = i;
+            values[i] = i % 2 == 0 ? i : Double.NaN;
+        }
+        final var selected = LargestTriangleThreeBuckets.select(times, values, 100);
+        assertThat(selected.length).isEqualTo(100);
+        for(var index : selected) {
+            assertThat(values[index]).isNotNaN();
+        }
+    }
+
+    @Test
+    void should_share_budget_between_values_of_points() {
+        final var points = new ArrayList<double[]>();
+        for(int i = 0; i < 1000; i++) {
+            points.add(new double[] { i, Math.sin(i / 50.0), Math.cos(i / 70.0) });
+        }
+        final List<double[]> result = LargestTriangleThreeBuckets.downsample(points, 100, point -> (long) point[0], point -> point[1], point -> point[2]);
+        assertThat(result.size()).isBetween(50, 100);
+        assertThat(result.get(0)).isSameAs(points.get(0));
+        assertThat(result.get(result.size() - 1)).isSameAs(points.get(999));
+    }
+}
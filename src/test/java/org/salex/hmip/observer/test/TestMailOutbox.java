@@ -0,0 +1,103 @@
+package org.salex.hmip.observer.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.JpaObserverDatabase;
+import org.salex.hmip.observer.data.OutboxMail;
+import org.salex.hmip.observer.data.OutboxMailRepository;
+import org.salex.hmip.observer.service.MailOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@Import({JpaObserverDatabase.class, TestObserverConfiguration.class })
+public class TestMailOutbox {
+    @Autowired
+    OutboxMailRepository outboxMailRepository;
+
+    private JavaMailSender mailSender;
+
+    @BeforeEach
+    void setup() {
+        this.mailSender = mock(JavaMailSender.class);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+    }
+
+    @Test
+    void should_send_mails_with_same_subject_as_digest_in_one_batch() throws Exception {
+        final var sent = new ArrayList<MimeMessage>();
+        doAnswer(invocation -> sent.addAll(List.of(invocation.getArguments()).stream().map(MimeMessage.class::cast).toList())).when(mailSender).send((MimeMessage[]) any());
+        final var registry = new SimpleMeterRegistry();
+        final var outbox = new MailOutbox(mailSender, List.of("test@mail.address"), outboxMailRepository, Duration.ZERO, Duration.ofMinutes(1), 3, registry);
+        outbox.enqueue("Betriebsalarm", "First content");
+        outbox.enqueue("Betriebsalarm", "Second content");
+        outbox.enqueue("Klimaalarm", "Third content <img src=\"cid:chart\"/>", Map.of("chart", new byte[] {1, 2, 3}));
+        assertThat(outbox.getDepth()).isEqualTo(3);
+
+        assertThat(outbox.send()).isEqualTo(3);
+
+        verify(mailSender, times(1)).send((MimeMessage[]) any());
+        assertThat(sent.size()).isEqualTo(2);
+        assertThat(sent.get(0).getSubject()).isEqualTo("Betriebsalarm (2 Meldungen)");
+        assertThat(((MimeMultipart) sent.get(1).getContent()).getCount()).isEqualTo(2);
+        assertThat(((MimeMultipart) sent.get(1).getContent()).getBodyPart(1).getHeader("Content-ID")).containsExactly("<chart>");
+        assertThat(outbox.getDepth()).isEqualTo(0);
+        assertThat(outboxMailRepository.findAll()).allMatch(mail -> mail.getStatus() == OutboxMail.Status.SENT);
+        assertThat(registry.get("observer.mail.send").timer().count()).isEqualTo(1);
+        assertThat(outbox.send()).isEqualTo(0);
+    }
+
+    @Test
+    void should_retry_failed_mails_with_backoff() {
+        doThrow(new MailSendException("Connection timed out")).when(mailSender).send((MimeMessage[]) any());
+        final var outbox = new MailOutbox(mailSender, List.of("test@mail.address"), outboxMailRepository, Duration.ZERO, Duration.ofMinutes(1), 3, new SimpleMeterRegistry());
+        outbox.enqueue("Klimaalarm", "Some content");
+
+        assertThat(outbox.send()).isEqualTo(0);
+        assertThat(outbox.send()).isEqualTo(0);
+
+        verify(mailSender, times(1)).send((MimeMessage[]) any());
+        final var mail = outboxMailRepository.findAll().get(0);
+        assertThat(mail.getStatus()).isEqualTo(OutboxMail.Status.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(1);
+        assertThat(mail.getLastError()).isEqualTo("Connection timed out");
+        assertThat(mail.getNextAttempt()).isAfter(mail.getCreated());
+        assertThat(outbox.getDepth()).isEqualTo(1);
+    }
+
+    @Test
+    void should_purge_finished_mails_before_retention() {
+        final var outbox = new MailOutbox(mailSender, List.of("test@mail.address"), outboxMailRepository, Duration.ZERO, Duration.ofMinutes(1), 1, new SimpleMeterRegistry());
+        outbox.enqueue("Klimaalarm", "Sent content", Map.of("chart", new byte[] {1, 2, 3}));
+        outbox.send();
+        doThrow(new MailSendException("Connection timed out")).when(mailSender).send((MimeMessage[]) any());
+        outbox.enqueue("Betriebsalarm", "Failed content");
+        outbox.send();
+        outbox.enqueue("Betriebsalarm", "Pending content");
+        assertThat(outboxMailRepository.findAll()).extracting(OutboxMail::getStatus)
+                .containsExactlyInAnyOrder(OutboxMail.Status.SENT, OutboxMail.Status.FAILED, OutboxMail.Status.PENDING);
+
+        assertThat(outbox.purge(new Date(0))).isEqualTo(0);
+        assertThat(outbox.purge(new Date(System.currentTimeMillis() + 1000))).isEqualTo(2);
+
+        assertThat(outboxMailRepository.findAll()).extracting(OutboxMail::getContent).containsExactly("Pending content");
+    }
+}
@@ -4,17 +4,16 @@ import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.salex.hmip.observer.data.ClimateMeasurement;
+import org.salex.hmip.observer.data.ObserverDatabase;
 import org.salex.hmip.observer.data.OperatingMeasurement;
 import org.salex.hmip.observer.data.Reading;
 import org.salex.hmip.observer.data.Sensor;
 import org.salex.hmip.observer.service.*;
 import org.springframework.http.HttpStatus;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
-import javax.mail.internet.MimeMessage;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
@@ -28,16 +27,18 @@ import static org.mockito.Mockito.verifyNoInteractions;
 public class TestMailPublishService {
     private ContentGenerator contentGenerator;
 
-    private JavaMailSender mailSender;
+    private MailOutbox outbox;
 
-    private MimeMessage mimeMessage;
+    private ChartGenerator chartGenerator;
+
+    private ObserverDatabase database;
 
     @BeforeEach
     void setup() throws IOException {
         this.contentGenerator = mock(ContentGenerator.class);
-        this.mailSender = mock(JavaMailSender.class);
-        this.mimeMessage = mock(MimeMessage.class);
-        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+        this.outbox = mock(MailOutbox.class);
+        this.chartGenerator = mock(ChartGenerator.class);
+        this.database = mock(ObserverDatabase.class);
     }
 
     @Test
@@ -47,21 +48,76 @@ public class TestMailPublishService {
         final var twentyMinutesAgo = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(20));
 
         // Prepare the mocks
-        when(contentGenerator.generateClimateAlert(any(Date.class), any(Date.class), any())).thenReturn(Mono.just("Some mail content"));
+        when(contentGenerator.generateClimateAlert(any(Date.class), any(Date.class), any(), any())).thenReturn(Mono.just("Some mail content"));
 
         // Create and call the service
-        final var service = new DefaultMailPublishService(contentGenerator, mailSender, List.of("test@mail.address"));
+        final var service = new DefaultMailPublishService(contentGenerator, outbox, chartGenerator, database, BlockingExecutor.immediate());
         StepVerifier
                 .create(service.sendClimateAlert(twentyMinutesAgo, now, Map.of()))
                 .expectNextCount(1)
                 .verifyComplete();
 
         // Verfication
-        verify(contentGenerator, times(1)).generateClimateAlert(any(Date.class), any(Date.class), any());
+        verify(contentGenerator, times(1)).generateClimateAlert(any(Date.class), any(Date.class), any(), any());
         verifyNoMoreInteractions(contentGenerator);
-        verify(mailSender, times(1)).createMimeMessage();
-        verify(mailSender, times(1)).send(any(MimeMessage.class));
-        verifyNoMoreInteractions(mailSender);
+        verify(outbox, times(1)).enqueue(anyString(), eq("Some mail content"), anyMap(), any());
+        verifyNoMoreInteractions(outbox);
+    }
+
+    @Test
+    void should_embed_24_hour_chart_when_climate_alert_has_to_be_sent() {
+        // Prepare the test data
+        final var now = new Date();
+        final var twentyMinutesAgo = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(20));
+        final var sensor = new Sensor(1L, "Testsensor", Sensor.Type.HmIP_STHO, "test-sgtin", "#FF0000");
+        final var measurement = new ClimateMeasurement(new Reading(now), sensor, now, 2.5, 50.0, 5.0);
+        final var chart = new byte[] {1, 2, 3};
+
+        // Prepare the mocks
+        when(database.getClimateMeasurements(any(Date.class), eq(now))).thenReturn(Map.of(sensor, List.of(measurement)));
+        when(chartGenerator.create24HourChart(any(Date.class), eq(now), any())).thenReturn(Mono.just(chart));
+        when(contentGenerator.generateClimateAlert(any(Date.class), any(Date.class), any(), anyString())).thenReturn(Mono.just("Some mail content"));
+
+        // Create and call the service
+        final var service = new DefaultMailPublishService(contentGenerator, outbox, chartGenerator, database, BlockingExecutor.immediate());
+        StepVerifier
+                .create(service.sendClimateAlert(twentyMinutesAgo, now, Map.of(sensor, List.of(measurement))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verfication
+        verify(chartGenerator, times(1)).create24HourChart(eq(new Date(now.getTime() - TimeUnit.HOURS.toMillis(24))), eq(now), any());
+        verify(outbox, times(1)).enqueue(eq("Klimaalarm"), eq("Some mail content"), argThat(images -> images.size() == 1 && images.values().iterator().next() == chart), any());
+    }
+
+    @Test
+    void should_read_and_render_window_once_for_alerts_of_same_reading() {
+        // Prepare the test data
+        final var now = new Date();
+        final var twentyMinutesAgo = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(20));
+        final var later = new Date(now.getTime() + TimeUnit.MINUTES.toMillis(10));
+        final var sensor = new Sensor(1L, "Testsensor", Sensor.Type.HmIP_STHO, "test-sgtin", "#FF0000");
+        final var measurement = new ClimateMeasurement(new Reading(now), sensor, now, 2.5, 50.0, 5.0);
+
+        // Prepare the mocks
+        when(database.getClimateMeasurements(any(Date.class), any(Date.class))).thenReturn(Map.of(sensor, List.of(measurement)));
+        when(chartGenerator.create24HourChart(any(Date.class), any(Date.class), any())).thenReturn(Mono.just(new byte[] {1, 2, 3}));
+        when(contentGenerator.generateClimateAlert(any(Date.class), any(Date.class), any(), anyString())).thenReturn(Mono.just("Some mail content"));
+
+        // Create and call the service with three alerts, two of them for the same reading
+        final var service = new DefaultMailPublishService(contentGenerator, outbox, chartGenerator, database, BlockingExecutor.immediate());
+        StepVerifier
+                .create(service.sendClimateAlert(twentyMinutesAgo, now, Map.of(sensor, List.of(measurement)))
+                        .then(service.sendClimateAlert(twentyMinutesAgo, now, Map.of(sensor, List.of(measurement))))
+                        .then(service.sendClimateAlert(twentyMinutesAgo, later, Map.of(sensor, List.of(measurement)))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verfication
+        verify(database, times(1)).getClimateMeasurements(any(Date.class), eq(now));
+        verify(database, times(1)).getClimateMeasurements(any(Date.class), eq(later));
+        verify(chartGenerator, times(2)).create24HourChart(any(Date.class), any(Date.class), any());
+        verify(outbox, times(3)).enqueue(eq("Klimaalarm"), eq("Some mail content"), argThat(images -> images.size() == 1), any());
     }
 
     @Test
@@ -71,19 +127,19 @@ public class TestMailPublishService {
         final var twentyMinutesAgo = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(20));
 
         // Prepare the mocks
-        when(contentGenerator.generateClimateAlert(any(Date.class), any(Date.class), any())).thenReturn(Mono.empty());
+        when(contentGenerator.generateClimateAlert(any(Date.class), any(Date.class), any(), any())).thenReturn(Mono.empty());
 
         // Create and call the service
-        final var service = new DefaultMailPublishService(contentGenerator, mailSender, List.of("test@mail.address"));
+        final var service = new DefaultMailPublishService(contentGenerator, outbox, chartGenerator, database, BlockingExecutor.immediate());
         StepVerifier
                 .create(service.sendClimateAlert(twentyMinutesAgo, now, Map.of()))
                 .expectNextCount(1)
                 .verifyComplete();
 
         // Verfication
-        verify(contentGenerator, times(1)).generateClimateAlert(any(Date.class), any(Date.class), any());
+        verify(contentGenerator, times(1)).generateClimateAlert(any(Date.class), any(Date.class), any(), any());
         verifyNoMoreInteractions(contentGenerator);
-        verifyNoInteractions(mailSender);
+        verifyNoInteractions(outbox);
 
     }
 
@@ -96,7 +152,7 @@ public class TestMailPublishService {
         when(contentGenerator.generateOperatingAlert(any())).thenReturn(Mono.just("Some mail content"));
 
         // Create and call the service
-        final var service = new DefaultMailPublishService(contentGenerator, mailSender, List.of("test@mail.address"));
+        final var service = new DefaultMailPublishService(contentGenerator, outbox, chartGenerator, database, BlockingExecutor.immediate());
         StepVerifier
                 .create(service.sendOperatingAlert(data))
                 .expectNextCount(1)
@@ -105,8 +161,7 @@ public class TestMailPublishService {
         // Verfication
         verify(contentGenerator, times(1)).generateOperatingAlert(any());
         verifyNoMoreInteractions(contentGenerator);
-        verify(mailSender, times(1)).createMimeMessage();
-        verify(mailSender, times(1)).send(any(MimeMessage.class));
-        verifyNoMoreInteractions(mailSender);
+        verify(outbox, times(1)).enqueue(anyString(), eq("Some mail content"), anyMap(), any());
+        verifyNoMoreInteractions(outbox);
     }
 }
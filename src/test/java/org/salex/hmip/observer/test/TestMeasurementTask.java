@@ -3,10 +3,11 @@ package org.salex.hmip.observer.test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.salex.hmip.observer.data.*;
+import org.salex.hmip.observer.service.BlockingExecutor;
 import org.salex.hmip.observer.service.BlogPublishService;
 import org.salex.hmip.observer.service.ClimateMeasurementService;
-import org.salex.hmip.observer.service.OperatingAlertService;
 import org.salex.hmip.observer.service.OperatingMeasurementService;
+import org.salex.hmip.observer.service.RuntimeMeasurementService;
 import org.salex.hmip.observer.task.MeasurementTask;
 import reactor.core.publisher.Mono;
 
@@ -21,16 +22,16 @@ public class TestMeasurementTask {
     private ObserverDatabase database;
     private ClimateMeasurementService climateMeasurementService;
     private OperatingMeasurementService operatingMeasurementService;
+    private RuntimeMeasurementService runtimeMeasurementService;
     private BlogPublishService blogPublishService;
-    private OperatingAlertService operatingAlertService;
 
     @BeforeEach
     void setup() {
         database = mock(ObserverDatabase.class);
         climateMeasurementService = mock(ClimateMeasurementService.class);
         operatingMeasurementService = mock(OperatingMeasurementService.class);
+        runtimeMeasurementService = mock(RuntimeMeasurementService.class);
         blogPublishService = mock(BlogPublishService.class);
-        operatingAlertService = mock(OperatingAlertService.class);
     }
 
     @Test
@@ -44,24 +45,25 @@ public class TestMeasurementTask {
         reading.addMeasurement(new OperatingMeasurement(reading, 1.0, 2.0, 3.0, 4.0));
         when(climateMeasurementService.measureClimateValues(any())).thenReturn(Mono.just(reading));
         when(operatingMeasurementService.measureOperatingValues(any())).thenReturn(Mono.just(reading));
+        when(runtimeMeasurementService.measureRuntimeValues(any())).thenReturn(Mono.just(reading));
         when(blogPublishService.postOverview(any())).thenReturn(Mono.just(reading));
         when(blogPublishService.postDetails(any(Date.class), any(Date.class), any())).thenReturn(Mono.just(new HashMap<Sensor, List<ClimateMeasurement>>()));
         when(database.addReading(any())).thenReturn(reading);
         when(database.getClimateMeasurements(any(Date.class), any(Date.class))).thenReturn(new HashMap<Sensor, List<ClimateMeasurement>>());
-        final var task = new MeasurementTask("test-cron", database, operatingMeasurementService, climateMeasurementService, blogPublishService, operatingAlertService);
+        final var task = new MeasurementTask("test-cron", database, operatingMeasurementService, climateMeasurementService, runtimeMeasurementService, blogPublishService, BlockingExecutor.immediate());
         task.measure();
         verify(climateMeasurementService, times(1)).measureClimateValues(any());
         verify(operatingMeasurementService, times(1)).measureOperatingValues(any());
+        verify(runtimeMeasurementService, times(1)).measureRuntimeValues(any());
         verify(database, times(1)).addReading(reading);
         verify(database, times(1)).getClimateMeasurements(any(Date.class), any(Date.class));
         verify(blogPublishService, times(1)).postOverview(reading);
         verify(blogPublishService, times(1)).postDetails(any(Date.class), any(Date.class), any());
-        verify(operatingAlertService, times(1)).check(any());
         verifyNoMoreInteractions(climateMeasurementService);
         verifyNoMoreInteractions(operatingMeasurementService);
+        verifyNoMoreInteractions(runtimeMeasurementService);
         verifyNoMoreInteractions(database);
         verifyNoMoreInteractions(blogPublishService);
-        verifyNoMoreInteractions(operatingAlertService);
     }
 
     @Test
@@ -75,11 +77,11 @@ public class TestMeasurementTask {
         reading.addMeasurement(new OperatingMeasurement(reading, 1.0, 2.0, 3.0, 4.0));
         when(climateMeasurementService.measureClimateValues(any())).thenReturn(Mono.error(new Exception("test exception when reading climate measurements")));
         when(operatingMeasurementService.measureOperatingValues(any())).thenReturn(Mono.just(reading));
-        final var task = new MeasurementTask("test-cron", database, operatingMeasurementService, climateMeasurementService, blogPublishService, operatingAlertService);
+        final var task = new MeasurementTask("test-cron", database, operatingMeasurementService, climateMeasurementService, runtimeMeasurementService, blogPublishService, BlockingExecutor.immediate());
         task.measure();
+        verifyNoInteractions(runtimeMeasurementService);
         verifyNoInteractions(database);
         verifyNoInteractions(blogPublishService);
-        verifyNoInteractions(operatingAlertService);
     }
 
     @Test
@@ -93,10 +95,10 @@ public class TestMeasurementTask {
         reading.addMeasurement(new OperatingMeasurement(reading, 1.0, 2.0, 3.0, 4.0));
         when(climateMeasurementService.measureClimateValues(any())).thenReturn(Mono.just(reading));
         when(operatingMeasurementService.measureOperatingValues(any())).thenReturn(Mono.error(new Exception("test exception when reading operating measurements")));
-        final var task = new MeasurementTask("test-cron", database, operatingMeasurementService, climateMeasurementService, blogPublishService, operatingAlertService);
+        final var task = new MeasurementTask("test-cron", database, operatingMeasurementService, climateMeasurementService, runtimeMeasurementService, blogPublishService, BlockingExecutor.immediate());
         task.measure();
+        verifyNoInteractions(runtimeMeasurementService);
         verifyNoInteractions(database);
         verifyNoInteractions(blogPublishService);
-        verifyNoInteractions(operatingAlertService);
     }
 }
@@ -1,6 +1,14 @@
 package org.salex.hmip.observer.test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.salex.hmip.observer.data.AlertJournalRepository;
+import org.salex.hmip.observer.data.ClimateMeasurementRepository;
+import org.salex.hmip.observer.data.OperatingMeasurementRepository;
+import org.salex.hmip.observer.data.ReadingFeed;
+import org.salex.hmip.observer.data.RuntimeMeasurementRepository;
+import org.salex.hmip.observer.service.AlertJournal;
 import org.salex.hmip.observer.service.DefaultOperatingAlertService;
+import org.salex.hmip.observer.service.JpaAlertJournal;
 import org.salex.hmip.observer.service.OperatingAlertService;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -11,4 +19,14 @@ public class TestObserverConfiguration {
     OperatingAlertService createTestOperatingAlertService() {
         return new DefaultOperatingAlertService();
     }
+
+    @Bean
+    ReadingFeed createTestReadingFeed() {
+        return new ReadingFeed(16, 64, new SimpleMeterRegistry());
+    }
+
+    @Bean
+    AlertJournal createTestAlertJournal(AlertJournalRepository alertJournalRepository, OperatingMeasurementRepository operatingMeasurementRepository, RuntimeMeasurementRepository runtimeMeasurementRepository, ClimateMeasurementRepository climateMeasurementRepository) {
+        return new JpaAlertJournal(alertJournalRepository, operatingMeasurementRepository, runtimeMeasurementRepository, climateMeasurementRepository);
+    }
 }
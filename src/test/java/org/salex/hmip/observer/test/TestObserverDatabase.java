@@ -147,6 +147,9 @@ public class TestObserverDatabase {
         Assertions.assertEquals(3, boundaries.size());
         Assertions.assertEquals(2, boundaries.get(firstSensor).size());
         Assertions.assertEquals(1, boundaries.get(secondSensor).size());
+        final var twoDaysAgo = new Date(now.getTime() - TimeUnit.DAYS.toMillis(2));
+        Assertions.assertEquals(2, database.getClimateMeasurementBoundaries(twoDaysAgo, now, firstSensor).size());
+        Assertions.assertEquals(1, database.getClimateMeasurementBoundaries(twoDaysAgo, now, secondSensor).size());
 
         // Check if all attributes are filled
         var today = today();
@@ -169,6 +172,22 @@ public class TestObserverDatabase {
         Assertions.assertEquals(30.0, examinee.getMaximumVaporAmount());
     }
 
+    @Test
+    public void should_return_time_of_latest_reading() {
+        // No readings yet
+        Assertions.assertTrue(database.getLatestReadingTime().isEmpty());
+
+        // Create some data in the database
+        final var now = new Date();
+        final var oneHourAgo = new Date(now.getTime() - TimeUnit.HOURS.toMillis(1));
+        final var sensor = this.database.getSensors().iterator().next();
+        database.addReading(createReading(oneHourAgo, sensor));
+        database.addReading(createReading(now, sensor));
+
+        // Check if the latest reading is found
+        Assertions.assertEquals(now.getTime(), database.getLatestReadingTime().orElseThrow().getTime());
+    }
+
     private Date today() {
         final var calendar = Calendar.getInstance();
         calendar.set(Calendar.HOUR_OF_DAY, 0);
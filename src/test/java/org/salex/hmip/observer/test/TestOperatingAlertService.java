@@ -1,13 +1,24 @@
 package org.salex.hmip.observer.test;
 
 import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.ObserverConfiguration;
+import org.salex.hmip.observer.data.ObserverDatabase;
 import org.salex.hmip.observer.data.OperatingMeasurement;
 import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.ReadingFeed;
+import org.salex.hmip.observer.data.RuntimeMeasurement;
+import org.salex.hmip.observer.service.AlertJournal;
 import org.salex.hmip.observer.service.DefaultOperatingAlertService;
+import org.salex.hmip.observer.service.EventBuffer;
+import org.salex.hmip.observer.service.OperatingAlertService;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
 
 
 public class TestOperatingAlertService {
@@ -22,6 +33,21 @@ public class TestOperatingAlertService {
         assertThat(events.size()).isEqualTo(0);
     }
 
+    @Test
+    void should_keep_checking_committed_readings_after_a_failed_check() {
+        final var failing = mock(Reading.class);
+        when(failing.getMeasurements()).thenThrow(new IllegalStateException("Some test exception"));
+        final var reading = new Reading();
+        reading.addMeasurement(new OperatingMeasurement(reading, 60.1, 2.875, 90.0, 90.0));
+        final var database = mock(ObserverDatabase.class);
+        when(database.getCommittedReadings("operating-alert", ReadingFeed.Overflow.DROP_OLDEST)).thenReturn(Flux.just(failing, reading));
+        final var service = new ObserverConfiguration().createOperatingAlertService(Duration.ZERO, 16, EventBuffer.Overflow.DROP_OLDEST, AlertJournal.none(), database);
+        final var events = service.retrieveEvents();
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0)).isInstanceOf(OperatingAlertService.Error.class);
+        assertThat(events.get(1)).isInstanceOf(OperatingAlertService.Exceedance.class);
+    }
+
     @Test
     void should_retrieve_error_when_signaled() {
         final var service = new DefaultOperatingAlertService();
@@ -62,4 +88,80 @@ public class TestOperatingAlertService {
         assertThat(events.size()).isEqualTo(0);
     }
 
+    @Test
+    void should_retrieve_exceedance_when_sampled_cpu_temperature_has_peaked_out_of_rail() {
+        final var service = new DefaultOperatingAlertService();
+        final var measurement = new OperatingMeasurement(new Reading(), 50.0, 2.875, 90.0, 90.0);
+        measurement.setCpuTemperatureMaximum(60.1);
+        service.check(List.of(measurement));
+        final var events = service.retrieveEvents();
+        assertThat(events.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_retrieve_exceedance_when_heap_usage_has_gone_out_of_rail() {
+        final var service = new DefaultOperatingAlertService();
+        service.checkRuntime(List.of(new RuntimeMeasurement(new Reading(), 120.0, 90.1, 3L, 40L, 0.1, 25, null, null)));
+        final var events = service.retrieveEvents();
+        assertThat(events.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_retrieve_exceedance_when_gc_time_has_gone_out_of_rail() {
+        final var service = new DefaultOperatingAlertService();
+        service.checkRuntime(List.of(new RuntimeMeasurement(new Reading(), 120.0, 50.0, 300L, 61000L, 10.1, 25, null, null)));
+        final var events = service.retrieveEvents();
+        assertThat(events.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_retrieve_exceedance_only_once_until_resolved() {
+        final var service = new DefaultOperatingAlertService();
+        service.check(List.of(new OperatingMeasurement(new Reading(), 60.1, 2.875, 50.0, 50.0)));
+        service.check(List.of(new OperatingMeasurement(new Reading(), 62.0, 2.875, 50.0, 50.0)));
+        service.check(List.of(new OperatingMeasurement(new Reading(), 58.0, 2.875, 50.0, 50.0)));
+        service.check(List.of(new OperatingMeasurement(new Reading(), 60.5, 2.875, 50.0, 50.0)));
+        assertThat(service.retrieveEvents().size()).isEqualTo(1);
+        service.check(List.of(new OperatingMeasurement(new Reading(), 55.0, 2.875, 50.0, 50.0)));
+        service.check(List.of(new OperatingMeasurement(new Reading(), 60.5, 2.875, 50.0, 50.0)));
+        assertThat(service.retrieveEvents().size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_coalesce_errors_with_same_root_cause_until_retrieved() {
+        final var service = new DefaultOperatingAlertService();
+        service.signal(new RuntimeException("First", new IOException("Connection refused")));
+        service.signal(new RuntimeException("Second", new IOException("Connection refused")));
+        service.signal(new RuntimeException("Third", new IOException("Timeout")));
+        var events = service.retrieveEvents();
+        assertThat(events.size()).isEqualTo(2);
+        assertThat(((OperatingAlertService.Error) events.get(0)).getCount()).isEqualTo(2);
+        assertThat(((OperatingAlertService.Error) events.get(1)).getCount()).isEqualTo(1);
+        service.signal(new RuntimeException("Fourth", new IOException("Connection refused")));
+        events = service.retrieveEvents();
+        assertThat(events.size()).isEqualTo(1);
+        assertThat(((OperatingAlertService.Error) events.get(0)).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_drop_oldest_events_when_buffer_is_full() {
+        final var service = new DefaultOperatingAlertService(Duration.ZERO, 2, EventBuffer.Overflow.DROP_OLDEST, AlertJournal.none());
+        service.signal(new RuntimeException("First"));
+        service.signal(new RuntimeException("Second"));
+        service.signal(new RuntimeException("Third"));
+        final var events = service.retrieveEvents();
+        assertThat(events.stream().map(event -> ((OperatingAlertService.Error) event).getError().getMessage())).containsExactly("Second", "Third");
+    }
+
+    @Test
+    void should_drop_newest_events_when_buffer_is_full() {
+        final var service = new DefaultOperatingAlertService(Duration.ZERO, 2, EventBuffer.Overflow.DROP_NEWEST, AlertJournal.none());
+        service.signal(new RuntimeException("First"));
+        service.signal(new RuntimeException("Second"));
+        service.signal(new RuntimeException("Third"));
+        service.signal(new RuntimeException("Second"));
+        final var events = service.retrieveEvents();
+        assertThat(events.stream().map(event -> ((OperatingAlertService.Error) event).getError().getMessage())).containsExactly("First", "Second");
+        assertThat(((OperatingAlertService.Error) events.get(1)).getCount()).isEqualTo(2);
+    }
 }
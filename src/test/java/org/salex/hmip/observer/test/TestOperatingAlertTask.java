@@ -35,6 +35,7 @@ public class TestOperatingAlertTask {
         task.checkAndSendAlert();
         verify(operatingAlertService, times(1)).retrieveEvents();
         verify(mailPublishService, times(1)).sendOperatingAlert(any());
+        verify(operatingAlertService, times(1)).confirmDelivery(events);
         verifyNoMoreInteractions(operatingAlertService);
         verifyNoMoreInteractions(mailPublishService);
     }
@@ -50,6 +51,21 @@ public class TestOperatingAlertTask {
         task.checkAndSendAlert();
         verify(operatingAlertService, times(1)).retrieveEvents();
         verify(mailPublishService, times(1)).sendOperatingAlert(any());
+        verify(operatingAlertService, times(1)).confirmDelivery(events);
+        verifyNoMoreInteractions(operatingAlertService);
+        verifyNoMoreInteractions(mailPublishService);
+    }
+
+    @Test
+    void should_release_events_when_sending_has_failed() {
+        final List<OperatingAlertService.Event> events = List.of( new OperatingAlertService.Error(new RuntimeException("Some test exception")));
+        when(operatingAlertService.retrieveEvents()).thenReturn(events);
+        when(mailPublishService.sendOperatingAlert(any())).thenReturn(Mono.error(new RuntimeException("Some mail exception")));
+        final var task = new OperatingAlertTask("test-cron", mailPublishService, operatingAlertService);
+        task.checkAndSendAlert();
+        verify(operatingAlertService, times(1)).retrieveEvents();
+        verify(mailPublishService, times(1)).sendOperatingAlert(any());
+        verify(operatingAlertService, times(1)).failDelivery(events);
         verifyNoMoreInteractions(operatingAlertService);
         verifyNoMoreInteractions(mailPublishService);
     }
@@ -0,0 +1,82 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.salex.hmip.observer.data.OperatingMeasurement;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.NativeOperatingMeasurementService;
+import org.salex.hmip.observer.service.OperatingSampleBuffer;
+import org.salex.hmip.observer.service.SampledOperatingMeasurementService;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestOperatingSampler {
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_summarize_samples_and_clear_buffer() {
+        final var buffer = new OperatingSampleBuffer(100);
+        for(int i = 1; i <= 20; i++) {
+            buffer.add(i);
+        }
+        final var summary = buffer.drain();
+        assertThat(summary.getCount()).isEqualTo(20);
+        assertThat(summary.getMinimum()).isEqualTo(1.0);
+        assertThat(summary.getMaximum()).isEqualTo(20.0);
+        assertThat(summary.getAverage()).isEqualTo(10.5);
+        assertThat(summary.getPercentile95()).isEqualTo(19.0);
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.drain()).isNull();
+    }
+
+    @Test
+    void should_overwrite_oldest_samples_when_buffer_is_full() {
+        final var buffer = new OperatingSampleBuffer(3);
+        buffer.add(99.0);
+        buffer.add(1.0);
+        buffer.add(2.0);
+        buffer.add(3.0);
+        final var summary = buffer.drain();
+        assertThat(summary.getCount()).isEqualTo(3);
+        assertThat(summary.getMaximum()).isEqualTo(3.0);
+    }
+
+    @Test
+    void should_add_summary_of_samples_to_reading() throws IOException {
+        final var temperature = this.directory.resolve("temp");
+        final var memoryInfo = this.directory.resolve("meminfo");
+        final var collector = mock(NativeOperatingMeasurementService.class);
+        when(collector.readCoreVoltage()).thenReturn(1.2875);
+        when(collector.readDiskUsage()).thenReturn(11.5);
+        final var service = new SampledOperatingMeasurementService(collector, 10, temperature, memoryInfo, BlockingExecutor.immediate());
+        Files.writeString(temperature, "44000\n");
+        Files.writeString(memoryInfo, "MemTotal:        1000 kB\nMemFree:          100 kB\nMemAvailable:     600 kB\n");
+        service.sample();
+        Files.writeString(temperature, "62000\n");
+        Files.writeString(memoryInfo, "MemTotal:        1000 kB\nMemFree:          100 kB\nMemAvailable:     200 kB\n");
+        service.sample();
+        final var reading = new Reading();
+        StepVerifier
+                .create(service.measureOperatingValues(reading))
+                .expectNext(reading)
+                .verifyComplete();
+        final var measurement = (OperatingMeasurement) reading.getMeasurements().get(0);
+        assertThat(measurement.getSampleCount()).isEqualTo(2);
+        assertThat(measurement.getCpuTemperature()).isEqualTo(53.0);
+        assertThat(measurement.getCpuTemperatureMinimum()).isEqualTo(44.0);
+        assertThat(measurement.getCpuTemperatureMaximum()).isEqualTo(62.0);
+        assertThat(measurement.getMemoryUsage()).isEqualTo(60.0);
+        assertThat(measurement.getMemoryUsageMaximum()).isEqualTo(80.0);
+        assertThat(measurement.getCoreVoltage()).isEqualTo(1.2875);
+        assertThat(measurement.getDiskUsage()).isEqualTo(11.5);
+    }
+}
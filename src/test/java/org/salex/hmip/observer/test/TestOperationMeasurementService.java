@@ -3,14 +3,18 @@ package org.salex.hmip.observer.test;
 import org.junit.jupiter.api.Test;
 import org.salex.hmip.observer.data.OperatingMeasurement;
 import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.service.BlockingExecutor;
+import org.salex.hmip.observer.service.NativeOperatingMeasurementService;
 import org.salex.hmip.observer.service.RaspberryOperatingMeasurementService;
 import reactor.test.StepVerifier;
 
 import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Path;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 public class TestOperationMeasurementService {
     @Test
@@ -32,4 +36,51 @@ public class TestOperationMeasurementService {
         assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getDiskUsage()).isEqualTo(11.526968748877033);
         assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getMemoryUsage()).isEqualTo(42.96624795006311);
     }
+
+    @Test
+    void should_return_operating_measurement_data_without_running_processes_except_voltage() throws IOException {
+        final var fileSystemAccess = mock(NativeOperatingMeasurementService.FileSystemAccess.class);
+        final var fileStore = mock(FileStore.class);
+        final var operatingSystemAccess = mock(RaspberryOperatingMeasurementService.OperatingSystemAccess.class);
+        when(fileSystemAccess.readFile(Path.of("/sys/class/thermal/thermal_zone0/temp"))).thenReturn("44500\n");
+        when(fileSystemAccess.readFile(Path.of("/proc/meminfo"))).thenReturn("MemTotal:         931736 kB\nMemFree:           80136 kB\nMemAvailable:     531404 kB\n");
+        when(fileSystemAccess.getFileStore(Path.of("/"))).thenReturn(fileStore);
+        when(fileStore.getTotalSpace()).thenReturn(30388284L * 1024);
+        when(fileStore.getUnallocatedSpace()).thenReturn(26885436L * 1024);
+        when(operatingSystemAccess.runCommand(new String[] { "test-script", "measure_volts" })).thenReturn("volt=1.2875V");
+        final var service = new NativeOperatingMeasurementService("test-script", fileSystemAccess, operatingSystemAccess, BlockingExecutor.immediate());
+        final var reading = new Reading();
+        StepVerifier
+                .create(service.measureOperatingValues(reading))
+                .expectNext(reading)
+                .verifyComplete();
+        assertThat(reading.getMeasurements().size()).isEqualTo(1);
+        assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getCpuTemperature()).isEqualTo(44.5);
+        assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getCoreVoltage()).isEqualTo(1.2875);
+        assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getDiskUsage()).isEqualTo(11.526968748877033);
+        assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getMemoryUsage()).isEqualTo(42.96624795006311);
+        verify(operatingSystemAccess, times(1)).runCommand(any());
+        verifyNoMoreInteractions(operatingSystemAccess);
+    }
+
+    @Test
+    void should_skip_core_voltage_when_no_script_is_configured() throws IOException {
+        final var fileSystemAccess = mock(NativeOperatingMeasurementService.FileSystemAccess.class);
+        final var fileStore = mock(FileStore.class);
+        final var operatingSystemAccess = mock(RaspberryOperatingMeasurementService.OperatingSystemAccess.class);
+        when(fileSystemAccess.readFile(Path.of("/sys/class/thermal/thermal_zone0/temp"))).thenReturn("44500\n");
+        when(fileSystemAccess.readFile(Path.of("/proc/meminfo"))).thenReturn("MemTotal:         931736 kB\nMemAvailable:     531404 kB\n");
+        when(fileSystemAccess.getFileStore(Path.of("/"))).thenReturn(fileStore);
+        when(fileStore.getTotalSpace()).thenReturn(1000L);
+        when(fileStore.getUnallocatedSpace()).thenReturn(500L);
+        final var service = new NativeOperatingMeasurementService("", fileSystemAccess, operatingSystemAccess, BlockingExecutor.immediate());
+        final var reading = new Reading();
+        StepVerifier
+                .create(service.measureOperatingValues(reading))
+                .expectNext(reading)
+                .verifyComplete();
+        assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getCoreVoltage()).isNull();
+        assertThat(((OperatingMeasurement)reading.getMeasurements().get(0)).getDiskUsage()).isEqualTo(50.0);
+        verifyNoInteractions(operatingSystemAccess);
+    }
 }
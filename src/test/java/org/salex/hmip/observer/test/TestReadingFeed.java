@@ -0,0 +1,68 @@
+package org.salex.hmip.observer.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.ReadingFeed;
+import reactor.test.StepVerifier;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestReadingFeed {
+    @Test
+    void should_replay_last_readings_to_new_subscribers() {
+        final var feed = new ReadingFeed(2, 8, new SimpleMeterRegistry());
+        final var first = new Reading(new Date());
+        final var second = new Reading(new Date());
+        final var third = new Reading(new Date());
+        feed.publish(first);
+        feed.publish(second);
+        feed.publish(third);
+        feed.complete();
+        StepVerifier
+                .create(feed.subscribe("test", ReadingFeed.Overflow.ERROR))
+                .expectNext(second, third)
+                .verifyComplete();
+    }
+
+    @Test
+    void should_deliver_published_readings_to_all_subscribers() {
+        final var feed = new ReadingFeed(2, 8, new SimpleMeterRegistry());
+        final var reading = new Reading(new Date());
+        final var first = StepVerifier.create(feed.subscribe("first", ReadingFeed.Overflow.ERROR))
+                .expectNext(reading)
+                .expectComplete()
+                .verifyLater();
+        final var second = StepVerifier.create(feed.subscribe("second", ReadingFeed.Overflow.LATEST))
+                .expectNext(reading)
+                .expectComplete()
+                .verifyLater();
+        feed.publish(reading);
+        feed.complete();
+        first.verify();
+        second.verify();
+    }
+
+    @Test
+    void should_count_dropped_readings_and_lag_of_slow_subscriber() {
+        final var registry = new SimpleMeterRegistry();
+        final var feed = new ReadingFeed(4, 2, registry);
+        StepVerifier.create(feed.subscribe("slow", ReadingFeed.Overflow.DROP_OLDEST), 0)
+                .then(() -> {
+                    for(int i = 0; i < 5; i++) {
+                        feed.publish(new Reading(new Date()));
+                    }
+                })
+                .then(() -> assertThat(registry.get("observer.feed.lag").tag("subscriber", "slow").gauge().value()).isEqualTo(5.0))
+                .thenRequest(2)
+                .expectNextCount(2)
+                .then(() -> {
+                    assertThat(registry.get("observer.feed.dropped").tag("subscriber", "slow").counter().count()).isEqualTo(3.0);
+                    assertThat(registry.get("observer.feed.lag").tag("subscriber", "slow").gauge().value()).isEqualTo(0.0);
+                })
+                .thenCancel()
+                .verify();
+    }
+}
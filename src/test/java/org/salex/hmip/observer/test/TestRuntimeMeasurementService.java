@@ -0,0 +1,39 @@
+package org.salex.hmip.observer.test;
+
+import org.junit.jupiter.api.Test;
+import org.salex.hmip.observer.data.Reading;
+import org.salex.hmip.observer.data.RuntimeMeasurement;
+import org.salex.hmip.observer.service.JvmRuntimeMeasurementService;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestRuntimeMeasurementService {
+    @Test
+    void should_return_runtime_measurement_data() {
+        final var service = new JvmRuntimeMeasurementService();
+        final var reading = new Reading();
+        StepVerifier
+                .create(service.measureRuntimeValues(reading))
+                .expectNext(reading)
+                .verifyComplete();
+        assertThat(reading.getMeasurements().size()).isEqualTo(1);
+        final var measurement = (RuntimeMeasurement) reading.getMeasurements().get(0);
+        assertThat(measurement.getHeapUsed()).isPositive();
+        assertThat(measurement.getHeapUsage()).isBetween(0.0, 100.0);
+        assertThat(measurement.getGcCount()).isNotNegative();
+        assertThat(measurement.getGcTimeRatio()).isBetween(0.0, 100.0);
+        assertThat(measurement.getThreadCount()).isPositive();
+    }
+
+    @Test
+    void should_report_garbage_collections_since_previous_reading() {
+        final var service = new JvmRuntimeMeasurementService();
+        service.measureRuntimeValues(new Reading()).block();
+        final var reading = new Reading();
+        service.measureRuntimeValues(reading).block();
+        final var measurement = (RuntimeMeasurement) reading.getMeasurements().get(0);
+        assertThat(measurement.getGcCount()).isNotNegative();
+        assertThat(measurement.getGcTime()).isNotNegative();
+    }
+}
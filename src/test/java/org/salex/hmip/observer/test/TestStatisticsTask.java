@@ -3,6 +3,7 @@ package org.salex.hmip.observer.test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.salex.hmip.observer.data.*;
+import org.salex.hmip.observer.service.BlockingExecutor;
 import org.salex.hmip.observer.service.BlogPublishService;
 import org.salex.hmip.observer.task.StatisticsTask;
 import reactor.core.publisher.Mono;
@@ -50,7 +51,7 @@ public class TestStatisticsTask {
         when(blogPublishService.postHistory(any(Date.class), any(Date.class), any())).thenReturn(Mono.just(data));
 
         // Create and call the task
-        final var task = new StatisticsTask("test-cron", database, blogPublishService);
+        final var task = new StatisticsTask("test-cron", database, blogPublishService, BlockingExecutor.immediate());
         task.updateStatistics();
 
         // Verification